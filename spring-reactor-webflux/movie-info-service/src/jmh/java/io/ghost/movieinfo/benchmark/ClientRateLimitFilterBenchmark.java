@@ -0,0 +1,119 @@
+package io.ghost.movieinfo.benchmark;
+
+import io.ghost.movieinfo.config.MovieInfoProperties;
+import io.ghost.movieinfo.limit.ClientRateLimitFilter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What ClientRateLimitFilter adds to a request: the filter in front of a chain that does nothing, against the
+ * chain alone (baseline). With one client every thread competes for the same compare-and-set; with many the
+ * Caffeine lookup misses the CPU caches. chargeRecords is a bulk ingest of RECORDS records charged as they
+ * pass, against the same records through the chain alone (bulkBaseline). All include building the exchange,
+ * so compare differences:
+ * mvn -Pbenchmark verify -Djmh.args="-prof gc ClientRateLimitFilter"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class ClientRateLimitFilterBenchmark {
+
+    private static final int RECORDS = 1000;
+
+    @Param({"1", "1000000"})
+    private int clients;
+
+    @Param({"0", "1000000000"})
+    private long dailyQuota;
+
+    private final WebFilterChain chain = exchange -> Mono.empty();
+
+    private final WebFilterChain bulkChain = exchange -> ClientRateLimitFilter.chargeRecords(exchange,
+            Flux.range(0, RECORDS)).then();
+
+    private ClientRateLimitFilter filter;
+
+    private InetSocketAddress[] addresses;
+
+    @Setup
+    public void setUp() {
+        var properties = new MovieInfoProperties();
+        // Never runs out, the rejection path is not what is measured
+        properties.getRateLimit().setDefaults(new MovieInfoProperties.RatePlan(1_000_000, 1e12, this.dailyQuota));
+        // A token per bulk ingest, so chargeRecords does not use up the daily quota either
+        properties.getRateLimit().setWriteRecordCost(1.0 / RECORDS);
+        this.filter = new ClientRateLimitFilter(properties);
+        this.addresses = new InetSocketAddress[this.clients];
+        for (int i = 0; i < this.clients; i++) {
+            this.addresses[i] = new InetSocketAddress(
+                    "10." + (i >>> 16 & 0xff) + "." + (i >>> 8 & 0xff) + "." + (i & 0xff), 40000);
+        }
+        // Every client known before measuring, as in a service that has been up for a while
+        for (InetSocketAddress address : this.addresses) {
+            this.filter.filter(exchange(address), this.chain).block();
+        }
+    }
+
+    @Benchmark
+    public MockServerWebExchange baseline() {
+        var exchange = exchange(nextAddress());
+        this.chain.filter(exchange).block();
+        return exchange;
+    }
+
+    @Benchmark
+    public MockServerWebExchange filter() {
+        var exchange = exchange(nextAddress());
+        this.filter.filter(exchange, this.chain).block();
+        return exchange;
+    }
+
+    @Benchmark
+    public MockServerWebExchange bulkBaseline() {
+        var exchange = bulkExchange(nextAddress());
+        this.bulkChain.filter(exchange).block();
+        return exchange;
+    }
+
+    @Benchmark
+    public MockServerWebExchange chargeRecords() {
+        var exchange = bulkExchange(nextAddress());
+        this.filter.filter(exchange, this.bulkChain).block();
+        return exchange;
+    }
+
+    private InetSocketAddress nextAddress() {
+        return this.addresses[ThreadLocalRandom.current().nextInt(this.clients)];
+    }
+
+    private static MockServerWebExchange exchange(InetSocketAddress address) {
+        return MockServerWebExchange.from(MockServerHttpRequest.get("/v1/movie-infos/TDR").remoteAddress(address));
+    }
+
+    private static MockServerWebExchange bulkExchange(InetSocketAddress address) {
+        return MockServerWebExchange.from(MockServerHttpRequest.post("/v1/movie-infos:bulk").remoteAddress(address));
+    }
+}
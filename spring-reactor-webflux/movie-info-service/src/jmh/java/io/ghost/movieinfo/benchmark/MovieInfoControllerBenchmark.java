@@ -0,0 +1,157 @@
+package io.ghost.movieinfo.benchmark;
+
+import io.ghost.movieinfo.config.MovieInfoProperties;
+import io.ghost.movieinfo.controller.MovieInfoController;
+import io.ghost.movieinfo.domain.MovieInfo;
+import io.ghost.movieinfo.domain.MovieInfoBulkResult;
+import io.ghost.movieinfo.repository.MovieInfoRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * The WebFlux handler path of every MovieInfoController endpoint: routing, argument resolution,
+ * codecs and the service layer, bound in memory to a stub repository that answers immediately.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MovieInfoControllerBenchmark {
+
+    private static final String MOVIE_BASE_URI = "/v1";
+
+    private AnnotationConfigApplicationContext applicationContext;
+
+    private WebTestClient webTestClient;
+
+    private MovieInfo movieInfo;
+
+    private String bulkBody;
+
+    @Setup
+    public void setUp() throws IOException {
+        var movieInfos = MovieInfoFixtures.movieInfos(100, 4);
+        this.movieInfo = movieInfos.get(0);
+
+        var repository = mock(MovieInfoRepository.class, withSettings().stubOnly());
+        when(repository.findAllById(anyIterable())).thenReturn(Flux.fromIterable(movieInfos));
+        when(repository.findPage(any(), any(), anyInt(), any())).thenReturn(Flux.fromIterable(movieInfos));
+        when(repository.save(any(MovieInfo.class))).thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+        when(repository.upsert(any(MovieInfo.class))).thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+        when(repository.deleteById(anyString())).thenReturn(Mono.empty());
+        when(repository.bulkUpsert(anyList())).thenAnswer(invocation -> Mono.just(MovieInfoBulkResult.builder()
+                .accepted(invocation.<List<?>>getArgument(0).size())
+                .failedIds(List.of())
+                .build()));
+
+        this.applicationContext = MovieInfoFixtures.applicationContext(repository, new MovieInfoProperties());
+        this.webTestClient = WebTestClient
+                .bindToController(this.applicationContext.getBean(MovieInfoController.class))
+                .build();
+
+        var writer = MovieInfoFixtures.objectMapper().writer();
+        var ndjson = new StringBuilder();
+        for (MovieInfo each : movieInfos) {
+            ndjson.append(writer.writeValueAsString(each)).append('\n');
+        }
+        this.bulkBody = ndjson.toString();
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.applicationContext.close();
+    }
+
+    @Benchmark
+    public byte[] getMovieInfoById() {
+        return this.webTestClient.get()
+                .uri(MOVIE_BASE_URI + "/movie-infos/MI1")
+                .exchange()
+                .expectBody(byte[].class)
+                .returnResult()
+                .getResponseBody();
+    }
+
+    @Benchmark
+    public byte[] getMovieInfoPage() {
+        return this.webTestClient.get()
+                .uri(MOVIE_BASE_URI + "/movie-infos?limit=50")
+                .exchange()
+                .expectBody(byte[].class)
+                .returnResult()
+                .getResponseBody();
+    }
+
+    @Benchmark
+    public byte[] getMovieInfosByIds() {
+        return this.webTestClient.get()
+                .uri(MOVIE_BASE_URI + "/movie-infos?ids=MI1,MI2,MI3,MI4,MI5")
+                .exchange()
+                .expectBody(byte[].class)
+                .returnResult()
+                .getResponseBody();
+    }
+
+    @Benchmark
+    public byte[] postMovieInfo() {
+        return this.webTestClient.post()
+                .uri(MOVIE_BASE_URI + "/movie-info")
+                .bodyValue(this.movieInfo)
+                .exchange()
+                .expectBody(byte[].class)
+                .returnResult()
+                .getResponseBody();
+    }
+
+    @Benchmark
+    public byte[] bulkPostMovieInfos() {
+        return this.webTestClient.post()
+                .uri(MOVIE_BASE_URI + "/movie-infos:bulk")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .bodyValue(this.bulkBody)
+                .exchange()
+                .expectBody(byte[].class)
+                .returnResult()
+                .getResponseBody();
+    }
+
+    @Benchmark
+    public int deleteMovieInfoById() {
+        return this.webTestClient.delete()
+                .uri(MOVIE_BASE_URI + "/movie-infos/MI99")
+                .exchange()
+                .expectBody()
+                .returnResult()
+                .getStatus()
+                .value();
+    }
+}
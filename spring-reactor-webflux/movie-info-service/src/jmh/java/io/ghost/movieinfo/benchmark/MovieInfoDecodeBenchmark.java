@@ -0,0 +1,116 @@
+package io.ghost.movieinfo.benchmark;
+
+import com.mongodb.MongoClientSettings;
+import io.ghost.movieinfo.domain.MovieInfo;
+import io.ghost.movieinfo.repository.MovieInfoBsonCodec;
+import io.ghost.movieinfo.repository.MovieInfoReadingConverter;
+import io.ghost.movieinfo.validation.CastNamePool;
+import org.bson.BsonBinaryReader;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.DocumentCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One MovieInfo from the BSON bytes of the wire, the way each read path produces it: the reflective
+ * MappingMongoConverter and MovieInfoReadingConverter both after the driver decoded a Document, the
+ * MovieInfoBsonCodec of the export straight from the bytes. Run it with the gc profiler for the bytes
+ * allocated per document (gc.alloc.rate.norm):
+ * mvn -Pbenchmark verify -Djmh.args="-prof gc MovieInfoDecode"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MovieInfoDecodeBenchmark {
+
+    @Param({"2", "20"})
+    private int castCount;
+
+    private final DocumentCodec documentCodec = new DocumentCodec();
+
+    private final DecoderContext decoderContext = DecoderContext.builder().build();
+
+    private MappingMongoConverter mappingConverter;
+
+    private MappingMongoConverter readingConverter;
+
+    private MovieInfoBsonCodec codec;
+
+    private byte[] bson;
+
+    @Setup
+    public void setUp() {
+        var castNamePool = new CastNamePool(100_000);
+        this.mappingConverter = converter(new MongoCustomConversions(List.of()));
+        this.readingConverter = converter(new MongoCustomConversions(
+                List.of(new MovieInfoReadingConverter(castNamePool))));
+        this.codec = new MovieInfoBsonCodec(castNamePool, this.mappingConverter,
+                MongoClientSettings.getDefaultCodecRegistry());
+
+        var movieInfo = MovieInfoFixtures.movieInfo("TDR", this.castCount);
+        movieInfo.setVersion(3L);
+        movieInfo.setLastModified(Instant.parse("2022-07-01T10:15:30Z"));
+        var document = new Document();
+        this.mappingConverter.write(movieInfo, document);
+        var raw = new RawBsonDocument(document, this.documentCodec);
+        this.bson = new byte[raw.getByteBuffer().remaining()];
+        raw.getByteBuffer().get(this.bson);
+    }
+
+    @Benchmark
+    public MovieInfo mappingConverter() {
+        return this.mappingConverter.read(MovieInfo.class, document());
+    }
+
+    @Benchmark
+    public MovieInfo readingConverter() {
+        return this.readingConverter.read(MovieInfo.class, document());
+    }
+
+    @Benchmark
+    public MovieInfo codec() {
+        try (var reader = new BsonBinaryReader(ByteBuffer.wrap(this.bson))) {
+            return this.codec.decode(reader, this.decoderContext);
+        }
+    }
+
+    private Document document() {
+        try (var reader = new BsonBinaryReader(ByteBuffer.wrap(this.bson))) {
+            return this.documentCodec.decode(reader, this.decoderContext);
+        }
+    }
+
+    // What Spring Boot configures, minus the database: no DBRefs are resolved for MovieInfo
+    private static MappingMongoConverter converter(MongoCustomConversions conversions) {
+        var mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        mappingContext.afterPropertiesSet();
+        var converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+        return converter;
+    }
+}
@@ -0,0 +1,89 @@
+package io.ghost.movieinfo.benchmark;
+
+import io.ghost.movieinfo.codec.MovieInfoStreamingEncoder;
+import io.ghost.movieinfo.config.MovieInfoProperties;
+import io.ghost.movieinfo.domain.MovieInfo;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.Encoder;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding a Flux of MovieInfo into pooled Netty buffers, as the server does for a large response:
+ * the default Jackson2JsonEncoder against MovieInfoStreamingEncoder. Compare allocation rates with
+ * -Djmh.args="-prof gc MovieInfoEncoder".
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MovieInfoEncoderBenchmark {
+
+    private static final ResolvableType MOVIE_INFO_TYPE = ResolvableType.forClass(MovieInfo.class);
+
+    @Param({"1000"})
+    private int count;
+
+    @Param({"application/x-ndjson", "application/json"})
+    private String mediaType;
+
+    private final NettyDataBufferFactory bufferFactory = new NettyDataBufferFactory(PooledByteBufAllocator.DEFAULT);
+
+    private Jackson2JsonEncoder jacksonEncoder;
+
+    private MovieInfoStreamingEncoder streamingEncoder;
+
+    private List<MovieInfo> movieInfos;
+
+    @Setup
+    public void setUp() {
+        var objectMapper = MovieInfoFixtures.objectMapper();
+        this.jacksonEncoder = new Jackson2JsonEncoder(objectMapper);
+        this.streamingEncoder = MovieInfoStreamingEncoder.json(objectMapper, new MovieInfoProperties());
+        this.movieInfos = MovieInfoFixtures.movieInfos(this.count, 5);
+    }
+
+    @Benchmark
+    public long jackson() {
+        return encode(this.jacksonEncoder);
+    }
+
+    @Benchmark
+    public long streaming() {
+        return encode(this.streamingEncoder);
+    }
+
+    // Bytes written, with every buffer released again so the pool is reused between invocations
+    private long encode(Encoder<Object> encoder) {
+        return encoder.encode(Flux.fromIterable(this.movieInfos), this.bufferFactory, MOVIE_INFO_TYPE,
+                        MediaType.parseMediaType(this.mediaType), Map.of())
+                .map(buffer -> {
+                    int size = buffer.readableByteCount();
+                    DataBufferUtils.release(buffer);
+                    return (long) size;
+                })
+                .reduce(0L, Long::sum)
+                .block();
+    }
+}
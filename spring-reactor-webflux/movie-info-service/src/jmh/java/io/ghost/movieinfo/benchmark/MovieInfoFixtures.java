@@ -0,0 +1,96 @@
+package io.ghost.movieinfo.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.ghost.movieinfo.cache.MovieInfoBatchLoader;
+import io.ghost.movieinfo.cache.MovieInfoCache;
+import io.ghost.movieinfo.cache.MovieInfoInvalidationBus;
+import io.ghost.movieinfo.cache.MovieInfoStatsCache;
+import io.ghost.movieinfo.cache.SharedMovieInfoCache;
+import io.ghost.movieinfo.config.MovieInfoProperties;
+import io.ghost.movieinfo.controller.MovieInfoController;
+import io.ghost.movieinfo.domain.MovieInfo;
+import io.ghost.movieinfo.repository.MovieInfoRepository;
+import io.ghost.movieinfo.resilience.MovieInfoResilience;
+import io.ghost.movieinfo.scheduling.MovieInfoSchedulers;
+import io.ghost.movieinfo.service.MovieInfoChangeStream;
+import io.ghost.movieinfo.service.MovieInfoService;
+import io.ghost.movieinfo.service.MovieInfoWriteBehind;
+import io.ghost.movieinfo.validation.CastNamePool;
+import io.ghost.movieinfo.validation.MovieInfoValidator;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Shared test data and application objects for the benchmarks, so they measure the production code
+ * path without the whole application or a database behind it.
+ */
+final class MovieInfoFixtures {
+
+    private MovieInfoFixtures() {
+    }
+
+    static ObjectMapper objectMapper() {
+        return objectMapperBuilder().build();
+    }
+
+    // Same settings Spring Boot applies to the ObjectMapper used by WebFlux
+    static Jackson2ObjectMapperBuilder objectMapperBuilder() {
+        return Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    }
+
+    static MovieInfo movieInfo(String movieInfoId, int castCount) {
+        var casts = new ArrayList<String>(castCount);
+        for (int i = 0; i < castCount; i++) {
+            casts.add("Cast Member " + i);
+        }
+        return MovieInfo.builder()
+                .movieInfoId(movieInfoId).name("The Dark Knight Rises")
+                .releaseDate(LocalDate.parse("2012-07-20")).casts(casts)
+                .year(2012).build();
+    }
+
+    static List<MovieInfo> movieInfos(int count, int castCount) {
+        var movieInfos = new ArrayList<MovieInfo>(count);
+        for (int i = 0; i < count; i++) {
+            movieInfos.add(movieInfo("MI" + i, castCount));
+        }
+        return movieInfos;
+    }
+
+    /**
+     * The controller, the service and their collaborators in a Spring context of their own, on top of the
+     * given (stub) repository. Dependencies are resolved the way the application resolves them, so one
+     * added to a component fails the refresh here instead of being left null. No change stream is opened.
+     */
+    static AnnotationConfigApplicationContext applicationContext(MovieInfoRepository movieInfoRepository,
+                                                                 MovieInfoProperties properties) {
+        var context = new AnnotationConfigApplicationContext();
+        context.registerBean(MovieInfoRepository.class, () -> movieInfoRepository);
+        context.registerBean(MovieInfoProperties.class, () -> properties);
+        context.registerBean(CastNamePool.class,
+                () -> new CastNamePool(properties.getValidation().getCastNamePoolSize()));
+        context.registerBean(MovieInfoChangeStream.class,
+                () -> mock(MovieInfoChangeStream.class, withSettings().stubOnly()));
+        context.registerBean(ObjectMapper.class, MovieInfoFixtures::objectMapper);
+        context.registerBean(MeterRegistry.class, SimpleMeterRegistry::new);
+        context.registerBean(SharedMovieInfoCache.class, () -> SharedMovieInfoCache.NONE);
+        context.registerBean(MovieInfoInvalidationBus.class, () -> MovieInfoInvalidationBus.NONE);
+        // Write-behind starts with the context when the properties turn it on
+        context.register(MovieInfoSchedulers.class, MovieInfoBatchLoader.class, MovieInfoCache.class,
+                MovieInfoStatsCache.class, MovieInfoValidator.class, MovieInfoResilience.class,
+                MovieInfoWriteBehind.class, MovieInfoService.class, MovieInfoController.class);
+        context.refresh();
+        return context;
+    }
+}
@@ -0,0 +1,87 @@
+package io.ghost.movieinfo.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import io.ghost.movieinfo.codec.MovieInfoProtobuf;
+import io.ghost.movieinfo.domain.MovieInfo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encode / decode cost of one MovieInfo in each negotiated wire format, with the mappers configured as in
+ * CodecConfig.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MovieInfoFormatBenchmark {
+
+    @Param({"json", "smile", "cbor", "protobuf"})
+    private String format;
+
+    @Param({"2", "20"})
+    private int castCount;
+
+    private ObjectWriter writer;
+
+    private ObjectReader reader;
+
+    private MovieInfo movieInfo;
+
+    private byte[] payload;
+
+    @Setup
+    public void setUp() throws IOException {
+        switch (this.format) {
+            case "smile":
+                useMapper(new SmileMapper());
+                break;
+            case "cbor":
+                useMapper(new CBORMapper());
+                break;
+            case "protobuf":
+                var protobuf = new MovieInfoProtobuf(MovieInfoFixtures.objectMapperBuilder());
+                this.writer = protobuf.getWriters().get(MovieInfo.class);
+                this.reader = protobuf.readerFor(MovieInfo.class);
+                break;
+            default:
+                useMapper(new ObjectMapper());
+        }
+        this.movieInfo = MovieInfoFixtures.movieInfo("62b3c5a0e4b0a1a2b3c4d5e6", this.castCount);
+        this.payload = this.writer.writeValueAsBytes(this.movieInfo);
+    }
+
+    private void useMapper(ObjectMapper objectMapper) {
+        MovieInfoFixtures.objectMapperBuilder().configure(objectMapper);
+        this.writer = objectMapper.writerFor(MovieInfo.class);
+        this.reader = objectMapper.readerFor(MovieInfo.class);
+    }
+
+    @Benchmark
+    public byte[] encode() throws IOException {
+        return this.writer.writeValueAsBytes(this.movieInfo);
+    }
+
+    @Benchmark
+    public MovieInfo decode() throws IOException {
+        return this.reader.readValue(this.payload);
+    }
+}
@@ -0,0 +1,61 @@
+package io.ghost.movieinfo.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.ghost.movieinfo.domain.MovieInfo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson (de)serialization of a single MovieInfo, including the LocalDate and the casts list.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MovieInfoJsonBenchmark {
+
+    @Param({"2", "20"})
+    private int castCount;
+
+    private ObjectWriter writer;
+
+    private ObjectReader reader;
+
+    private MovieInfo movieInfo;
+
+    private byte[] json;
+
+    @Setup
+    public void setUp() throws IOException {
+        var objectMapper = MovieInfoFixtures.objectMapper();
+        this.writer = objectMapper.writerFor(MovieInfo.class);
+        this.reader = objectMapper.readerFor(MovieInfo.class);
+        this.movieInfo = MovieInfoFixtures.movieInfo("TDR", this.castCount);
+        this.json = this.writer.writeValueAsBytes(this.movieInfo);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return this.writer.writeValueAsBytes(this.movieInfo);
+    }
+
+    @Benchmark
+    public MovieInfo deserialize() throws IOException {
+        return this.reader.readValue(this.json);
+    }
+}
@@ -0,0 +1,83 @@
+package io.ghost.movieinfo.benchmark;
+
+import io.ghost.movieinfo.MovieInfoServiceApplication;
+import io.ghost.movieinfo.domain.MovieInfo;
+import io.ghost.movieinfo.domain.MovieInfoBulkResult;
+import io.ghost.movieinfo.domain.MovieInfoSort;
+import io.ghost.movieinfo.repository.MovieInfoRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Repository throughput against the flapdoodle embedded MongoDB the integration tests use.
+ * Absolute numbers depend on the embedded server; the point is to catch regressions in our query shapes.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class MovieInfoRepositoryBenchmark {
+
+    private ConfigurableApplicationContext applicationContext;
+
+    private MovieInfoRepository movieInfoRepository;
+
+    private List<MovieInfo> batch;
+
+    @Setup
+    public void setUp() {
+        this.applicationContext = new SpringApplicationBuilder(MovieInfoServiceApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties("spring.mongodb.embedded.version=3.5.5")
+                .run();
+        this.movieInfoRepository = this.applicationContext.getBean(MovieInfoRepository.class);
+        this.movieInfoRepository.deleteAll().block();
+        this.movieInfoRepository.saveAll(MovieInfoFixtures.movieInfos(1_000, 4)).blockLast();
+        this.batch = MovieInfoFixtures.movieInfos(100, 4);
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.applicationContext.close();
+    }
+
+    @Benchmark
+    public MovieInfo findById() {
+        return this.movieInfoRepository.findById("MI500").block();
+    }
+
+    @Benchmark
+    public List<MovieInfo> findPage() {
+        return this.movieInfoRepository.findPage(MovieInfoSort.YEAR, null, 100, null).collectList().block();
+    }
+
+    // Documents are versioned, so saving an unversioned copy of an existing id would be a duplicate insert
+    @Benchmark
+    public MovieInfo insert() {
+        return this.movieInfoRepository.save(MovieInfoFixtures.movieInfo(null, 4)).block();
+    }
+
+    @Benchmark
+    public MovieInfoBulkResult bulkUpsert() {
+        return this.movieInfoRepository.bulkUpsert(this.batch).block();
+    }
+}
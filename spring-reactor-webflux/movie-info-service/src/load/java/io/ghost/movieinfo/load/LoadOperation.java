@@ -0,0 +1,35 @@
+package io.ghost.movieinfo.load;
+
+/**
+ * The request kinds the arrival schedule mixes; stream subscribers are held open next to them.
+ */
+enum LoadOperation {
+
+    GET_BY_ID("get-by-id"),
+    LIST("list"),
+    BULK("bulk");
+
+    private final String key;
+
+    LoadOperation(String key) {
+        this.key = key;
+    }
+
+    String key() {
+        return this.key;
+    }
+
+    static LoadOperation of(String key) {
+        for (LoadOperation operation : values()) {
+            if (operation.key.equals(key)) {
+                return operation;
+            }
+        }
+        throw new IllegalArgumentException("Unknown load operation '" + key + "', expected get-by-id, list or bulk");
+    }
+
+    @Override
+    public String toString() {
+        return this.key;
+    }
+}
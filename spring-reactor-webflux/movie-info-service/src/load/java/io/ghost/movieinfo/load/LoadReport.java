@@ -0,0 +1,112 @@
+package io.ghost.movieinfo.load;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collection;
+
+/**
+ * Summary of a run: load-report.txt with the percentiles of every operation, plus one .hgrm percentile
+ * distribution per operation (in milliseconds) that HdrHistogram's plotter reads directly. The per interval
+ * .hlog files are written while the run goes on.
+ */
+class LoadReport {
+
+    private static final double MICROS_PER_MILLI = 1000.0;
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9, 99.99};
+
+    private final LoadSettings settings;
+
+    private final String baseUrl;
+
+    private final double measuredSeconds;
+
+    LoadReport(LoadSettings settings, String baseUrl, double measuredSeconds) {
+        this.settings = settings;
+        this.baseUrl = baseUrl;
+        this.measuredSeconds = measuredSeconds;
+    }
+
+    static String intervalLine(LoadStats stats) {
+        var histogram = stats.getCorrectedInterval();
+        return String.format("%-14s %8d req  p50 %9.2f  p99 %9.2f  max %9.2f ms  %d errors", stats.getName(),
+                histogram.getTotalCount(), millis(histogram.getValueAtPercentile(50)),
+                millis(histogram.getValueAtPercentile(99)), millis(histogram.getMaxValue()), stats.getIntervalErrors());
+    }
+
+    /**
+     * Writes the report files and returns the text of load-report.txt.
+     */
+    String write(Collection<LoadStats> operations, LoadStats streamConnect, long streamEvents, long streamDisconnects)
+            throws IOException {
+        var text = new StringBuilder();
+        text.append("movie-info-service load report\n")
+                .append("target: ").append(this.baseUrl).append('\n')
+                .append("settings: ").append(this.settings).append('\n')
+                .append(String.format("measured: %.0f s after %s of warmup%n%n", this.measuredSeconds,
+                        this.settings.warmup));
+
+        text.append("Latency in ms, measured from the intended start of each request (corrected for coordinated"
+                + " omission).\n'sent p99' is measured from the moment it was actually sent.\n\n");
+        text.append(String.format("%-14s %10s %10s %8s", "operation", "requests", "req/s", "errors"));
+        for (double percentile : PERCENTILES) {
+            text.append(String.format(" %9s", "p" + format(percentile)));
+        }
+        text.append(String.format(" %9s %9s%n", "max", "sent p99"));
+        long requests = 0;
+        long errors = 0;
+        for (LoadStats stats : operations) {
+            var histogram = stats.getCorrectedTotal();
+            requests += histogram.getTotalCount();
+            errors += stats.getMeasuredErrors();
+            text.append(String.format("%-14s %10d %10.1f %8d", stats.getName(), histogram.getTotalCount(),
+                    histogram.getTotalCount() / this.measuredSeconds, stats.getMeasuredErrors()));
+            for (double percentile : PERCENTILES) {
+                text.append(String.format(" %9.2f", millis(histogram.getValueAtPercentile(percentile))));
+            }
+            text.append(String.format(" %9.2f %9.2f%n", millis(histogram.getMaxValue()),
+                    millis(stats.getUncorrectedTotal().getValueAtPercentile(99))));
+            writeDistribution(stats.getName(), histogram);
+        }
+        text.append(String.format("%-14s %10d %10.1f %8d  (error rate %.4f%%)%n%n", "total", requests,
+                requests / this.measuredSeconds, errors, 100.0 * errorRate(requests, errors)));
+
+        text.append("Outcomes (HTTP status or exception; '-partial' bulk results had failed or invalid records)\n");
+        for (LoadStats stats : operations) {
+            text.append(String.format("%-14s %s%n", stats.getName(), stats.getOutcomes()));
+        }
+
+        var connect = streamConnect.getCorrectedTotal();
+        text.append(String.format("%nStream subscribers: %d, connects %d (p99 %.2f ms, max %.2f ms), outcomes %s,"
+                        + " %d events received, %d disconnects%n", this.settings.streamSubscribers,
+                connect.getTotalCount(), millis(connect.getValueAtPercentile(99)), millis(connect.getMaxValue()),
+                streamConnect.getOutcomes(), streamEvents, streamDisconnects));
+
+        var report = text.toString();
+        Files.writeString(this.settings.reportDirectory.resolve("load-report.txt"), report);
+        return report;
+    }
+
+    static double errorRate(long requests, long errors) {
+        return requests == 0 ? 0 : (double) errors / requests;
+    }
+
+    private void writeDistribution(String name, Histogram histogram) throws IOException {
+        var file = this.settings.reportDirectory.resolve(name + ".hgrm");
+        try (var out = new PrintStream(Files.newOutputStream(file), false, StandardCharsets.UTF_8)) {
+            histogram.outputPercentileDistribution(out, MICROS_PER_MILLI);
+        }
+    }
+
+    private static double millis(long micros) {
+        return micros / MICROS_PER_MILLI;
+    }
+
+    private static String format(double percentile) {
+        return percentile == Math.rint(percentile) ? String.valueOf((long) percentile) : String.valueOf(percentile);
+    }
+}
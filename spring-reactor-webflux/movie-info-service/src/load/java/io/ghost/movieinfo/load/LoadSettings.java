@@ -0,0 +1,80 @@
+package io.ghost.movieinfo.load;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Settings of a load run, read from load.* system properties (see the load profile in the pom).
+ */
+class LoadSettings {
+
+    // Target an already running instance; empty boots the application in this JVM against embedded Mongo
+    final String baseUrl = System.getProperty("load.base-url", "");
+
+    final Duration duration = duration("load.duration", "5m");
+
+    // Requests of the warmup are sent and counted but left out of the report
+    final Duration warmup = duration("load.warmup", "30s");
+
+    // Arrivals per second over all operations, independent of how fast the server answers
+    final double rate = Double.parseDouble(System.getProperty("load.rate", "200"));
+
+    final Map<LoadOperation, Integer> mix = mix(System.getProperty("load.mix", "get-by-id=80,list=15,bulk=5"));
+
+    final int streamSubscribers = Integer.getInteger("load.stream-subscribers", 20);
+
+    final int seed = Integer.getInteger("load.seed", 2_000);
+
+    final int bulkSize = Integer.getInteger("load.bulk-size", 50);
+
+    final int maxConnections = Integer.getInteger("load.max-connections", 500);
+
+    final Duration requestTimeout = duration("load.request-timeout", "30s");
+
+    final Duration reportInterval = duration("load.report-interval", "30s");
+
+    final Path reportDirectory = Path.of(System.getProperty("load.report-directory", "target/load"));
+
+    // The run fails (exit code 1) when more than this share of the measured requests fail
+    final double maxErrorRate = Double.parseDouble(System.getProperty("load.max-error-rate", "0.01"));
+
+    private static Duration duration(String name, String defaultValue) {
+        return DurationStyle.detectAndParse(System.getProperty(name, defaultValue));
+    }
+
+    private static Map<LoadOperation, Integer> mix(String value) {
+        var mix = new EnumMap<LoadOperation, Integer>(LoadOperation.class);
+        for (String entry : value.split(",")) {
+            var parts = entry.trim().split("=");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("load.mix entries are operation=weight, got '" + entry + "'");
+            }
+            int weight = Integer.parseInt(parts[1].trim());
+            if (weight > 0) {
+                mix.put(LoadOperation.of(parts[0].trim()), weight);
+            }
+        }
+        if (mix.isEmpty()) {
+            throw new IllegalArgumentException("load.mix has no operation with a positive weight");
+        }
+        return mix;
+    }
+
+    @Override
+    public String toString() {
+        return "base-url=" + (this.baseUrl.isEmpty() ? "(embedded)" : this.baseUrl)
+                + ", duration=" + this.duration
+                + ", warmup=" + this.warmup
+                + ", rate=" + this.rate + "/s"
+                + ", mix=" + this.mix
+                + ", stream-subscribers=" + this.streamSubscribers
+                + ", seed=" + this.seed
+                + ", bulk-size=" + this.bulkSize
+                + ", max-connections=" + this.maxConnections
+                + ", request-timeout=" + this.requestTimeout;
+    }
+}
@@ -0,0 +1,126 @@
+package io.ghost.movieinfo.load;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogWriter;
+import org.HdrHistogram.Recorder;
+
+import java.io.FileNotFoundException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencies and outcomes of one kind of request, in microseconds.
+ * <p>
+ * Two distributions are kept. The corrected one measures from the moment the schedule wanted the request
+ * sent, so a stalled server is charged for every request it delayed (coordinated omission). The uncorrected
+ * one measures from the moment it was actually sent; the gap between them shows how far behind the client
+ * fell. Recording is lock free; interval histograms are drained by the single reporter thread, which adds
+ * them to the totals once the warmup is over and logs them for the soak graphs.
+ */
+class LoadStats {
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(10);
+
+    private final String name;
+
+    private final Recorder corrected = new Recorder(HIGHEST_TRACKABLE_MICROS, 3);
+
+    private final Recorder uncorrected = new Recorder(HIGHEST_TRACKABLE_MICROS, 3);
+
+    private final Histogram correctedTotal = new Histogram(HIGHEST_TRACKABLE_MICROS, 3);
+
+    private final Histogram uncorrectedTotal = new Histogram(HIGHEST_TRACKABLE_MICROS, 3);
+
+    private final Map<String, LongAdder> outcomes = new ConcurrentHashMap<>();
+
+    private final LongAdder intervalErrors = new LongAdder();
+
+    private final HistogramLogWriter log;
+
+    private long measuredErrors;
+
+    private long lastIntervalErrors;
+
+    private Histogram correctedInterval;
+
+    private Histogram uncorrectedInterval;
+
+    LoadStats(String name, Path reportDirectory, long startMillis) throws FileNotFoundException {
+        this.name = name;
+        this.log = new HistogramLogWriter(reportDirectory.resolve(name + ".hlog").toFile());
+        this.log.outputLogFormatVersion();
+        this.log.outputStartTime(startMillis);
+        this.log.setBaseTime(startMillis);
+        this.log.outputLegend();
+    }
+
+    String getName() {
+        return this.name;
+    }
+
+    /**
+     * @param outcome the HTTP status, or the simple name of the exception the request failed with
+     */
+    void record(long intendedStartNanos, long sentNanos, long endNanos, String outcome, boolean error) {
+        this.corrected.recordValue(micros(endNanos - intendedStartNanos));
+        this.uncorrected.recordValue(micros(endNanos - sentNanos));
+        this.outcomes.computeIfAbsent(outcome, ignored -> new LongAdder()).increment();
+        if (error) {
+            this.intervalErrors.increment();
+        }
+    }
+
+    /**
+     * Takes what was recorded since the last call; it only counts towards the totals when {@code measured}.
+     */
+    void drain(boolean measured) {
+        this.correctedInterval = this.corrected.getIntervalHistogram(this.correctedInterval);
+        this.uncorrectedInterval = this.uncorrected.getIntervalHistogram(this.uncorrectedInterval);
+        this.lastIntervalErrors = this.intervalErrors.sumThenReset();
+        if (measured) {
+            this.correctedTotal.add(this.correctedInterval);
+            this.uncorrectedTotal.add(this.uncorrectedInterval);
+            this.measuredErrors += this.lastIntervalErrors;
+            this.log.outputIntervalHistogram(this.correctedInterval);
+        }
+    }
+
+    Histogram getCorrectedInterval() {
+        return this.correctedInterval;
+    }
+
+    long getIntervalErrors() {
+        return this.lastIntervalErrors;
+    }
+
+    Histogram getCorrectedTotal() {
+        return this.correctedTotal;
+    }
+
+    Histogram getUncorrectedTotal() {
+        return this.uncorrectedTotal;
+    }
+
+    long getMeasuredErrors() {
+        return this.measuredErrors;
+    }
+
+
+    Map<String, Long> getOutcomes() {
+        var outcomes = new TreeMap<String, Long>();
+        this.outcomes.forEach((outcome, count) -> outcomes.put(outcome, count.sum()));
+        return outcomes;
+    }
+
+    void close() {
+        this.log.close();
+    }
+
+    private static long micros(long nanos) {
+        return Math.min(Math.max(TimeUnit.NANOSECONDS.toMicros(nanos), 1), HIGHEST_TRACKABLE_MICROS);
+    }
+}
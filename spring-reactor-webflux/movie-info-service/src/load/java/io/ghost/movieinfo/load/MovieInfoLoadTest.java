@@ -0,0 +1,390 @@
+package io.ghost.movieinfo.load;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.ghost.movieinfo.MovieInfoServiceApplication;
+import io.ghost.movieinfo.domain.MovieInfo;
+import io.ghost.movieinfo.domain.MovieInfoBulkResult;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Mono;
+import reactor.netty.ByteBufFlux;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.netty.resources.LoopResources;
+
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives the HTTP endpoints with a mix of get-by-id, list and bulk requests at a fixed arrival rate, while a
+ * number of stream subscribers stay connected, and reports the latency distributions. Run it with
+ * mvn -Pload verify; see the load profile in the pom for the settings.
+ * <p>
+ * The arrival schedule is open: request n is due at start + n / rate whether or not earlier ones have been
+ * answered, and its latency counts from that moment. A server that stalls is therefore charged for the
+ * requests queued behind the stall, as production traffic would be, instead of the client politely waiting
+ * (coordinated omission).
+ * <p>
+ * Without load.base-url the application is started in this JVM against embedded Mongo, which is convenient
+ * for comparing builds but shares the CPU with the client; point it at a separately started instance for
+ * numbers worth quoting. The embedded Mongo is no replica set, so stream subscribers connect but receive no
+ * change events there.
+ */
+@Slf4j
+public class MovieInfoLoadTest {
+
+    private static final String ID_PREFIX = "LD";
+
+    private static final int PAGE_SIZE = 20;
+
+    private static final int SEED_BATCH_SIZE = 500;
+
+    private static final Duration RECONNECT_DELAY = Duration.ofSeconds(1);
+
+    private static final List<String> CASTS = List.of("Christian Bale", "Michael Caine", "Heath Ledger",
+            "Tabu", "Ajay Devgn", "Hugh Jackman", "Scarlett Johansson", "Tom Hardy", "Anne Hathaway",
+            "Gary Oldman", "Cillian Murphy", "Morgan Freeman");
+
+    private final LoadSettings settings;
+
+    private final String baseUrl;
+
+    private final LoopResources loopResources = LoopResources.create("load-client", 2, true);
+
+    private final ConnectionProvider connectionProvider;
+
+    private final HttpClient client;
+
+    private final HttpClient bulkClient;
+
+    private final HttpClient streamClient;
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    // Weighted lookup table over the mix, picked from uniformly
+    private final LoadOperation[] schedule;
+
+    private final Map<LoadOperation, LoadStats> stats = new EnumMap<>(LoadOperation.class);
+
+    private LoadStats streamConnect;
+
+    private final LongAdder streamEvents = new LongAdder();
+
+    private final LongAdder streamDisconnects = new LongAdder();
+
+    private final LongAdder inFlight = new LongAdder();
+
+    private volatile boolean running = true;
+
+    MovieInfoLoadTest(LoadSettings settings, String baseUrl) {
+        this.settings = settings;
+        this.baseUrl = baseUrl;
+        this.connectionProvider = ConnectionProvider.builder("load-client")
+                .maxConnections(settings.maxConnections)
+                // Requests queue for a connection rather than fail; the queueing shows up as latency
+                .pendingAcquireMaxCount(-1)
+                .pendingAcquireTimeout(settings.requestTimeout)
+                .build();
+        this.client = HttpClient.create(this.connectionProvider)
+                .runOn(this.loopResources)
+                .baseUrl(baseUrl)
+                .headers(headers -> headers.set(HttpHeaderNames.ACCEPT, MediaType.APPLICATION_JSON_VALUE));
+        this.bulkClient = this.client.headers(headers -> headers
+                .set(HttpHeaderNames.CONTENT_TYPE, MediaType.APPLICATION_NDJSON_VALUE)
+                .set(HttpHeaderNames.ACCEPT, MediaType.APPLICATION_NDJSON_VALUE));
+        // Subscribers hold their connection for the whole run, keep them out of the request pool
+        this.streamClient = HttpClient.newConnection()
+                .runOn(this.loopResources)
+                .baseUrl(baseUrl)
+                .headers(headers -> headers.set(HttpHeaderNames.ACCEPT, MediaType.APPLICATION_NDJSON_VALUE));
+
+        var schedule = new ArrayList<LoadOperation>();
+        settings.mix.forEach((operation, weight) -> {
+            for (int i = 0; i < weight; i++) {
+                schedule.add(operation);
+            }
+        });
+        this.schedule = schedule.toArray(new LoadOperation[0]);
+    }
+
+    public static void main(String[] args) throws Exception {
+        var settings = new LoadSettings();
+        if (settings.duration.compareTo(settings.warmup) <= 0) {
+            throw new IllegalArgumentException("load.duration must be longer than load.warmup");
+        }
+        Files.createDirectories(settings.reportDirectory);
+
+        ConfigurableApplicationContext application = null;
+        var baseUrl = settings.baseUrl;
+        if (baseUrl.isEmpty()) {
+            application = new SpringApplicationBuilder(MovieInfoServiceApplication.class)
+                    .properties("server.port=0", "spring.rsocket.server.port=0",
+                            "spring.mongodb.embedded.version=3.5.5")
+                    .run(args);
+            baseUrl = "http://localhost:" + ((WebServerApplicationContext) application).getWebServer().getPort();
+        }
+        int exitCode;
+        try {
+            exitCode = new MovieInfoLoadTest(settings, baseUrl).run();
+        } finally {
+            if (application != null) {
+                application.close();
+            }
+        }
+        System.exit(exitCode);
+    }
+
+    int run() throws Exception {
+        log.info("Load run against {}: {}", this.baseUrl, this.settings);
+        seed();
+
+        long startMillis = System.currentTimeMillis();
+        for (LoadOperation operation : this.settings.mix.keySet()) {
+            this.stats.put(operation, new LoadStats(operation.key(), this.settings.reportDirectory, startMillis));
+        }
+        this.streamConnect = new LoadStats("stream-connect", this.settings.reportDirectory, startMillis);
+
+        var subscribers = Disposables.composite();
+        for (int i = 0; i < this.settings.streamSubscribers; i++) {
+            subscribers.add(subscribeToStream());
+        }
+
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            var thread = new Thread(runnable, "load-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long warmupMillis = this.settings.warmup.toMillis();
+        long intervalMillis = this.settings.reportInterval.toMillis();
+        reporter.schedule(() -> drain(false), warmupMillis, TimeUnit.MILLISECONDS);
+        reporter.scheduleAtFixedRate(() -> drain(true), warmupMillis + intervalMillis, intervalMillis,
+                TimeUnit.MILLISECONDS);
+
+        long start = System.nanoTime();
+        arrivals(start);
+        awaitInFlight();
+        double measuredSeconds = (System.nanoTime() - start) / 1e9 - this.settings.warmup.toSeconds();
+
+        this.running = false;
+        reporter.shutdown();
+        reporter.awaitTermination(intervalMillis, TimeUnit.MILLISECONDS);
+        drain(true);
+        subscribers.dispose();
+
+        var report = new LoadReport(this.settings, this.baseUrl, measuredSeconds)
+                .write(this.stats.values(), this.streamConnect, this.streamEvents.sum(), this.streamDisconnects.sum());
+        this.stats.values().forEach(LoadStats::close);
+        this.streamConnect.close();
+        this.connectionProvider.dispose();
+        this.loopResources.dispose();
+        log.info("Report written to {}\n{}", this.settings.reportDirectory.toAbsolutePath(), report);
+
+        long requests = this.stats.values().stream()
+                .mapToLong(stats -> stats.getCorrectedTotal().getTotalCount())
+                .sum();
+        long errors = this.stats.values().stream().mapToLong(LoadStats::getMeasuredErrors).sum();
+        if (LoadReport.errorRate(requests, errors) > this.settings.maxErrorRate) {
+            log.error("Error rate {} is above load.max-error-rate {}", LoadReport.errorRate(requests, errors),
+                    this.settings.maxErrorRate);
+            return 1;
+        }
+        return 0;
+    }
+
+    // Requests are fired at their due time; when the loop falls behind it fires the overdue ones immediately
+    // and they keep their original due time
+    private void arrivals(long start) {
+        long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / this.settings.rate);
+        long end = start + this.settings.duration.toNanos();
+        long due = start;
+        while (due < end) {
+            long delay = due - System.nanoTime();
+            if (delay > 0) {
+                LockSupport.parkNanos(delay);
+                continue;
+            }
+            send(this.schedule[ThreadLocalRandom.current().nextInt(this.schedule.length)], due);
+            due += intervalNanos;
+        }
+    }
+
+    private void send(LoadOperation operation, long dueNanos) {
+        this.inFlight.increment();
+        long sentNanos = System.nanoTime();
+        request(operation)
+                .timeout(this.settings.requestTimeout)
+                .onErrorResume(e -> Mono.just(e.getClass().getSimpleName()))
+                .doFinally(signal -> this.inFlight.decrement())
+                .subscribe(outcome -> this.stats.get(operation)
+                        .record(dueNanos, sentNanos, System.nanoTime(), outcome, isError(outcome)));
+    }
+
+    private Mono<String> request(LoadOperation operation) {
+        var random = ThreadLocalRandom.current();
+        switch (operation) {
+            case GET_BY_ID:
+                var id = ID_PREFIX + random.nextInt(this.settings.seed);
+                return status(this.client.get().uri("/v1/movie-infos/" + id));
+            case LIST:
+                return status(this.client.get().uri("/v1/movie-infos?limit=" + PAGE_SIZE));
+            case BULK:
+                // A run of consecutive ids over twice the seed, so bulks both insert and update
+                int ids = 2 * this.settings.seed;
+                int first = random.nextInt(ids);
+                var movieInfos = new ArrayList<MovieInfo>(this.settings.bulkSize);
+                for (int i = 0; i < Math.min(this.settings.bulkSize, ids); i++) {
+                    movieInfos.add(movieInfo((first + i) % ids));
+                }
+                return bulk(movieInfos);
+            default:
+                throw new IllegalStateException("Unknown load operation " + operation);
+        }
+    }
+
+    private Mono<String> status(HttpClient.ResponseReceiver<?> request) {
+        return request.response((response, body) -> body.then(Mono.just(String.valueOf(response.status().code()))))
+                .next();
+    }
+
+    private Mono<String> bulk(List<MovieInfo> movieInfos) {
+        return Mono.fromCallable(() -> ndjson(movieInfos))
+                .flatMap(body -> this.bulkClient.post()
+                        .uri("/v1/movie-infos:bulk")
+                        .send(ByteBufFlux.fromString(Mono.just(body)))
+                        .responseSingle((response, content) -> content.asString()
+                                .defaultIfEmpty("")
+                                .map(results -> bulkOutcome(response.status().code(), results))));
+    }
+
+    private String bulkOutcome(int status, String results) {
+        if (status != 200) {
+            return String.valueOf(status);
+        }
+        try {
+            for (String line : results.split("\n")) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                var result = this.objectMapper.readValue(line, MovieInfoBulkResult.class);
+                if (result.getFailed() > 0 || result.getInvalid() > 0) {
+                    return status + "-partial";
+                }
+            }
+            return String.valueOf(status);
+        } catch (JsonProcessingException e) {
+            return status + "-unreadable";
+        }
+    }
+
+    private Disposable subscribeToStream() {
+        return Mono.defer(() -> {
+                    long sentNanos = System.nanoTime();
+                    return this.streamClient.get()
+                            .uri("/v1/movie-infos/stream")
+                            .response((response, body) -> {
+                                var outcome = String.valueOf(response.status().code());
+                                this.streamConnect.record(sentNanos, sentNanos, System.nanoTime(), outcome,
+                                        isError(outcome));
+                                return body.asString().doOnNext(chunk -> this.streamEvents.add(lines(chunk)));
+                            })
+                            .then();
+                })
+                .onErrorResume(e -> Mono.empty())
+                .then(Mono.defer(() -> {
+                    this.streamDisconnects.increment();
+                    return Mono.delay(RECONNECT_DELAY).then();
+                }))
+                .repeat(() -> this.running)
+                .subscribe();
+    }
+
+    private void seed() {
+        log.info("Seeding {} movie infos", this.settings.seed);
+        for (int from = 0; from < this.settings.seed; from += SEED_BATCH_SIZE) {
+            var movieInfos = new ArrayList<MovieInfo>(SEED_BATCH_SIZE);
+            for (int id = from; id < Math.min(from + SEED_BATCH_SIZE, this.settings.seed); id++) {
+                movieInfos.add(movieInfo(id));
+            }
+            var outcome = bulk(movieInfos).block(this.settings.requestTimeout);
+            if (isError(outcome)) {
+                throw new IllegalStateException("Seeding failed with " + outcome);
+            }
+        }
+    }
+
+    private void drain(boolean measured) {
+        for (LoadStats stats : this.stats.values()) {
+            stats.drain(measured);
+            if (measured) {
+                log.info(LoadReport.intervalLine(stats));
+            }
+        }
+        // Subscribers connect during the warmup, their connects are always reported
+        this.streamConnect.drain(true);
+        if (measured) {
+            log.info("stream         {} subscribers  {} events  {} disconnects", this.settings.streamSubscribers,
+                    this.streamEvents.sum(), this.streamDisconnects.sum());
+        } else {
+            log.info("Warmup done, measuring");
+        }
+    }
+
+    private void awaitInFlight() {
+        long deadline = System.nanoTime() + this.settings.requestTimeout.toNanos();
+        while (this.inFlight.sum() > 0 && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+    }
+
+    private String ndjson(List<MovieInfo> movieInfos) throws JsonProcessingException {
+        var body = new StringBuilder(movieInfos.size() * 160);
+        for (MovieInfo movieInfo : movieInfos) {
+            body.append(this.objectMapper.writeValueAsString(movieInfo)).append('\n');
+        }
+        return body.toString();
+    }
+
+    private static MovieInfo movieInfo(int id) {
+        int year = 1950 + id % 75;
+        return MovieInfo.builder()
+                .movieInfoId(ID_PREFIX + id)
+                .name("Load Test Movie " + id)
+                .year(year)
+                .releaseDate(LocalDate.of(year, 1 + id % 12, 1 + id % 28))
+                .casts(List.of(CASTS.get(id % CASTS.size()), CASTS.get((id / CASTS.size()) % CASTS.size())))
+                .build();
+    }
+
+    private static boolean isError(String outcome) {
+        return outcome.length() != 3 || outcome.charAt(0) != '2';
+    }
+
+    private static int lines(String chunk) {
+        int lines = 0;
+        for (int i = 0; i < chunk.length(); i++) {
+            if (chunk.charAt(i) == '\n') {
+                lines++;
+            }
+        }
+        return lines;
+    }
+}
@@ -1,12 +1,20 @@
 package io.ghost.movieinfo;
 
+import io.ghost.movieinfo.config.MovieInfoProperties;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.data.mongodb.config.EnableReactiveMongoAuditing;
+import reactor.core.scheduler.Schedulers;
 
 @SpringBootApplication
+@EnableConfigurationProperties(MovieInfoProperties.class)
+@EnableReactiveMongoAuditing
 public class MovieInfoServiceApplication {
 
 	public static void main(String[] args) {
+		// Executor and queue metrics for every Reactor scheduler; must run before the first one is created
+		Schedulers.enableMetrics();
 		SpringApplication.run(MovieInfoServiceApplication.class, args);
 	}
 
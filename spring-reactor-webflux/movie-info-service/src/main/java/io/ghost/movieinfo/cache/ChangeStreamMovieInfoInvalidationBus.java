@@ -0,0 +1,35 @@
+package io.ghost.movieinfo.cache;
+
+import io.ghost.movieinfo.domain.MovieInfoInvalidation;
+import io.ghost.movieinfo.service.MovieInfoChangeStream;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Invalidations taken from the movieInfo change stream every instance already follows. Mongo publishes
+ * every committed write, including the ones made outside the service, so publish has nothing to do.
+ */
+public class ChangeStreamMovieInfoInvalidationBus implements MovieInfoInvalidationBus {
+
+    private final MovieInfoChangeStream movieInfoChangeStream;
+
+    public ChangeStreamMovieInfoInvalidationBus(MovieInfoChangeStream movieInfoChangeStream) {
+        this.movieInfoChangeStream = movieInfoChangeStream;
+    }
+
+    @Override
+    public Mono<Void> publish(MovieInfoInvalidation invalidation) {
+        return Mono.empty();
+    }
+
+    @Override
+    public Flux<MovieInfoInvalidation> invalidations() {
+        return this.movieInfoChangeStream.events(null)
+                .filter(event -> event.getMovieInfoId() != null)
+                .map(event -> MovieInfoInvalidation.builder()
+                        .movieInfoId(event.getMovieInfoId())
+                        // Deletes carry no document; update lookups of a since deleted one neither
+                        .version(event.getMovieInfo() == null ? null : event.getMovieInfo().getVersion())
+                        .build());
+    }
+}
@@ -0,0 +1,96 @@
+package io.ghost.movieinfo.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.ghost.movieinfo.config.MovieInfoProperties;
+import io.ghost.movieinfo.domain.MovieInfo;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The shared tier within one JVM: a stand-in for tests, where several MovieInfoCache instances play the
+ * instances of a deployment, and for single instance runs. Same version and tombstone rules as Redis.
+ */
+public class InMemorySharedMovieInfoCache implements SharedMovieInfoCache {
+
+    private final Cache<String, Entry> entries;
+
+    public InMemorySharedMovieInfoCache(MovieInfoProperties.SharedCache properties) {
+        long timeToLive = properties.getTimeToLive().toNanos();
+        long tombstoneTimeToLive = properties.getTombstoneTimeToLive().toNanos();
+        this.entries = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfter(new Expiry<String, Entry>() {
+                    @Override
+                    public long expireAfterCreate(String id, Entry entry, long currentTime) {
+                        return entry.movieInfo == null ? tombstoneTimeToLive : timeToLive;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String id, Entry entry, long currentTime, long currentDuration) {
+                        return expireAfterCreate(id, entry, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String id, Entry entry, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+
+    @Override
+    public Mono<MovieInfo> get(String movieInfoId) {
+        return Mono.fromSupplier(() -> {
+            var entry = this.entries.getIfPresent(movieInfoId);
+            return entry == null ? null : entry.movieInfo;
+        });
+    }
+
+    @Override
+    public Mono<Map<String, MovieInfo>> getAll(Collection<String> movieInfoIds) {
+        return Mono.fromSupplier(() -> {
+            var found = new HashMap<String, MovieInfo>();
+            this.entries.getAllPresent(movieInfoIds).forEach((id, entry) -> {
+                if (entry.movieInfo != null) {
+                    found.put(id, entry.movieInfo);
+                }
+            });
+            return found;
+        });
+    }
+
+    @Override
+    public Mono<Boolean> put(MovieInfo movieInfo) {
+        return Mono.fromSupplier(() -> {
+            if (movieInfo.getMovieInfoId() == null || movieInfo.getVersion() == null) {
+                return false;
+            }
+            var candidate = new Entry(movieInfo);
+            return this.entries.asMap().compute(movieInfo.getMovieInfoId(), (id, current) ->
+                    current == null || (current.movieInfo != null
+                            && current.movieInfo.getVersion() < movieInfo.getVersion()) ? candidate : current)
+                    == candidate;
+        });
+    }
+
+    @Override
+    public Mono<Void> evict(String movieInfoId) {
+        return Mono.fromRunnable(() -> this.entries.put(movieInfoId, Entry.TOMBSTONE));
+    }
+
+    private static final class Entry {
+
+        static final Entry TOMBSTONE = new Entry(null);
+
+        final MovieInfo movieInfo;
+
+        Entry(MovieInfo movieInfo) {
+            this.movieInfo = movieInfo;
+        }
+    }
+}
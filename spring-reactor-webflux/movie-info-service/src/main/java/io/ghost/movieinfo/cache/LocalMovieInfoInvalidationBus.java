@@ -0,0 +1,26 @@
+package io.ghost.movieinfo.cache;
+
+import io.ghost.movieinfo.domain.MovieInfoInvalidation;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+/**
+ * Invalidations within the JVM, for tests with several MovieInfoCache instances on one bus.
+ */
+public class LocalMovieInfoInvalidationBus implements MovieInfoInvalidationBus {
+
+    private final Sinks.Many<MovieInfoInvalidation> sink = Sinks.many().multicast().directBestEffort();
+
+    @Override
+    public Mono<Void> publish(MovieInfoInvalidation invalidation) {
+        // Retried when another thread is emitting at the same moment
+        return Mono.fromRunnable(() -> this.sink.emitNext(invalidation,
+                (signal, result) -> result == Sinks.EmitResult.FAIL_NON_SERIALIZED));
+    }
+
+    @Override
+    public Flux<MovieInfoInvalidation> invalidations() {
+        return this.sink.asFlux();
+    }
+}
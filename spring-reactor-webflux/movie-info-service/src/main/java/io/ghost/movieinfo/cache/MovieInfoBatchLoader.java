@@ -0,0 +1,80 @@
+package io.ghost.movieinfo.cache;
+
+import io.ghost.movieinfo.config.MovieInfoProperties;
+import io.ghost.movieinfo.domain.MovieInfo;
+import io.ghost.movieinfo.repository.MovieInfoRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+import javax.annotation.PreDestroy;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+/**
+ * DataLoader style batching of single id lookups: ids requested within one window are collected
+ * and fetched with a single findAllById ($in) query, then each caller gets its own document back.
+ */
+@Slf4j
+@Component
+public class MovieInfoBatchLoader {
+
+    private final MovieInfoRepository movieInfoRepository;
+
+    private final FluxSink<PendingLoad> pendingLoads;
+
+    private final Disposable dispatcher;
+
+    public MovieInfoBatchLoader(MovieInfoRepository movieInfoRepository, MovieInfoProperties movieInfoProperties) {
+        this.movieInfoRepository = movieInfoRepository;
+        var batch = movieInfoProperties.getBatch();
+        var sink = new AtomicReference<FluxSink<PendingLoad>>();
+        this.dispatcher = Flux.<PendingLoad>create(sink::set)
+                .bufferTimeout(batch.getMaxSize(), batch.getWindow())
+                // bufferTimeout must never wait for demand, the callers are already queued in memory anyway
+                .onBackpressureBuffer()
+                .flatMap(this::dispatch, batch.getMaxConcurrency())
+                .subscribe();
+        this.pendingLoads = sink.get();
+    }
+
+    public Mono<MovieInfo> load(String movieInfoId) {
+        return Mono.create(sink -> this.pendingLoads.next(new PendingLoad(movieInfoId, sink)));
+    }
+
+    private Mono<Void> dispatch(List<PendingLoad> loads) {
+        var ids = loads.stream()
+                .map(load -> load.movieInfoId)
+                .distinct()
+                .collect(Collectors.toList());
+        return this.movieInfoRepository.findAllById(ids)
+                .collectMap(MovieInfo::getMovieInfoId)
+                .doOnNext(found -> loads.forEach(load -> load.sink.success(found.get(load.movieInfoId))))
+                .doOnError(e -> loads.forEach(load -> load.sink.error(e)))
+                .onErrorResume(e -> Mono.empty())
+                .then();
+    }
+
+    @PreDestroy
+    public void close() {
+        this.pendingLoads.complete();
+        this.dispatcher.dispose();
+    }
+
+    private static class PendingLoad {
+
+        private final String movieInfoId;
+
+        private final MonoSink<MovieInfo> sink;
+
+        PendingLoad(String movieInfoId, MonoSink<MovieInfo> sink) {
+            this.movieInfoId = movieInfoId;
+            this.sink = sink;
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package io.ghost.movieinfo.cache;
+
+import com.github.benmanes.caffeine.cache.AsyncCacheLoader;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.ghost.movieinfo.config.MovieInfoProperties;
+import io.ghost.movieinfo.domain.MovieInfo;
+import io.ghost.movieinfo.domain.MovieInfoInvalidation;
+import io.ghost.movieinfo.repository.MovieInfoRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Read-through cache in front of MovieInfoRepository.findById.
+ * Caffeine's W-TinyLFU admission keeps the hot titles resident, concurrent misses on one id share a single
+ * load, and entries older than refreshAfterWrite are reloaded in the background while still being served.
+ * Single misses go through the {@link MovieInfoBatchLoader}, multi-gets load all absent ids with one query.
+ * <p>
+ * This is the near tier of each instance. Misses are looked up in the {@link SharedMovieInfoCache} before
+ * Mongo, and every write is put into the shared tier and announced on the {@link MovieInfoInvalidationBus},
+ * so the other instances drop their older copy. Versions decide: an invalidation for a version the cached
+ * copy already has, or exceeds, is ignored, so a late one never evicts newer data.
+ */
+@Slf4j
+@Component
+public class MovieInfoCache implements MeterBinder {
+
+    public static final String CACHE_NAME = "movieInfoById";
+
+    private final AsyncLoadingCache<String, MovieInfo> cache;
+
+    private final SharedMovieInfoCache sharedCache;
+
+    private final MovieInfoInvalidationBus invalidationBus;
+
+    private final Duration sharedTimeout;
+
+    private final Duration invalidationRetryBackoff;
+
+    private final LongAdder sharedErrors = new LongAdder();
+
+    private Disposable invalidations;
+
+    public MovieInfoCache(MovieInfoRepository movieInfoRepository, MovieInfoBatchLoader movieInfoBatchLoader,
+                          SharedMovieInfoCache sharedMovieInfoCache, MovieInfoInvalidationBus movieInfoInvalidationBus,
+                          MovieInfoProperties movieInfoProperties) {
+        var properties = movieInfoProperties.getCache();
+        this.sharedCache = sharedMovieInfoCache;
+        this.invalidationBus = movieInfoInvalidationBus;
+        this.sharedTimeout = properties.getShared().getTimeout();
+        this.invalidationRetryBackoff = properties.getInvalidation().getRetryBackoff();
+        var builder = Caffeine.newBuilder()
+                .expireAfterWrite(properties.getExpireAfterWrite())
+                .refreshAfterWrite(properties.getRefreshAfterWrite())
+                .recordStats();
+        if (properties.getMaximumWeight() > 0) {
+            builder.maximumWeight(properties.getMaximumWeight())
+                    .weigher((String id, MovieInfo movieInfo) -> weigh(movieInfo));
+        } else {
+            builder.maximumSize(properties.getMaximumSize());
+        }
+        this.cache = builder.buildAsync(new AsyncCacheLoader<String, MovieInfo>() {
+            @Override
+            public CompletableFuture<MovieInfo> asyncLoad(String id, Executor executor) {
+                return shared(sharedMovieInfoCache.get(id))
+                        .switchIfEmpty(Mono.defer(() -> movieInfoBatchLoader.load(id)
+                                .doOnNext(MovieInfoCache.this::putShared)))
+                        .toFuture();
+            }
+
+            @Override
+            public CompletableFuture<Map<String, MovieInfo>> asyncLoadAll(Iterable<? extends String> ids,
+                                                                          Executor executor) {
+                List<String> absentIds = new ArrayList<>();
+                ids.forEach(absentIds::add);
+                return shared(sharedMovieInfoCache.getAll(absentIds))
+                        .defaultIfEmpty(Map.of())
+                        .flatMap(shared -> {
+                            if (shared.size() == absentIds.size()) {
+                                return Mono.just(shared);
+                            }
+                            var found = new HashMap<>(shared);
+                            absentIds.removeAll(shared.keySet());
+                            return movieInfoRepository.findAllById(absentIds)
+                                    .doOnNext(MovieInfoCache.this::putShared)
+                                    .collectMap(MovieInfo::getMovieInfoId, movieInfo -> movieInfo, () -> found);
+                        })
+                        .toFuture();
+            }
+        });
+    }
+
+    public Mono<MovieInfo> get(String movieInfoId) {
+        // A copy, so a cancelled subscriber does not cancel the load other callers are waiting on
+        return Mono.defer(() -> Mono.fromFuture(this.cache.get(movieInfoId).copy()));
+    }
+
+    /**
+     * The cached document if it has already been loaded, null otherwise. Never triggers a load.
+     */
+    public MovieInfo getIfLoaded(String movieInfoId) {
+        return loaded(this.cache.getIfPresent(movieInfoId));
+    }
+
+    /**
+     * Found documents by id; ids that do not exist are simply absent from the map.
+     */
+    public Mono<Map<String, MovieInfo>> getAll(Collection<String> movieInfoIds) {
+        return Mono.defer(() -> Mono.fromFuture(this.cache.getAll(movieInfoIds).copy()));
+    }
+
+    /**
+     * A document just written: cached here unless a newer version already is, put into the shared tier and
+     * announced to the other instances.
+     */
+    public void put(MovieInfo movieInfo) {
+        var movieInfoId = movieInfo.getMovieInfoId();
+        if (movieInfoId == null) {
+            return;
+        }
+        var written = CompletableFuture.completedFuture(movieInfo);
+        this.cache.asMap().compute(movieInfoId, (id, current) ->
+                isNewer(current, movieInfo.getVersion()) ? current : written);
+        if (movieInfo.getVersion() != null) {
+            putShared(movieInfo);
+        } else {
+            // Not persisted yet (write-behind), the shared copy cannot be ordered against it
+            evictShared(movieInfoId);
+        }
+        publish(movieInfoId, movieInfo.getVersion());
+    }
+
+    /**
+     * A document deleted, or written without knowing its new version: dropped on every instance and in the
+     * shared tier.
+     */
+    public void invalidate(String movieInfoId) {
+        this.cache.synchronous().invalidate(movieInfoId);
+        evictShared(movieInfoId);
+        publish(movieInfoId, null);
+    }
+
+    public void invalidateAll(Collection<String> movieInfoIds) {
+        movieInfoIds.forEach(this::invalidate);
+    }
+
+    /**
+     * Applies a write announced by any instance to this one's copy only; the writer has updated the shared
+     * tier already.
+     */
+    void apply(MovieInfoInvalidation invalidation) {
+        this.cache.asMap().computeIfPresent(invalidation.getMovieInfoId(), (id, current) ->
+                isNewer(current, invalidation.getVersion()) || isSame(current, invalidation.getVersion())
+                        ? current : null);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void subscribeInvalidations() {
+        this.invalidations = this.invalidationBus.invalidations()
+                .doOnError(e -> log.warn("MovieInfo invalidations failed, resubscribing", e))
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, this.invalidationRetryBackoff)
+                        .maxBackoff(Duration.ofMinutes(1)))
+                .subscribe(this::apply);
+    }
+
+    @PreDestroy
+    void close() {
+        if (this.invalidations != null) {
+            this.invalidations.dispose();
+        }
+    }
+
+    public CacheStats stats() {
+        return this.cache.synchronous().stats();
+    }
+
+    // Publishes cache.gets{result=hit|miss}, cache.puts, cache.evictions and cache.load / load duration
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, this.cache.synchronous(), CACHE_NAME);
+        FunctionCounter.builder("cache.shared.errors", this.sharedErrors, LongAdder::sum)
+                .tag("cache", CACHE_NAME)
+                .description("Failed or timed out calls to the shared tier, answered from Mongo instead")
+                .register(registry);
+    }
+
+    // The shared tier is an optimization: when it is slow or down, reads fall through to Mongo
+    private <T> Mono<T> shared(Mono<T> call) {
+        return call.timeout(this.sharedTimeout)
+                .onErrorResume(e -> {
+                    sharedFailed("read", e);
+                    return Mono.empty();
+                });
+    }
+
+    // Fire and forget, nobody waits for the shared tier on the way back
+    private void putShared(MovieInfo movieInfo) {
+        this.sharedCache.put(movieInfo).subscribe(null, e -> sharedFailed("put", e));
+    }
+
+    private void evictShared(String movieInfoId) {
+        this.sharedCache.evict(movieInfoId).subscribe(null, e -> sharedFailed("evict", e));
+    }
+
+    private void publish(String movieInfoId, Long version) {
+        this.invalidationBus.publish(new MovieInfoInvalidation(movieInfoId, version))
+                .subscribe(null, e -> log.warn("Could not publish the invalidation of movie info {}", movieInfoId, e));
+    }
+
+    private void sharedFailed(String operation, Throwable e) {
+        this.sharedErrors.increment();
+        log.debug("Shared movie info cache {} failed", operation, e);
+    }
+
+    // Loaded and holding a version above the given one; a pending load or an unknown version is never newer
+    private static boolean isNewer(CompletableFuture<MovieInfo> cached, Long version) {
+        var current = loaded(cached);
+        return current != null && current.getVersion() != null && version != null
+                && current.getVersion() > version;
+    }
+
+    private static boolean isSame(CompletableFuture<MovieInfo> cached, Long version) {
+        var current = loaded(cached);
+        return current != null && version != null && version.equals(current.getVersion());
+    }
+
+    private static MovieInfo loaded(CompletableFuture<MovieInfo> future) {
+        if (future == null || !future.isDone() || future.isCompletedExceptionally()) {
+            return null;
+        }
+        return future.getNow(null);
+    }
+
+    /**
+     * Rough retained size in bytes: object headers and references plus two bytes per character.
+     */
+    static int weigh(MovieInfo movieInfo) {
+        int weight = 96 + length(movieInfo.getMovieInfoId()) + length(movieInfo.getName());
+        if (movieInfo.getCasts() != null) {
+            for (String cast : movieInfo.getCasts()) {
+                weight += 48 + length(cast);
+            }
+        }
+        return weight;
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : 40 + 2 * value.length();
+    }
+}
@@ -0,0 +1,31 @@
+package io.ghost.movieinfo.cache;
+
+import io.ghost.movieinfo.domain.MovieInfoInvalidation;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Carries the writes of one instance to the per instance caches of all others. Delivery is best effort:
+ * a lost message leaves a copy that is at most movie-info.cache.expire-after-write old.
+ */
+public interface MovieInfoInvalidationBus {
+
+    MovieInfoInvalidationBus NONE = new MovieInfoInvalidationBus() {
+        @Override
+        public Mono<Void> publish(MovieInfoInvalidation invalidation) {
+            return Mono.empty();
+        }
+
+        @Override
+        public Flux<MovieInfoInvalidation> invalidations() {
+            return Flux.never();
+        }
+    };
+
+    Mono<Void> publish(MovieInfoInvalidation invalidation);
+
+    /**
+     * Invalidations of every instance, this one included.
+     */
+    Flux<MovieInfoInvalidation> invalidations();
+}
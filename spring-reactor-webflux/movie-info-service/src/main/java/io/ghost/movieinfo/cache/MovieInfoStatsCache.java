@@ -0,0 +1,57 @@
+package io.ghost.movieinfo.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.ghost.movieinfo.config.MovieInfoProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Short lived cache of aggregation results, so a dashboard refreshing every few seconds does not run the
+ * same pipeline over the whole collection each time. Concurrent requests for a key share one aggregation.
+ * Writes through MovieInfoService drop every entry; writes made elsewhere show up after time-to-live.
+ */
+@Component
+public class MovieInfoStatsCache implements MeterBinder {
+
+    public static final String CACHE_NAME = "movieInfoStats";
+
+    private final Cache<String, Mono<List<Object>>> results;
+
+    public MovieInfoStatsCache(MovieInfoProperties movieInfoProperties) {
+        this.results = Caffeine.newBuilder()
+                .expireAfterWrite(movieInfoProperties.getStats().getTimeToLive())
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * The cached result for the key, or the one the aggregation produces. A failed aggregation is not kept.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Flux<T> get(String key, Supplier<Flux<T>> aggregation) {
+        return Flux.defer(() -> {
+            var result = this.results.get(key, ignored -> (Mono<List<Object>>) (Mono<?>) aggregation.get()
+                    .collectList()
+                    .doOnError(e -> this.results.invalidate(key))
+                    .cache());
+            return result.flatMapIterable(items -> (List<T>) items);
+        });
+    }
+
+    public void invalidateAll() {
+        this.results.invalidateAll();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, this.results, CACHE_NAME);
+    }
+}
@@ -0,0 +1,25 @@
+package io.ghost.movieinfo.cache;
+
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Supplier;
+
+/**
+ * Redis connections opened on first use rather than at startup, so the service starts and serves from
+ * Mongo while Redis is down. Lettuce reconnects an established connection by itself; a failed first
+ * connect is remembered for {@link #RETRY_DELAY} and then attempted again by the next caller.
+ */
+final class RedisConnections {
+
+    static final Duration RETRY_DELAY = Duration.ofSeconds(5);
+
+    private RedisConnections() {
+    }
+
+    static <C> Mono<C> lazy(Supplier<? extends CompletionStage<C>> connect) {
+        return Mono.<C>fromCompletionStage(connect::get)
+                .cache(connection -> Duration.ofMillis(Long.MAX_VALUE), e -> RETRY_DELAY, () -> Duration.ZERO);
+    }
+}
@@ -0,0 +1,77 @@
+package io.ghost.movieinfo.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.ghost.movieinfo.config.MovieInfoProperties;
+import io.ghost.movieinfo.domain.MovieInfoInvalidation;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisURI;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.codec.StringCodec;
+import io.lettuce.core.pubsub.StatefulRedisPubSubConnection;
+import io.lettuce.core.pubsub.api.reactive.ChannelMessage;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Invalidations over a Redis pub/sub channel. Lettuce resubscribes after a reconnect; messages sent while
+ * an instance was disconnected are lost, which the expiry of the per instance cache bounds. Both connections
+ * are opened on first use, so the service starts without Redis and the subscriber retries until it is back.
+ */
+@Slf4j
+public class RedisMovieInfoInvalidationBus implements MovieInfoInvalidationBus, AutoCloseable {
+
+    private final RedisClient redisClient;
+
+    private final RedisURI redisUri;
+
+    private final Mono<StatefulRedisConnection<String, String>> connection;
+
+    private final ObjectMapper objectMapper;
+
+    private final String channel;
+
+    public RedisMovieInfoInvalidationBus(MovieInfoProperties.Cache properties, ObjectMapper objectMapper) {
+        this.redisUri = RedisURI.create(properties.getRedisUri());
+        this.redisClient = RedisClient.create();
+        // Subscribed connections cannot publish
+        this.connection = RedisConnections.lazy(() -> this.redisClient.connectAsync(StringCodec.UTF8, this.redisUri));
+        this.objectMapper = objectMapper;
+        this.channel = properties.getInvalidation().getChannel();
+    }
+
+    @Override
+    public Mono<Void> publish(MovieInfoInvalidation invalidation) {
+        return Mono.fromCallable(() -> this.objectMapper.writeValueAsString(invalidation))
+                .flatMap(message -> this.connection.flatMap(connection -> connection.reactive()
+                        .publish(this.channel, message)))
+                .then();
+    }
+
+    // Each subscription opens its own pub/sub connection, so a retry after a failed connect starts afresh
+    @Override
+    public Flux<MovieInfoInvalidation> invalidations() {
+        return Flux.usingWhen(
+                        Mono.fromCompletionStage(() -> this.redisClient.connectPubSubAsync(StringCodec.UTF8,
+                                this.redisUri)),
+                        this::subscribe,
+                        connection -> Mono.fromCompletionStage(connection.closeAsync()))
+                .concatMap(message -> Mono.fromCallable(() -> this.objectMapper.readValue(message.getMessage(),
+                                MovieInfoInvalidation.class))
+                        .doOnError(e -> log.warn("Ignoring unreadable invalidation {}", message.getMessage(), e))
+                        .onErrorResume(e -> Mono.empty()));
+    }
+
+    private Flux<ChannelMessage<String, String>> subscribe(StatefulRedisPubSubConnection<String, String> connection) {
+        var pubSub = connection.reactive();
+        return pubSub.subscribe(this.channel)
+                .thenMany(pubSub.observeChannels())
+                .filter(message -> this.channel.equals(message.getChannel()));
+    }
+
+    // Shutting the client down closes the connections it opened, if any
+    @Override
+    public void close() {
+        this.redisClient.shutdown();
+    }
+}
@@ -0,0 +1,114 @@
+package io.ghost.movieinfo.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.ghost.movieinfo.config.MovieInfoProperties;
+import io.ghost.movieinfo.domain.MovieInfo;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisURI;
+import io.lettuce.core.ScriptOutputType;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.reactive.RedisReactiveCommands;
+import io.lettuce.core.codec.StringCodec;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * The shared tier in Redis: one hash per id holding the version and the JSON document. The version check
+ * and the write run in one Lua script, so concurrent puts from several instances cannot interleave; a
+ * tombstone is a hash with a version above any real one and no document. The connection is opened on
+ * first use, and while Redis is unreachable every call fails, which {@link MovieInfoCache} answers as a miss.
+ */
+public class RedisSharedMovieInfoCache implements SharedMovieInfoCache, AutoCloseable {
+
+    private static final String PUT = "local current = redis.call('HGET', KEYS[1], 'version')\n"
+            + "if current and tonumber(current) >= tonumber(ARGV[1]) then return 0 end\n"
+            + "redis.call('HSET', KEYS[1], 'version', ARGV[1], 'doc', ARGV[2])\n"
+            + "redis.call('PEXPIRE', KEYS[1], ARGV[3])\n"
+            + "return 1";
+
+    private static final String EVICT = "redis.call('DEL', KEYS[1])\n"
+            + "redis.call('HSET', KEYS[1], 'version', ARGV[1])\n"
+            + "redis.call('PEXPIRE', KEYS[1], ARGV[2])\n"
+            + "return 1";
+
+    private static final String TOMBSTONE_VERSION = String.valueOf(Long.MAX_VALUE);
+
+    private final RedisClient redisClient;
+
+    private final Mono<RedisReactiveCommands<String, String>> commands;
+
+    private final ObjectMapper objectMapper;
+
+    private final String keyPrefix;
+
+    private final String timeToLive;
+
+    private final String tombstoneTimeToLive;
+
+    public RedisSharedMovieInfoCache(MovieInfoProperties.Cache properties, ObjectMapper objectMapper) {
+        var shared = properties.getShared();
+        var redisUri = RedisURI.create(properties.getRedisUri());
+        this.redisClient = RedisClient.create();
+        this.commands = RedisConnections.lazy(() -> this.redisClient.connectAsync(StringCodec.UTF8, redisUri))
+                .map(StatefulRedisConnection::reactive);
+        this.objectMapper = objectMapper;
+        this.keyPrefix = shared.getKeyPrefix();
+        this.timeToLive = String.valueOf(shared.getTimeToLive().toMillis());
+        this.tombstoneTimeToLive = String.valueOf(shared.getTombstoneTimeToLive().toMillis());
+    }
+
+    @Override
+    public Mono<MovieInfo> get(String movieInfoId) {
+        return this.commands.flatMap(commands -> commands.hget(key(movieInfoId), "doc")).map(this::read);
+    }
+
+    // The connection pipelines the commands, so this is one round trip for all ids
+    @Override
+    public Mono<Map<String, MovieInfo>> getAll(Collection<String> movieInfoIds) {
+        return Flux.fromIterable(movieInfoIds)
+                .flatMap(this::get)
+                .collectMap(MovieInfo::getMovieInfoId);
+    }
+
+    @Override
+    public Mono<Boolean> put(MovieInfo movieInfo) {
+        if (movieInfo.getMovieInfoId() == null || movieInfo.getVersion() == null) {
+            return Mono.just(false);
+        }
+        return Mono.fromCallable(() -> this.objectMapper.writeValueAsString(movieInfo))
+                .flatMap(document -> this.commands.flatMap(commands -> commands.<Long>eval(PUT,
+                                ScriptOutputType.INTEGER, new String[]{key(movieInfo.getMovieInfoId())},
+                                String.valueOf(movieInfo.getVersion()), document, this.timeToLive)
+                        .next()))
+                .map(stored -> stored == 1L);
+    }
+
+    @Override
+    public Mono<Void> evict(String movieInfoId) {
+        return this.commands.flatMap(commands -> commands.<Long>eval(EVICT, ScriptOutputType.INTEGER,
+                        new String[]{key(movieInfoId)}, TOMBSTONE_VERSION, this.tombstoneTimeToLive)
+                .then());
+    }
+
+    private String key(String movieInfoId) {
+        return this.keyPrefix + movieInfoId;
+    }
+
+    private MovieInfo read(String document) {
+        try {
+            return this.objectMapper.readValue(document, MovieInfo.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unreadable cached movie info", e);
+        }
+    }
+
+    // Shutting the client down closes the connection it opened, if any
+    @Override
+    public void close() {
+        this.redisClient.shutdown();
+    }
+}
@@ -0,0 +1,51 @@
+package io.ghost.movieinfo.cache;
+
+import io.ghost.movieinfo.domain.MovieInfo;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Second cache tier shared by all instances, behind the per instance {@link MovieInfoCache}.
+ * Entries are stamped with the document version: a put never replaces a newer version, and an evicted id
+ * leaves a short lived tombstone that refuses puts, so a read that raced a write cannot bring old data back.
+ */
+public interface SharedMovieInfoCache {
+
+    SharedMovieInfoCache NONE = new SharedMovieInfoCache() {
+        @Override
+        public Mono<MovieInfo> get(String movieInfoId) {
+            return Mono.empty();
+        }
+
+        @Override
+        public Mono<Map<String, MovieInfo>> getAll(Collection<String> movieInfoIds) {
+            return Mono.just(Map.of());
+        }
+
+        @Override
+        public Mono<Boolean> put(MovieInfo movieInfo) {
+            return Mono.just(false);
+        }
+
+        @Override
+        public Mono<Void> evict(String movieInfoId) {
+            return Mono.empty();
+        }
+    };
+
+    Mono<MovieInfo> get(String movieInfoId);
+
+    /**
+     * Cached documents by id; ids that are not cached are absent from the map.
+     */
+    Mono<Map<String, MovieInfo>> getAll(Collection<String> movieInfoIds);
+
+    /**
+     * @return false when the id holds the same or a newer version, a tombstone, or the document has no version
+     */
+    Mono<Boolean> put(MovieInfo movieInfo);
+
+    Mono<Void> evict(String movieInfoId);
+}
@@ -0,0 +1,36 @@
+package io.ghost.movieinfo.codec;
+
+import org.springframework.http.MediaType;
+
+/**
+ * Binary media types the API negotiates besides JSON. Each format has a plain type for single
+ * documents and arrays, and a streaming type for long or endless responses.
+ */
+public final class MovieInfoMediaTypes {
+
+    // RFC 8742: CBOR data items back to back, the binary counterpart of NDJSON
+    public static final String APPLICATION_CBOR_SEQ_VALUE = "application/cbor-seq";
+
+    public static final MediaType APPLICATION_CBOR_SEQ = MediaType.valueOf(APPLICATION_CBOR_SEQ_VALUE);
+
+    public static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+
+    public static final MediaType APPLICATION_SMILE = MediaType.valueOf(APPLICATION_SMILE_VALUE);
+
+    public static final String APPLICATION_STREAM_SMILE_VALUE = "application/stream+x-jackson-smile";
+
+    public static final MediaType APPLICATION_STREAM_SMILE = MediaType.valueOf(APPLICATION_STREAM_SMILE_VALUE);
+
+    public static final String APPLICATION_PROTOBUF_VALUE = "application/x-protobuf";
+
+    public static final MediaType APPLICATION_PROTOBUF = MediaType.valueOf(APPLICATION_PROTOBUF_VALUE);
+
+    // Varint length prefixed messages, as written by protobuf's writeDelimitedTo
+    public static final String APPLICATION_PROTOBUF_DELIMITED_VALUE = "application/x-protobuf;delimited=true";
+
+    public static final MediaType APPLICATION_PROTOBUF_DELIMITED =
+            MediaType.valueOf(APPLICATION_PROTOBUF_DELIMITED_VALUE);
+
+    private MovieInfoMediaTypes() {
+    }
+}
@@ -0,0 +1,70 @@
+package io.ghost.movieinfo.codec;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.protobuf.ProtobufMapper;
+import com.fasterxml.jackson.dataformat.protobuf.schema.ProtobufSchemaLoader;
+import io.ghost.movieinfo.domain.MovieInfo;
+import io.ghost.movieinfo.domain.MovieInfoBulkResult;
+import io.ghost.movieinfo.domain.MovieInfoEvent;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Readers and writers for the messages of proto/movie_info.proto. Each message is named after the domain
+ * class it carries and is (de)serialized by Jackson against the schema, so there is no generated code to
+ * keep in sync; properties without a field in the schema are simply not sent.
+ */
+public class MovieInfoProtobuf {
+
+    public static final String SCHEMA_LOCATION = "proto/movie_info.proto";
+
+    private static final List<Class<?>> MESSAGE_TYPES =
+            List.of(MovieInfo.class, MovieInfoEvent.class, MovieInfoBulkResult.class);
+
+    private final Map<Class<?>, ObjectWriter> writers = new HashMap<>();
+
+    private final Map<Class<?>, ObjectReader> readers = new HashMap<>();
+
+    /**
+     * @param objectMapperBuilder a fresh builder, it is modified
+     */
+    public MovieInfoProtobuf(Jackson2ObjectMapperBuilder objectMapperBuilder) {
+        var mapper = new ProtobufMapper();
+        // Protobuf has no null, absent fields are the default value; dates are ISO strings in the schema
+        objectMapperBuilder.serializationInclusion(JsonInclude.Include.NON_NULL)
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .configure(mapper);
+        try {
+            var schemaUrl = new ClassPathResource(SCHEMA_LOCATION).getURL();
+            for (Class<?> type : MESSAGE_TYPES) {
+                var schema = ProtobufSchemaLoader.std.load(schemaUrl, type.getSimpleName());
+                this.writers.put(type, mapper.writerFor(type).with(schema)
+                        .with(JsonGenerator.Feature.IGNORE_UNKNOWN));
+                this.readers.put(type, mapper.readerFor(type).with(schema));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not load " + SCHEMA_LOCATION, e);
+        }
+    }
+
+    public Map<Class<?>, ObjectWriter> getWriters() {
+        return this.writers;
+    }
+
+    /**
+     * @return the reader of the message for the given type, null if the schema has none
+     */
+    public ObjectReader readerFor(Class<?> type) {
+        return this.readers.get(type);
+    }
+}
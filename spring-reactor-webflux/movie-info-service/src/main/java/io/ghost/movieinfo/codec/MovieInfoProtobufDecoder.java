@@ -0,0 +1,157 @@
+package io.ghost.movieinfo.codec;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.codec.Decoder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads request bodies in the protobuf format of {@link MovieInfoProtobuf}: a single message for a Mono,
+ * varint length prefixed messages for a Flux (bulk ingest), decoded as soon as each one is complete.
+ */
+public class MovieInfoProtobufDecoder implements Decoder<Object> {
+
+    private static final List<MimeType> DECODABLE_MIME_TYPES = List.of(MovieInfoMediaTypes.APPLICATION_PROTOBUF);
+
+    private final MovieInfoProtobuf protobuf;
+
+    private int maxMessageSize = 256 * 1024;
+
+    public MovieInfoProtobufDecoder(MovieInfoProtobuf protobuf) {
+        this.protobuf = protobuf;
+    }
+
+    public void setMaxMessageSize(int maxMessageSize) {
+        this.maxMessageSize = maxMessageSize;
+    }
+
+    @Override
+    public boolean canDecode(ResolvableType elementType, MimeType mimeType) {
+        if (this.protobuf.readerFor(elementType.toClass()) == null) {
+            return false;
+        }
+        return mimeType == null || DECODABLE_MIME_TYPES.stream().anyMatch(type -> type.isCompatibleWith(mimeType));
+    }
+
+    @Override
+    public Flux<Object> decode(Publisher<DataBuffer> inputStream, ResolvableType elementType, MimeType mimeType,
+                               Map<String, Object> hints) {
+        var reader = this.protobuf.readerFor(elementType.toClass());
+        return Flux.defer(() -> {
+            var messages = new DelimitedMessages(reader);
+            return Flux.from(inputStream)
+                    .concatMapIterable(messages::read)
+                    .concatWith(Mono.defer(messages::complete));
+        });
+    }
+
+    @Override
+    public Mono<Object> decodeToMono(Publisher<DataBuffer> inputStream, ResolvableType elementType,
+                                     MimeType mimeType, Map<String, Object> hints) {
+        return DataBufferUtils.join(inputStream, this.maxMessageSize)
+                .map(buffer -> decode(buffer, elementType, mimeType, hints));
+    }
+
+    @Override
+    public Object decode(DataBuffer buffer, ResolvableType targetType, MimeType mimeType,
+                         Map<String, Object> hints) {
+        var reader = this.protobuf.readerFor(targetType.toClass());
+        try (var input = buffer.asInputStream(true)) {
+            return reader.readValue(input);
+        } catch (IOException e) {
+            throw new DecodingException("Could not read protobuf message", e);
+        }
+    }
+
+    @Override
+    public List<MimeType> getDecodableMimeTypes() {
+        return DECODABLE_MIME_TYPES;
+    }
+
+    /**
+     * Bytes of the message that is still incomplete at the end of the last buffer.
+     */
+    private final class DelimitedMessages {
+
+        private final ObjectReader reader;
+
+        private byte[] bytes = new byte[1024];
+
+        private int length;
+
+        DelimitedMessages(ObjectReader reader) {
+            this.reader = reader;
+        }
+
+        List<Object> read(DataBuffer buffer) {
+            try {
+                append(buffer);
+            } finally {
+                DataBufferUtils.release(buffer);
+            }
+            var messages = new ArrayList<>();
+            int offset = 0;
+            while (true) {
+                int position = offset;
+                int size = 0;
+                int shift = 0;
+                boolean sized = false;
+                while (position < this.length && !sized) {
+                    byte b = this.bytes[position++];
+                    size |= (b & 0x7F) << shift;
+                    sized = b >= 0;
+                    shift += 7;
+                    if (!sized && shift > 28) {
+                        throw new DecodingException("Malformed message length");
+                    }
+                }
+                if (!sized) {
+                    break;
+                }
+                if (size < 0 || size > maxMessageSize) {
+                    throw new DataBufferLimitException("Protobuf message of " + size + " bytes exceeds the limit of "
+                            + maxMessageSize);
+                }
+                if (this.length - position < size) {
+                    break;
+                }
+                try {
+                    messages.add(this.reader.readValue(this.bytes, position, size));
+                } catch (IOException e) {
+                    throw new DecodingException("Could not read protobuf message", e);
+                }
+                offset = position + size;
+            }
+            System.arraycopy(this.bytes, offset, this.bytes, 0, this.length - offset);
+            this.length -= offset;
+            return messages;
+        }
+
+        Mono<Object> complete() {
+            return this.length == 0 ? Mono.empty()
+                    : Mono.error(new DecodingException("Body ended inside a protobuf message"));
+        }
+
+        private void append(DataBuffer buffer) {
+            int readable = buffer.readableByteCount();
+            if (this.length + readable > this.bytes.length) {
+                this.bytes = Arrays.copyOf(this.bytes, Math.max(this.bytes.length * 2, this.length + readable));
+            }
+            buffer.read(this.bytes, this.length, readable);
+            this.length += readable;
+        }
+    }
+}
@@ -0,0 +1,355 @@
+package io.ghost.movieinfo.codec;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.ghost.movieinfo.config.MovieInfoProperties;
+import io.ghost.movieinfo.domain.MovieInfo;
+import io.ghost.movieinfo.domain.MovieInfoBulkResult;
+import io.ghost.movieinfo.domain.MovieInfoEvent;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.EncodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.HttpMessageEncoder;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streaming encoder for MovieInfo publishers: NDJSON / stream+json, and for application/json a JSON array
+ * that is written chunk by chunk instead of after collecting the whole Flux (what Jackson2JsonEncoder does).
+ * The same encoder writes CBOR, Smile and protobuf, see the factory methods.
+ * <p>
+ * One JsonGenerator serializes the whole response straight into pooled DataBuffers. A buffer is emitted once
+ * it holds flushSize bytes or its first element is older than flushInterval, so there is no per-element
+ * byte[] or DataBuffer. Elements are only requested from the source as the connection asks for buffers.
+ */
+public class MovieInfoStreamingEncoder implements HttpMessageEncoder<Object> {
+
+    @SuppressWarnings("deprecation")
+    private static final MediaType APPLICATION_STREAM_JSON = MediaType.APPLICATION_STREAM_JSON;
+
+    private static final List<Class<?>> BINARY_TYPES =
+            List.of(MovieInfo.class, MovieInfoEvent.class, MovieInfoBulkResult.class);
+
+    // Single documents are usually far below flushSize, the buffer grows if they are not
+    private static final int SINGLE_VALUE_CAPACITY = 1024;
+
+    private final List<MimeType> encodableMimeTypes;
+
+    private final List<MediaType> streamingMediaTypes;
+
+    private final Map<Class<?>, ObjectWriter> writers;
+
+    // Protobuf messages are not self-delimiting, so every message of a stream gets a varint length prefix
+    private final boolean lengthPrefixed;
+
+    private final int flushSize;
+
+    private final long flushIntervalNanos;
+
+    private MovieInfoStreamingEncoder(List<MimeType> encodableMimeTypes, List<MediaType> streamingMediaTypes,
+                                      Map<Class<?>, ObjectWriter> writers, boolean lengthPrefixed,
+                                      MovieInfoProperties movieInfoProperties) {
+        var encoding = movieInfoProperties.getEncoding();
+        this.encodableMimeTypes = encodableMimeTypes;
+        this.streamingMediaTypes = streamingMediaTypes;
+        this.writers = writers;
+        this.lengthPrefixed = lengthPrefixed;
+        this.flushSize = encoding.getFlushSize();
+        this.flushIntervalNanos = encoding.getFlushInterval().toNanos();
+    }
+
+    /**
+     * JSON arrays and NDJSON of MovieInfo; pages, events and bulk results are left to Jackson2JsonEncoder.
+     */
+    public static MovieInfoStreamingEncoder json(ObjectMapper objectMapper, MovieInfoProperties movieInfoProperties) {
+        return new MovieInfoStreamingEncoder(
+                List.of(MediaType.APPLICATION_JSON, MediaType.APPLICATION_NDJSON, APPLICATION_STREAM_JSON),
+                List.of(MediaType.APPLICATION_NDJSON, APPLICATION_STREAM_JSON),
+                writers(objectMapper, List.of(MovieInfo.class)), false, movieInfoProperties);
+    }
+
+    /**
+     * CBOR arrays for application/cbor, a CBOR sequence for application/cbor-seq.
+     */
+    public static MovieInfoStreamingEncoder cbor(ObjectMapper cborMapper, MovieInfoProperties movieInfoProperties) {
+        return new MovieInfoStreamingEncoder(
+                List.of(MediaType.APPLICATION_CBOR, MovieInfoMediaTypes.APPLICATION_CBOR_SEQ),
+                List.of(MovieInfoMediaTypes.APPLICATION_CBOR_SEQ),
+                writers(cborMapper, BINARY_TYPES), false, movieInfoProperties);
+    }
+
+    /**
+     * Smile arrays, or back to back Smile values for the stream+x-jackson-smile type.
+     */
+    public static MovieInfoStreamingEncoder smile(ObjectMapper smileMapper, MovieInfoProperties movieInfoProperties) {
+        return new MovieInfoStreamingEncoder(
+                List.of(MovieInfoMediaTypes.APPLICATION_SMILE, MovieInfoMediaTypes.APPLICATION_STREAM_SMILE),
+                List.of(MovieInfoMediaTypes.APPLICATION_STREAM_SMILE),
+                writers(smileMapper, BINARY_TYPES), false, movieInfoProperties);
+    }
+
+    /**
+     * A single message for one document, length prefixed messages for anything else.
+     */
+    public static MovieInfoStreamingEncoder protobuf(MovieInfoProtobuf protobuf,
+                                                     MovieInfoProperties movieInfoProperties) {
+        return new MovieInfoStreamingEncoder(
+                List.of(MovieInfoMediaTypes.APPLICATION_PROTOBUF),
+                List.of(MovieInfoMediaTypes.APPLICATION_PROTOBUF_DELIMITED),
+                protobuf.getWriters(), true, movieInfoProperties);
+    }
+
+    private static Map<Class<?>, ObjectWriter> writers(ObjectMapper objectMapper, List<Class<?>> types) {
+        var writers = new LinkedHashMap<Class<?>, ObjectWriter>();
+        // The generator is flushed per buffer, not per value
+        types.forEach(type -> writers.put(type,
+                objectMapper.writerFor(type).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)));
+        return writers;
+    }
+
+    @Override
+    public boolean canEncode(ResolvableType elementType, MimeType mimeType) {
+        if (writerFor(elementType) == null) {
+            return false;
+        }
+        return mimeType == null || this.encodableMimeTypes.stream().anyMatch(type -> type.isCompatibleWith(mimeType));
+    }
+
+    @Override
+    public Flux<DataBuffer> encode(Publisher<?> inputStream, DataBufferFactory bufferFactory,
+                                   ResolvableType elementType, MimeType mimeType, Map<String, Object> hints) {
+        var writer = writerFor(elementType);
+        boolean pages = isCollection(elementType);
+        var framing = framing(writer, mimeType, pages || !(inputStream instanceof Mono));
+        Flux<?> values = pages ? Flux.from(inputStream).flatMapIterable(page -> (Collection<?>) page)
+                : Flux.from(inputStream);
+        return Flux.defer(() -> {
+            var batch = new Batch(bufferFactory, writer, framing, this.flushSize + this.flushSize / 4);
+            return values
+                    .<DataBuffer>handle((value, sink) -> {
+                        try {
+                            if (batch.append(value)) {
+                                sink.next(batch.take());
+                            }
+                        } catch (IOException e) {
+                            sink.error(new EncodingException("Could not write " + value, e));
+                        }
+                    })
+                    .concatWith(Mono.fromCallable(batch::finish))
+                    .doOnDiscard(DataBuffer.class, DataBufferUtils::release)
+                    .doFinally(signal -> {
+                        if (signal != SignalType.ON_COMPLETE) {
+                            batch.release();
+                        }
+                    });
+        });
+    }
+
+    @Override
+    public DataBuffer encodeValue(Object value, DataBufferFactory bufferFactory, ResolvableType valueType,
+                                  MimeType mimeType, Map<String, Object> hints) {
+        var writer = writerFor(valueType);
+        boolean page = value instanceof Collection;
+        var batch = new Batch(bufferFactory, writer, framing(writer, mimeType, page), SINGLE_VALUE_CAPACITY);
+        try {
+            if (page) {
+                for (Object element : (Collection<?>) value) {
+                    batch.append(element);
+                }
+            } else {
+                batch.append(value);
+            }
+            return batch.finish();
+        } catch (IOException e) {
+            batch.release();
+            throw new EncodingException("Could not write " + value, e);
+        }
+    }
+
+    @Override
+    public List<MimeType> getEncodableMimeTypes() {
+        return this.encodableMimeTypes;
+    }
+
+    @Override
+    public List<MediaType> getStreamingMediaTypes() {
+        return this.streamingMediaTypes;
+    }
+
+    // Collections of a supported type are written like a Flux of their elements (pages, batch gets)
+    private ObjectWriter writerFor(ResolvableType type) {
+        var writer = this.writers.get(type.toClass());
+        if (writer == null && isCollection(type)) {
+            writer = this.writers.get(type.asCollection().getGeneric().toClass());
+        }
+        return writer;
+    }
+
+    private static boolean isCollection(ResolvableType type) {
+        return Collection.class.isAssignableFrom(type.toClass());
+    }
+
+    private Framing framing(ObjectWriter writer, MimeType mimeType, boolean multiple) {
+        if (mimeType != null && this.streamingMediaTypes.stream().anyMatch(type -> isStreaming(type, mimeType))) {
+            if (this.lengthPrefixed) {
+                return Framing.LENGTH_PREFIXED;
+            }
+            return writer.getFactory().canHandleBinaryNatively() ? Framing.SEQUENCE : Framing.NEWLINE;
+        }
+        if (!multiple) {
+            return Framing.SINGLE;
+        }
+        return this.lengthPrefixed ? Framing.LENGTH_PREFIXED : Framing.ARRAY;
+    }
+
+    // isCompatibleWith ignores parameters, but application/x-protobuf only streams with delimited=true
+    private static boolean isStreaming(MediaType streamingType, MimeType mimeType) {
+        return streamingType.isCompatibleWith(mimeType) && streamingType.getParameters().entrySet().stream()
+                .allMatch(parameter -> parameter.getValue().equalsIgnoreCase(
+                        mimeType.getParameter(parameter.getKey())));
+    }
+
+    private enum Framing {
+
+        SINGLE,
+
+        // JSON / CBOR / Smile array
+        ARRAY,
+
+        // NDJSON
+        NEWLINE,
+
+        // CBOR sequence, Smile values back to back
+        SEQUENCE,
+
+        // Delimited protobuf messages
+        LENGTH_PREFIXED
+    }
+
+    /**
+     * The generator of one response and the buffer it currently writes into.
+     */
+    private final class Batch extends OutputStream {
+
+        private final DataBufferFactory bufferFactory;
+
+        private final ObjectWriter writer;
+
+        private final Framing framing;
+
+        private final int capacity;
+
+        private JsonGenerator generator;
+
+        private DataBuffer buffer;
+
+        private long startedAt;
+
+        Batch(DataBufferFactory bufferFactory, ObjectWriter writer, Framing framing, int capacity) {
+            this.bufferFactory = bufferFactory;
+            this.writer = writer;
+            this.framing = framing;
+            this.capacity = capacity;
+        }
+
+        /**
+         * @return whether the current buffer is due to be emitted
+         */
+        boolean append(Object value) throws IOException {
+            ensureBuffer();
+            if (this.framing == Framing.LENGTH_PREFIXED) {
+                // The length has to be known up front, and protobuf buffers the whole message anyway
+                var message = this.writer.writeValueAsBytes(value);
+                writeVarint(message.length);
+                write(message, 0, message.length);
+            } else {
+                this.writer.writeValue(this.generator, value);
+                if (this.framing == Framing.NEWLINE) {
+                    this.generator.writeRaw('\n');
+                }
+            }
+            int buffered = this.generator == null ? 0 : Math.max(0, this.generator.getOutputBuffered());
+            return this.buffer.readableByteCount() + buffered >= flushSize
+                    || System.nanoTime() - this.startedAt >= flushIntervalNanos;
+        }
+
+        DataBuffer take() throws IOException {
+            if (this.generator != null) {
+                this.generator.flush();
+            }
+            var taken = this.buffer;
+            this.buffer = null;
+            return taken;
+        }
+
+        DataBuffer finish() throws IOException {
+            ensureBuffer();
+            if (this.generator != null) {
+                if (this.framing == Framing.ARRAY) {
+                    this.generator.writeEndArray();
+                }
+                this.generator.close();
+            }
+            return take();
+        }
+
+        void release() {
+            if (this.buffer != null) {
+                DataBufferUtils.release(this.buffer);
+                this.buffer = null;
+            }
+        }
+
+        private void ensureBuffer() throws IOException {
+            if (this.buffer != null) {
+                return;
+            }
+            this.buffer = this.bufferFactory.allocateBuffer(this.capacity);
+            this.startedAt = System.nanoTime();
+            if (this.generator == null && this.framing != Framing.LENGTH_PREFIXED) {
+                this.generator = this.writer.createGenerator(this);
+                this.generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                if (!this.writer.getFactory().canHandleBinaryNatively()) {
+                    // Values are separated by the array or by our own newlines, not by Jackson's default space
+                    this.generator.setRootValueSeparator(null);
+                }
+                if (this.framing == Framing.ARRAY) {
+                    this.generator.writeStartArray();
+                }
+            }
+        }
+
+        private void writeVarint(int value) {
+            while ((value & ~0x7F) != 0) {
+                this.buffer.write((byte) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            this.buffer.write((byte) value);
+        }
+
+        @Override
+        public void write(int b) {
+            this.buffer.write((byte) b);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {
+            this.buffer.write(bytes, offset, length);
+        }
+    }
+}
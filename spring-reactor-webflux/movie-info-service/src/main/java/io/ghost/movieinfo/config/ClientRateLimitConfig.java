@@ -0,0 +1,16 @@
+package io.ghost.movieinfo.config;
+
+import io.ghost.movieinfo.limit.ClientRateLimitFilter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConditionalOnProperty(prefix = "movie-info.rate-limit", name = "enabled")
+public class ClientRateLimitConfig {
+
+    @Bean
+    public ClientRateLimitFilter clientRateLimitFilter(MovieInfoProperties movieInfoProperties) {
+        return new ClientRateLimitFilter(movieInfoProperties);
+    }
+}
@@ -0,0 +1,67 @@
+package io.ghost.movieinfo.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import io.ghost.movieinfo.codec.MovieInfoProtobuf;
+import io.ghost.movieinfo.codec.MovieInfoProtobufDecoder;
+import io.ghost.movieinfo.codec.MovieInfoStreamingEncoder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.http.codec.cbor.Jackson2CborDecoder;
+import org.springframework.http.codec.cbor.Jackson2CborEncoder;
+import org.springframework.http.codec.json.Jackson2SmileDecoder;
+import org.springframework.http.codec.json.Jackson2SmileEncoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+
+/**
+ * Puts the streaming MovieInfo encoders ahead of the default Jackson encoder, and adds CBOR, Smile and
+ * protobuf next to JSON. The binary mappers get the same Spring Boot Jackson settings as the JSON one.
+ * Other values (pages of other types, errors) in CBOR / Smile go through Spring's Jackson codecs.
+ */
+@Configuration
+public class CodecConfig implements WebFluxConfigurer {
+
+    private final ObjectMapper objectMapper;
+
+    private final ObjectProvider<Jackson2ObjectMapperBuilder> objectMapperBuilder;
+
+    private final MovieInfoProperties movieInfoProperties;
+
+    public CodecConfig(ObjectMapper objectMapper, ObjectProvider<Jackson2ObjectMapperBuilder> objectMapperBuilder,
+                       MovieInfoProperties movieInfoProperties) {
+        this.objectMapper = objectMapper;
+        this.objectMapperBuilder = objectMapperBuilder;
+        this.movieInfoProperties = movieInfoProperties;
+    }
+
+    @Override
+    public void configureHttpMessageCodecs(ServerCodecConfigurer configurer) {
+        var codecs = configurer.customCodecs();
+        var cborMapper = configure(new CBORMapper());
+        var smileMapper = configure(new SmileMapper());
+        var protobuf = new MovieInfoProtobuf(this.objectMapperBuilder.getObject());
+        var protobufDecoder = new MovieInfoProtobufDecoder(protobuf);
+
+        codecs.registerWithDefaultConfig(MovieInfoStreamingEncoder.json(this.objectMapper, this.movieInfoProperties));
+        codecs.registerWithDefaultConfig(MovieInfoStreamingEncoder.cbor(cborMapper, this.movieInfoProperties));
+        codecs.registerWithDefaultConfig(MovieInfoStreamingEncoder.smile(smileMapper, this.movieInfoProperties));
+        codecs.registerWithDefaultConfig(MovieInfoStreamingEncoder.protobuf(protobuf, this.movieInfoProperties));
+        codecs.registerWithDefaultConfig(new Jackson2CborEncoder(cborMapper));
+        codecs.registerWithDefaultConfig(new Jackson2CborDecoder(cborMapper));
+        codecs.registerWithDefaultConfig(new Jackson2SmileEncoder(smileMapper));
+        codecs.registerWithDefaultConfig(new Jackson2SmileDecoder(smileMapper));
+        codecs.registerWithDefaultConfig(protobufDecoder, config -> {
+            if (config.maxInMemorySize() != null) {
+                protobufDecoder.setMaxMessageSize(config.maxInMemorySize());
+            }
+        });
+    }
+
+    private <T extends ObjectMapper> T configure(T mapper) {
+        this.objectMapperBuilder.getObject().configure(mapper);
+        return mapper;
+    }
+}
@@ -0,0 +1,16 @@
+package io.ghost.movieinfo.config;
+
+import io.ghost.movieinfo.limit.ConcurrencyLimitFilter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConditionalOnProperty(prefix = "movie-info.concurrency", name = "enabled", matchIfMissing = true)
+public class ConcurrencyLimitConfig {
+
+    @Bean
+    public ConcurrencyLimitFilter concurrencyLimitFilter(MovieInfoProperties movieInfoProperties) {
+        return new ConcurrencyLimitFilter(movieInfoProperties);
+    }
+}
@@ -0,0 +1,92 @@
+package io.ghost.movieinfo.config;
+
+import com.mongodb.MongoCompressor;
+import com.mongodb.WriteConcern;
+import com.mongodb.reactivestreams.client.MongoClient;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Applies the movie-info.mongo pool, timeout, write concern and compression settings on top of
+ * what Spring Boot derives from spring.data.mongodb.*, and registers the slow query logger.
+ */
+@Configuration
+public class MongoClientConfig {
+
+    @Bean
+    public MongoClientSettingsBuilderCustomizer movieInfoMongoClientSettings(MovieInfoProperties movieInfoProperties,
+                                                                             ObjectProvider<MongoClient> mongoClient) {
+        var mongo = movieInfoProperties.getMongo();
+        var query = movieInfoProperties.getQuery();
+        var writeConcern = writeConcern(mongo.getWriteConcern());
+        var compressors = mongo.getCompressors().stream()
+                .map(MongoClientConfig::compressor)
+                .collect(Collectors.toList());
+        return settings -> {
+            settings.applyToConnectionPoolSettings(pool -> {
+                ifSet(mongo.getMinPoolSize(), pool::minSize);
+                ifSet(mongo.getMaxPoolSize(), pool::maxSize);
+                ifSet(mongo.getMaxConnecting(), pool::maxConnecting);
+                ifSet(mongo.getMaxWaitTime(), wait -> pool.maxWaitTime(wait.toMillis(), TimeUnit.MILLISECONDS));
+                ifSet(mongo.getMaxConnectionIdleTime(),
+                        idle -> pool.maxConnectionIdleTime(idle.toMillis(), TimeUnit.MILLISECONDS));
+                ifSet(mongo.getMaxConnectionLifeTime(),
+                        life -> pool.maxConnectionLifeTime(life.toMillis(), TimeUnit.MILLISECONDS));
+            });
+            settings.applyToSocketSettings(socket -> {
+                ifSet(mongo.getConnectTimeout(),
+                        timeout -> socket.connectTimeout(millis(timeout), TimeUnit.MILLISECONDS));
+                ifSet(mongo.getSocketTimeout(),
+                        timeout -> socket.readTimeout(millis(timeout), TimeUnit.MILLISECONDS));
+            });
+            ifSet(writeConcern, settings::writeConcern);
+            if (!compressors.isEmpty()) {
+                settings.compressorList(compressors);
+            }
+            if (!query.getSlowThreshold().isZero()) {
+                settings.addCommandListener(new SlowQueryLogger(query.getSlowThreshold(),
+                        query.isExplainSlowQueries(), mongoClient::getObject));
+            }
+        };
+    }
+
+    private static WriteConcern writeConcern(String name) {
+        if (name == null) {
+            return null;
+        }
+        var writeConcern = WriteConcern.valueOf(name);
+        if (writeConcern == null) {
+            throw new IllegalArgumentException("Unknown movie-info.mongo.write-concern: " + name);
+        }
+        return writeConcern;
+    }
+
+    // zstd and snappy need zstd-jni / snappy-java on the classpath, zlib is built into the JDK
+    private static MongoCompressor compressor(MovieInfoProperties.Compressor compressor) {
+        switch (compressor) {
+            case ZSTD:
+                return MongoCompressor.createZstdCompressor();
+            case SNAPPY:
+                return MongoCompressor.createSnappyCompressor();
+            default:
+                return MongoCompressor.createZlibCompressor();
+        }
+    }
+
+    private static int millis(Duration duration) {
+        return Math.toIntExact(duration.toMillis());
+    }
+
+    private static <T> void ifSet(T value, Consumer<T> setter) {
+        if (value != null) {
+            setter.accept(value);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package io.ghost.movieinfo.config;
+
+import io.ghost.movieinfo.repository.MovieInfoReadingConverter;
+import io.ghost.movieinfo.validation.CastNamePool;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+
+import java.util.List;
+
+/**
+ * Registers the compact MovieInfo reader with the mapping layer unless movie-info.query.compact-reads is
+ * off. Replaces the MongoCustomConversions Spring Boot would otherwise create with the same defaults.
+ */
+@Configuration
+public class MongoConversionConfig {
+
+    // Shared by validation, the reading converter and MovieInfoBsonCodec, so a name written or read is one String
+    @Bean
+    public CastNamePool castNamePool(MovieInfoProperties movieInfoProperties) {
+        return new CastNamePool(movieInfoProperties.getValidation().getCastNamePoolSize());
+    }
+
+    @Bean
+    public MongoCustomConversions mongoCustomConversions(MovieInfoProperties movieInfoProperties,
+                                                         CastNamePool castNamePool) {
+        if (!movieInfoProperties.getQuery().isCompactReads()) {
+            return new MongoCustomConversions(List.of());
+        }
+        return new MongoCustomConversions(List.of(new MovieInfoReadingConverter(castNamePool)));
+    }
+}
@@ -0,0 +1,52 @@
+package io.ghost.movieinfo.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.ghost.movieinfo.cache.ChangeStreamMovieInfoInvalidationBus;
+import io.ghost.movieinfo.cache.InMemorySharedMovieInfoCache;
+import io.ghost.movieinfo.cache.LocalMovieInfoInvalidationBus;
+import io.ghost.movieinfo.cache.MovieInfoInvalidationBus;
+import io.ghost.movieinfo.cache.RedisMovieInfoInvalidationBus;
+import io.ghost.movieinfo.cache.RedisSharedMovieInfoCache;
+import io.ghost.movieinfo.cache.SharedMovieInfoCache;
+import io.ghost.movieinfo.service.MovieInfoChangeStream;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Picks the shared cache tier and the invalidation transport from movie-info.cache.shared.backend and
+ * movie-info.cache.invalidation.transport. The Redis ones connect on startup and close with the context.
+ */
+@Configuration
+public class MovieInfoCacheConfig {
+
+    @Bean
+    public SharedMovieInfoCache sharedMovieInfoCache(MovieInfoProperties movieInfoProperties,
+                                                     ObjectMapper objectMapper) {
+        var properties = movieInfoProperties.getCache();
+        switch (properties.getShared().getBackend()) {
+            case IN_MEMORY:
+                return new InMemorySharedMovieInfoCache(properties.getShared());
+            case REDIS:
+                return new RedisSharedMovieInfoCache(properties, objectMapper);
+            default:
+                return SharedMovieInfoCache.NONE;
+        }
+    }
+
+    @Bean
+    public MovieInfoInvalidationBus movieInfoInvalidationBus(MovieInfoProperties movieInfoProperties,
+                                                             MovieInfoChangeStream movieInfoChangeStream,
+                                                             ObjectMapper objectMapper) {
+        var properties = movieInfoProperties.getCache();
+        switch (properties.getInvalidation().getTransport()) {
+            case LOCAL:
+                return new LocalMovieInfoInvalidationBus();
+            case CHANGE_STREAM:
+                return new ChangeStreamMovieInfoInvalidationBus(movieInfoChangeStream);
+            case REDIS:
+                return new RedisMovieInfoInvalidationBus(properties, objectMapper);
+            default:
+                return MovieInfoInvalidationBus.NONE;
+        }
+    }
+}
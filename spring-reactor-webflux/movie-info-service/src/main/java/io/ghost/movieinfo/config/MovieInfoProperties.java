@@ -0,0 +1,502 @@
+package io.ghost.movieinfo.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties(prefix = "movie-info")
+public class MovieInfoProperties {
+
+    private final Bulk bulk = new Bulk();
+
+    private final Page page = new Page();
+
+    private final Stream stream = new Stream();
+
+    private final Cache cache = new Cache();
+
+    private final Batch batch = new Batch();
+
+    private final Mongo mongo = new Mongo();
+
+    private final Query query = new Query();
+
+    private final Concurrency concurrency = new Concurrency();
+
+    private final RateLimit rateLimit = new RateLimit();
+
+    private final WriteBehind writeBehind = new WriteBehind();
+
+    private final Encoding encoding = new Encoding();
+
+    private final Resilience resilience = new Resilience();
+
+    private final Scheduling scheduling = new Scheduling();
+
+    private final Validation validation = new Validation();
+
+    private final Stats stats = new Stats();
+
+    @Data
+    public static class Bulk {
+
+        // Maximum number of records written with a single bulkWrite command
+        private int batchSize = 500;
+
+        // A batch is closed once its first record is this old, even if it is not full and no record follows
+        private Duration batchTimeout = Duration.ofMillis(200);
+    }
+
+    @Data
+    public static class Page {
+
+        // Page size used when the client does not pass a limit
+        private int defaultLimit = 100;
+
+        // Upper bound for the limit parameter
+        private int maxLimit = 1000;
+    }
+
+    @Data
+    public static class Stream {
+
+        // Recent events kept by the shared sink so reconnecting clients can resume without a new cursor
+        private int replaySize = 1024;
+
+        // Events buffered per subscriber before the overflow strategy kicks in
+        private int subscriberBufferSize = 256;
+
+        private OverflowStrategy overflowStrategy = OverflowStrategy.DROP_OLDEST;
+
+        // First delay before the shared change stream is reopened after an error
+        private Duration retryBackoff = Duration.ofSeconds(1);
+    }
+
+    @Data
+    public static class Cache {
+
+        // Approximate retained bytes of all cached entries, takes precedence over maximumSize when positive
+        private long maximumWeight = 64L * 1024 * 1024;
+
+        // Number of cached entries, used when maximumWeight is 0
+        private long maximumSize = 10_000;
+
+        // Hard upper bound on how stale a cached entry may get
+        private Duration expireAfterWrite = Duration.ofMinutes(10);
+
+        // Entries read after this are reloaded in the background while the current value is served
+        private Duration refreshAfterWrite = Duration.ofMinutes(1);
+
+        // Used by the redis shared tier and invalidation transport
+        private String redisUri = "redis://localhost:6379";
+
+        private final SharedCache shared = new SharedCache();
+
+        private final CacheInvalidation invalidation = new CacheInvalidation();
+    }
+
+    @Data
+    public static class SharedCache {
+
+        // Second tier behind the per instance cache; NONE reads misses straight from Mongo
+        private SharedCacheBackend backend = SharedCacheBackend.NONE;
+
+        // A slower answer counts as a miss and the document is read from Mongo
+        private Duration timeout = Duration.ofMillis(50);
+
+        private Duration timeToLive = Duration.ofHours(1);
+
+        // How long a deleted id refuses puts, so a read that started before the delete cannot cache it again
+        private Duration tombstoneTimeToLive = Duration.ofSeconds(5);
+
+        // in-memory backend only
+        private long maximumSize = 100_000;
+
+        private String keyPrefix = "movie-info:";
+    }
+
+    @Data
+    public static class CacheInvalidation {
+
+        // How a write reaches the per instance caches of the other instances; NONE leaves them to expire
+        private InvalidationTransport transport = InvalidationTransport.NONE;
+
+        // redis transport only
+        private String channel = "movie-info:invalidations";
+
+        private Duration retryBackoff = Duration.ofSeconds(1);
+    }
+
+    @Data
+    public static class Batch {
+
+        // How long single id lookups are collected before they are sent as one $in query
+        private Duration window = Duration.ofMillis(2);
+
+        // A batch is sent as soon as it holds this many lookups
+        private int maxSize = 100;
+
+        // $in queries that may be in flight at the same time
+        private int maxConcurrency = 8;
+    }
+
+    // Unset values keep the driver defaults, so only what a profile actually tunes is overridden
+    @Data
+    public static class Mongo {
+
+        private Integer minPoolSize;
+
+        private Integer maxPoolSize;
+
+        // Connections that may be established concurrently; a cold burst otherwise stalls on handshakes
+        private Integer maxConnecting;
+
+        // How long an operation waits for a pooled connection before failing (the driver has no wait queue size)
+        private Duration maxWaitTime;
+
+        private Duration maxConnectionIdleTime;
+
+        private Duration maxConnectionLifeTime;
+
+        private Duration connectTimeout;
+
+        // Also the read timeout of every operation; 0 disables it
+        private Duration socketTimeout;
+
+        // Write concern of the client, so of persistMovieInfo and every other write, e.g. majority or w1
+        private String writeConcern;
+
+        // Read preference of the list endpoints, e.g. secondaryPreferred; single id reads stay on the primary
+        // because they populate the cache right after writes
+        private String readPreference = "primary";
+
+        // Offered to the server in this order, the first one it also supports is used
+        private List<Compressor> compressors = new ArrayList<>();
+    }
+
+    @Data
+    public static class Query {
+
+        // Queries slower than this are logged together with their explain plan; 0 turns the check off
+        private Duration slowThreshold = Duration.ofMillis(100);
+
+        private boolean explainSlowQueries = true;
+
+        // MovieInfo is read by MovieInfoReadingConverter / MovieInfoBsonCodec instead of reflective mapping
+        private boolean compactReads = true;
+    }
+
+    @Data
+    public static class Concurrency {
+
+        private boolean enabled = true;
+
+        // Sent with every 503 so well behaved clients back off instead of retrying immediately
+        private Duration retryAfter = Duration.ofSeconds(1);
+
+        // Latency may grow to this multiple of its long term average before the limit is reduced
+        private double rttTolerance = 2.0;
+
+        // Weight of each new limit estimate, lower values react slower but are less jumpy
+        private double smoothing = 0.2;
+
+        private final Limit reads = new Limit(200, 20, 2000, true);
+
+        private final Limit writes = new Limit(50, 5, 500, true);
+
+        // Change streams and bulk ingest stay open for a long time, their latency says nothing about load
+        private final Limit streams = new Limit(500, 500, 500, false);
+    }
+
+    @Data
+    public static class RateLimit {
+
+        // Off by default: a load test, or every client behind one NAT address, would be throttled as one
+        private boolean enabled = false;
+
+        // Names the client when the key has a plan in clients, the remote address does otherwise
+        private String apiKeyHeader = "X-API-Key";
+
+        // Limit unknown keys per key rather than per address; anyone can make keys up, so only behind a
+        // gateway that authenticates them
+        private boolean trustUnknownApiKeys = false;
+
+        // For every remote address and every API key without a plan of its own
+        private RatePlan defaults = new RatePlan(100, 200, 0);
+
+        // Keyed by API key
+        private Map<String, RatePlan> clients = new LinkedHashMap<>();
+
+        // Tokens per request
+        private double readCost = 1;
+
+        private double writeCost = 5;
+
+        // Tokens per record read by an export or a stream, or written by a bulk ingest, on top of the request
+        private double readRecordCost = 0.01;
+
+        private double writeRecordCost = 0.5;
+
+        // A client's state is dropped after this long without requests once its bucket is full again
+        private Duration idleTimeout = Duration.ofMinutes(10);
+
+        // Bounds the heap held for clients without a plan; the least used ones are forgotten beyond it
+        private long maximumClients = 1_000_000;
+    }
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class RatePlan {
+
+        // Tokens added to the bucket per second
+        private double rate;
+
+        // Bucket size: how many tokens a client that was idle may spend at once
+        private double burst;
+
+        // Tokens per UTC day, 0 for none. Counted per instance: divide by the instances sharing the load
+        private long dailyQuota;
+    }
+
+    @Data
+    public static class WriteBehind {
+
+        // When on, persistMovieInfo acknowledges once the record is journaled and queued, Mongo is written later
+        private boolean enabled = false;
+
+        // Distinct ids waiting to be written; further new ids are rejected with 503 until a flush catches up
+        private int maxPending = 100_000;
+
+        private Duration flushInterval = Duration.ofMillis(100);
+
+        // Records per bulkWrite command
+        private int batchSize = 500;
+
+        // Accepted records are appended here and replayed on startup until they are written to Mongo
+        private Path journalDirectory = Path.of("write-behind");
+
+        // fsync every record; otherwise the journal survives a process crash but not a machine crash
+        private boolean syncEachWrite = false;
+
+        // How long shutdown waits for the final flush
+        private Duration shutdownTimeout = Duration.ofSeconds(10);
+    }
+
+    @Data
+    public static class Encoding {
+
+        // Encoded elements are collected into one buffer until it holds this many bytes
+        private int flushSize = 32 * 1024;
+
+        // ... or its first element has waited this long, checked as elements arrive
+        private Duration flushInterval = Duration.ofMillis(50);
+    }
+
+    @Data
+    public static class Resilience {
+
+        // Off: repository calls are passed through as they are
+        private boolean enabled = true;
+
+        // Used for every setting an operation does not set itself
+        private Policy defaults = new Policy(Duration.ofSeconds(2), 2, Duration.ofMillis(20), Duration.ofMillis(200),
+                0.5, false, false);
+
+        // Keyed by repository operation: findById, findAllById, findVersionById, existsById, findPage, findAll,
+        // search, save, bulkUpsert, deleteById
+        private Map<String, Policy> operations = new LinkedHashMap<>();
+
+        private final CircuitBreaker circuitBreaker = new CircuitBreaker();
+
+        private final Hedge hedge = new Hedge();
+
+        private final StaleFallback staleFallback = new StaleFallback();
+    }
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Policy {
+
+        // Until the (first) result; streams are not timed out once they produce
+        private Duration timeout;
+
+        // Only reads are retried, and only on connection failures and timeouts
+        private Integer maxRetries;
+
+        private Duration retryBackoff;
+
+        private Duration maxRetryBackoff;
+
+        // 0..1, share of each backoff that is randomized so retries of many callers do not line up
+        private Double retryJitter;
+
+        // Send a second read to a secondary once the first took longer than the hedge percentile
+        private Boolean hedged;
+
+        // Answer with the last value read for the same key when the read fails or the circuit is open
+        private Boolean staleFallback;
+    }
+
+    @Data
+    public static class CircuitBreaker {
+
+        // Percentage of failed calls (connection failures and timeouts) that opens the circuit
+        private float failureRateThreshold = 50;
+
+        // Percentage of calls slower than slowCallDurationThreshold that opens the circuit
+        private float slowCallRateThreshold = 100;
+
+        private Duration slowCallDurationThreshold = Duration.ofSeconds(5);
+
+        // Calls the rates are computed over, and how many are needed before they count
+        private int slidingWindowSize = 100;
+
+        private int minimumNumberOfCalls = 20;
+
+        private Duration waitDurationInOpenState = Duration.ofSeconds(10);
+
+        private int permittedCallsInHalfOpenState = 5;
+    }
+
+    @Data
+    public static class Hedge {
+
+        private double percentile = 0.95;
+
+        // Bounds of the hedge delay; maxDelay is also used until the percentile has been measured
+        private Duration minDelay = Duration.ofMillis(5);
+
+        private Duration maxDelay = Duration.ofMillis(500);
+    }
+
+    @Data
+    public static class StaleFallback {
+
+        private long maximumSize = 10_000;
+
+        // How old a fallback value may be
+        private Duration maximumAge = Duration.ofHours(1);
+    }
+
+    @Data
+    public static class Scheduling {
+
+        // CPU bound work (validation, encoding whole batches); 0 is one thread per core
+        private int cpuParallelism = 0;
+
+        // Delivery of long lived streams to their subscribers; 0 is half the cores, at least 2
+        private int streamingParallelism = 0;
+
+        // Calls that block a thread; 0 is ten per core like Schedulers.boundedElastic()
+        private int blockingThreadCap = 0;
+
+        private int blockingQueuedTaskCap = 100_000;
+
+        private Duration blockingThreadTtl = Duration.ofSeconds(60);
+
+        // Java 21+: blocking work on virtual threads instead of the bounded pool, ignored on older JVMs
+        private boolean virtualThreads = false;
+    }
+
+    @Data
+    public static class Validation {
+
+        // Year of the first films; releaseDate may not be before it either
+        private int minYear = 1888;
+
+        // Announced titles may carry a year (and release date) up to this many years ahead
+        private int maxYearsAhead = 10;
+
+        private int maxNameLength = 500;
+
+        private int maxCasts = 500;
+
+        private int maxCastNameLength = 200;
+
+        // Distinct cast names kept for interning, by validation and the Mongo readers; the most frequent ones stay
+        private long castNamePoolSize = 100_000;
+
+        // Bulk batches of at least this many records are validated on the cpu scheduler
+        private int offloadThreshold = 64;
+    }
+
+    @Data
+    public static class Stats {
+
+        // Aggregation results are served from memory for this long unless a write comes in first
+        private Duration timeToLive = Duration.ofSeconds(30);
+
+        // Cast members returned by top-cast when the client does not pass a limit
+        private int defaultTopCastLimit = 20;
+
+        private int maxTopCastLimit = 1000;
+    }
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Limit {
+
+        private int initialLimit;
+
+        private int minLimit;
+
+        private int maxLimit;
+
+        // A fixed limit of initialLimit when false
+        private boolean adaptive;
+    }
+
+    public enum Compressor {
+
+        ZSTD,
+
+        SNAPPY,
+
+        ZLIB
+    }
+
+    public enum SharedCacheBackend {
+
+        NONE,
+
+        // One per JVM: a stand-in for tests and single instance runs
+        IN_MEMORY,
+
+        REDIS
+    }
+
+    public enum InvalidationTransport {
+
+        NONE,
+
+        // Within the JVM only, for tests
+        LOCAL,
+
+        // The movieInfo change stream; needs a replica set, and also sees writes made outside the service
+        CHANGE_STREAM,
+
+        REDIS
+    }
+
+    public enum OverflowStrategy {
+
+        DROP_OLDEST,
+
+        DROP_LATEST,
+
+        // Keep only the most recent event for a subscriber that stopped requesting
+        LATEST
+    }
+}
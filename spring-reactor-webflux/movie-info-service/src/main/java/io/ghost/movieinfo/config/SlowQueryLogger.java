@@ -0,0 +1,128 @@
+package io.ghost.movieinfo.config;
+
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import com.mongodb.reactivestreams.client.MongoClient;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.BsonDocumentCodec;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Driver command listener that logs read commands slower than movie-info.query.slow-threshold.
+ * When explain is enabled the query planner's winning plan is fetched and logged as well, at WARN
+ * when the plan contains a COLLSCAN, so a missing or unused index is visible right away.
+ * <p>
+ * The driver releases a command's buffer once commandStarted returns, before it is known to be slow. So
+ * every read command is copied as it starts, into one byte array (a RawBsonDocument) rather than a tree of
+ * BsonValues, and dropped again when it finishes in time.
+ */
+@Slf4j
+public class SlowQueryLogger implements CommandListener {
+
+    private static final Set<String> QUERY_COMMANDS = Set.of("find", "aggregate", "count", "distinct");
+
+    private static final BsonDocumentCodec BSON_DOCUMENT_CODEC = new BsonDocumentCodec();
+
+    // Added by the driver to every command but not accepted inside an explain
+    private static final Set<String> SESSION_FIELDS = Set.of("lsid", "txnNumber", "autocommit", "startTransaction");
+
+    private final long thresholdNanos;
+
+    private final boolean explain;
+
+    private final Supplier<MongoClient> mongoClient;
+
+    private final Map<Integer, StartedQuery> runningQueries = new ConcurrentHashMap<>();
+
+    public SlowQueryLogger(Duration threshold, boolean explain, Supplier<MongoClient> mongoClient) {
+        this.thresholdNanos = threshold.toNanos();
+        this.explain = explain;
+        this.mongoClient = mongoClient;
+    }
+
+    @Override
+    public void commandStarted(CommandStartedEvent event) {
+        var commandName = event.getCommandName();
+        if (!QUERY_COMMANDS.contains(commandName)) {
+            return;
+        }
+        // The event's document is only valid during this callback
+        var command = new RawBsonDocument(event.getCommand(), BSON_DOCUMENT_CODEC);
+        this.runningQueries.put(event.getRequestId(), new StartedQuery(event.getDatabaseName(), command));
+    }
+
+    @Override
+    public void commandSucceeded(CommandSucceededEvent event) {
+        var query = this.runningQueries.remove(event.getRequestId());
+        if (query == null || event.getElapsedTime(TimeUnit.NANOSECONDS) < this.thresholdNanos) {
+            return;
+        }
+        long elapsedMillis = event.getElapsedTime(TimeUnit.MILLISECONDS);
+        if (!this.explain) {
+            log.warn("Slow {} took {} ms: {}", event.getCommandName(), elapsedMillis, query.command.toJson());
+            return;
+        }
+        explain(query)
+                .subscribe(plan -> {
+                    if (plan.contains("\"COLLSCAN\"")) {
+                        log.warn("Slow {} took {} ms and scans the whole collection: {} plan: {}",
+                                event.getCommandName(), elapsedMillis, query.command.toJson(), plan);
+                    } else {
+                        log.info("Slow {} took {} ms: {} plan: {}",
+                                event.getCommandName(), elapsedMillis, query.command.toJson(), plan);
+                    }
+                }, e -> log.debug("Could not explain slow {}", event.getCommandName(), e));
+    }
+
+    @Override
+    public void commandFailed(CommandFailedEvent event) {
+        this.runningQueries.remove(event.getRequestId());
+    }
+
+    private Mono<String> explain(StartedQuery query) {
+        var command = new BsonDocument();
+        query.command.forEach((key, value) -> {
+            if (!key.startsWith("$") && !SESSION_FIELDS.contains(key)) {
+                command.append(key, value);
+            }
+        });
+        var explainCommand = new BsonDocument("explain", command)
+                .append("verbosity", new BsonString("queryPlanner"));
+        return Mono.from(this.mongoClient.get().getDatabase(query.databaseName).runCommand(explainCommand))
+                .map(SlowQueryLogger::winningPlan);
+    }
+
+    // Aggregations report their plan per stage, so anything without a top level queryPlanner is logged whole
+    private static String winningPlan(Document explained) {
+        var queryPlanner = explained.get("queryPlanner", Document.class);
+        if (queryPlanner != null && queryPlanner.get("winningPlan") instanceof Document) {
+            return queryPlanner.get("winningPlan", Document.class).toJson();
+        }
+        return explained.toJson();
+    }
+
+    private static class StartedQuery {
+
+        private final String databaseName;
+
+        private final BsonDocument command;
+
+        StartedQuery(String databaseName, BsonDocument command) {
+            this.databaseName = databaseName;
+            this.command = command;
+        }
+    }
+}
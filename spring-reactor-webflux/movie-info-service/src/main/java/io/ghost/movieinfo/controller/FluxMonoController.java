@@ -1,5 +1,7 @@
 package io.ghost.movieinfo.controller;
 
+import io.ghost.movieinfo.scheduling.MovieInfoSchedulers;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RestController;
@@ -11,13 +13,16 @@ import java.time.Duration;
 @RestController
 public class FluxMonoController {
 
+    @Autowired
+    private MovieInfoSchedulers movieInfoSchedulers;
+
     @GetMapping("/mono")
     public Mono<String> getMono() {
-        return Mono.just("Hello Mono").log();
+        return Mono.just("Hello Mono").name("mono").metrics();
     }
 
     @GetMapping(value="/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
     public Flux<Long> stream() {
-        return Flux.interval(Duration.ofSeconds(1)).log();
+        return Flux.interval(Duration.ofSeconds(1), this.movieInfoSchedulers.streaming()).name("stream").metrics();
     }
 }
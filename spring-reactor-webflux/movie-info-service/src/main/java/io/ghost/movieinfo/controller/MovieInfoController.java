@@ -1,17 +1,35 @@
 package io.ghost.movieinfo.controller;
 
+import io.ghost.movieinfo.codec.MovieInfoMediaTypes;
 import io.ghost.movieinfo.domain.MovieInfo;
+import io.ghost.movieinfo.domain.MovieInfoBulkResult;
+import io.ghost.movieinfo.domain.MovieInfoCastCount;
+import io.ghost.movieinfo.domain.MovieInfoETags;
+import io.ghost.movieinfo.domain.MovieInfoEvent;
+import io.ghost.movieinfo.domain.MovieInfoSummary;
+import io.ghost.movieinfo.domain.MovieInfoYearCount;
+import io.ghost.movieinfo.limit.ClientRateLimitFilter;
 import io.ghost.movieinfo.service.MovieInfoService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.Instant;
+import java.util.List;
+
 @RestController
 @RequestMapping("/v1")
 public class MovieInfoController {
 
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     @Autowired
     private MovieInfoService movieInfoService;
 
@@ -22,14 +40,144 @@ public class MovieInfoController {
         return this.movieInfoService.persistMovieInfo(movieInfo);
     }
 
+    // Accepts NDJSON, a JSON array, Smile or delimited protobuf; records are decoded as they arrive and one result
+    // is streamed per batch. CBOR is not accepted here: Jackson has no non-blocking CBOR parser.
+    @PostMapping(value = "/movie-infos:bulk",
+            consumes = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE,
+                    MovieInfoMediaTypes.APPLICATION_SMILE_VALUE, MovieInfoMediaTypes.APPLICATION_PROTOBUF_VALUE},
+            produces = {MediaType.APPLICATION_NDJSON_VALUE, MovieInfoMediaTypes.APPLICATION_STREAM_SMILE_VALUE,
+                    MovieInfoMediaTypes.APPLICATION_CBOR_SEQ_VALUE,
+                    MovieInfoMediaTypes.APPLICATION_PROTOBUF_DELIMITED_VALUE})
+    public Flux<MovieInfoBulkResult> bulkPostMovieInfos(@RequestBody Flux<MovieInfo> movieInfos,
+                                                        ServerWebExchange exchange) {
+        return this.movieInfoService.bulkPersistMovieInfos(ClientRateLimitFilter.chargeRecords(exchange, movieInfos));
+    }
+
+    @PutMapping(value = "/movie-infos/{id}")
+    public Mono<ResponseEntity<MovieInfo>> putMovieInfo(@PathVariable String id,
+                                                        @RequestHeader(value = HttpHeaders.IF_MATCH, required = false)
+                                                        String ifMatch,
+                                                        @RequestBody MovieInfo movieInfo) {
+        return this.movieInfoService.updateMovieInfo(id, movieInfo, ifMatch)
+                .map(updated -> validators(ResponseEntity.ok(), MovieInfoETags.of(updated), updated.getLastModified())
+                        .body(updated));
+    }
+
+    // Pass the X-Next-Cursor header of a page back as "after" to get the next one; it is absent on the last page
     @GetMapping(value = "/movie-infos")
-    public Flux<MovieInfo> getAllMovieInfos() {
-        return this.movieInfoService.getAllMovieInfos();
+    public Mono<ResponseEntity<List<MovieInfo>>> getAllMovieInfos(
+            @RequestParam(defaultValue = "id") String sort,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) List<String> fields,
+            ServerWebExchange exchange) {
+        if (isConditional(exchange)) {
+            return this.movieInfoService.getMovieInfoPageValidators(sort, after, limit, fields)
+                    .flatMap(page -> isNotModified(exchange, page.getEtag(), page.getLastModified())
+                            ? Mono.just(ResponseEntity.status(HttpStatus.NOT_MODIFIED).<List<MovieInfo>>build())
+                            : movieInfoPage(sort, after, limit, fields));
+        }
+        return movieInfoPage(sort, after, limit, fields);
+    }
+
+    private Mono<ResponseEntity<List<MovieInfo>>> movieInfoPage(String sort, String after, Integer limit,
+                                                               List<String> fields) {
+        return this.movieInfoService.getMovieInfoPage(sort, after, limit, fields)
+                .map(page -> {
+                    var response = validators(ResponseEntity.ok(), page.getEtag(), page.getLastModified());
+                    if (page.getNextCursor() != null) {
+                        response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+                    }
+                    return response.body(page.getItems());
+                });
+    }
+
+    // The whole collection as NDJSON or one JSON array (or their binary counterparts), written in flush-size
+    // chunks as documents are read
+    @SuppressWarnings("deprecation")
+    @GetMapping(value = "/movie-infos:export", produces = {MediaType.APPLICATION_NDJSON_VALUE,
+            MediaType.APPLICATION_STREAM_JSON_VALUE, MediaType.APPLICATION_JSON_VALUE,
+            MediaType.APPLICATION_CBOR_VALUE, MovieInfoMediaTypes.APPLICATION_CBOR_SEQ_VALUE,
+            MovieInfoMediaTypes.APPLICATION_SMILE_VALUE, MovieInfoMediaTypes.APPLICATION_STREAM_SMILE_VALUE,
+            MovieInfoMediaTypes.APPLICATION_PROTOBUF_VALUE})
+    public Flux<MovieInfo> exportMovieInfos(ServerWebExchange exchange) {
+        return ClientRateLimitFilter.chargeRecords(exchange, this.movieInfoService.getAllMovieInfos());
+    }
+
+    @GetMapping(value = "/movie-infos", params = "ids")
+    public Flux<MovieInfo> getMovieInfosByIds(@RequestParam List<String> ids) {
+        return this.movieInfoService.getMovieInfosByIds(ids);
+    }
+
+    @PostMapping(value = "/movie-infos:batchGet")
+    public Flux<MovieInfo> batchGetMovieInfos(@RequestBody List<String> ids) {
+        return this.movieInfoService.getMovieInfosByIds(ids);
+    }
+
+    @GetMapping(value = "/movie-infos/search")
+    public Flux<MovieInfo> searchMovieInfos(@RequestParam(required = false) String name,
+                                            @RequestParam(required = false) Integer year,
+                                            @RequestParam(required = false) String cast,
+                                            @RequestParam(required = false) Integer limit) {
+        return this.movieInfoService.searchMovieInfos(name, year, cast, limit);
+    }
+
+    @GetMapping(value = "/movie-infos/summaries")
+    public Flux<MovieInfoSummary> getMovieInfoSummaries(@RequestParam(required = false) Integer year,
+                                                        @RequestParam(required = false) String after,
+                                                        @RequestParam(required = false) Integer limit) {
+        return this.movieInfoService.getMovieInfoSummaries(year, after, limit);
+    }
+
+    // Aggregated on the server; a dashboard gets a few rows instead of the collection
+    @GetMapping(value = "/movie-infos/stats/by-year")
+    public Flux<MovieInfoYearCount> getMovieInfoCountsByYear() {
+        return this.movieInfoService.getMovieInfoCountsByYear();
+    }
+
+    @GetMapping(value = "/movie-infos/stats/top-cast")
+    public Flux<MovieInfoCastCount> getTopCasts(@RequestParam(required = false) Integer limit) {
+        return this.movieInfoService.getTopCasts(limit);
+    }
+
+    // SSE is also the answer for clients that do not ask for NDJSON explicitly (e.g. Accept: */*)
+    @GetMapping(value = "/movie-infos/stream", produces = {MediaType.TEXT_EVENT_STREAM_VALUE, MediaType.ALL_VALUE})
+    public Flux<ServerSentEvent<MovieInfoEvent>> streamMovieInfos(
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+            ServerWebExchange exchange) {
+        return ClientRateLimitFilter.chargeRecords(exchange, this.movieInfoService.streamMovieInfoEvents(lastEventId))
+                .map(event -> ServerSentEvent.builder(event)
+                        .id(event.getId())
+                        .event(event.getOperationType())
+                        .build());
+    }
+
+    @GetMapping(value = "/movie-infos/stream", produces = {MediaType.APPLICATION_NDJSON_VALUE,
+            MovieInfoMediaTypes.APPLICATION_STREAM_SMILE_VALUE, MovieInfoMediaTypes.APPLICATION_CBOR_SEQ_VALUE,
+            MovieInfoMediaTypes.APPLICATION_PROTOBUF_DELIMITED_VALUE})
+    public Flux<MovieInfoEvent> streamMovieInfosAsNdjson(@RequestParam(required = false) String after,
+                                                         ServerWebExchange exchange) {
+        return ClientRateLimitFilter.chargeRecords(exchange, this.movieInfoService.streamMovieInfoEvents(after));
     }
 
+    // Conditional requests are checked against the version alone; the document is only loaded when it changed
     @GetMapping(value = "/movie-infos/{id}")
-    public Mono<MovieInfo> getMovieInfosById(@PathVariable String id) {
-        return this.movieInfoService.getMovieInfoById(id);
+    public Mono<ResponseEntity<MovieInfo>> getMovieInfosById(@PathVariable String id, ServerWebExchange exchange) {
+        if (isConditional(exchange)) {
+            return this.movieInfoService.getMovieInfoVersionById(id)
+                    .flatMap(current -> isNotModified(exchange, MovieInfoETags.of(current), current.getLastModified())
+                            ? Mono.just(ResponseEntity.status(HttpStatus.NOT_MODIFIED).<MovieInfo>build())
+                            : movieInfo(id));
+        }
+        return movieInfo(id);
+    }
+
+    // With ETag / Last-Modified set, WebFlux answers a matching conditional GET with 304 and skips the body
+    private Mono<ResponseEntity<MovieInfo>> movieInfo(String id) {
+        return this.movieInfoService.getMovieInfoById(id)
+                .map(movieInfo -> validators(ResponseEntity.ok(), MovieInfoETags.of(movieInfo),
+                        movieInfo.getLastModified())
+                        .body(movieInfo));
     }
 
     @DeleteMapping(value = "/movie-infos/{id}")
@@ -37,4 +185,24 @@ public class MovieInfoController {
     public Mono<Void> deleteMovieInfosById(@PathVariable String id) {
         return this.movieInfoService.deleteMovieInfoById(id);
     }
+
+    private static boolean isConditional(ServerWebExchange exchange) {
+        var headers = exchange.getRequest().getHeaders();
+        return !headers.getIfNoneMatch().isEmpty() || headers.getIfModifiedSince() != -1;
+    }
+
+    private static boolean isNotModified(ServerWebExchange exchange, String etag, Instant lastModified) {
+        return exchange.checkNotModified(etag, lastModified == null ? Instant.MIN : lastModified);
+    }
+
+    private static ResponseEntity.BodyBuilder validators(ResponseEntity.BodyBuilder response, String etag,
+                                                         Instant lastModified) {
+        if (etag != null) {
+            response.eTag(etag);
+        }
+        if (lastModified != null) {
+            response.lastModified(lastModified);
+        }
+        return response;
+    }
 }
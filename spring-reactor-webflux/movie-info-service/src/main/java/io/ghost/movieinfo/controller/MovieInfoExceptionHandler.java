@@ -0,0 +1,50 @@
+package io.ghost.movieinfo.controller;
+
+import io.ghost.movieinfo.domain.MovieInfoError;
+import io.ghost.movieinfo.domain.MovieInfoViolation;
+import io.ghost.movieinfo.validation.MovieInfoValidationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.ServerWebInputException;
+
+import java.util.List;
+
+/**
+ * Structured 400s: invalid records come back with every violation, unreadable bodies and parameters with
+ * the reason. Always JSON, whatever format the request asked for, since the binary encoders only know the
+ * domain types.
+ */
+@RestControllerAdvice
+public class MovieInfoExceptionHandler {
+
+    @ExceptionHandler(MovieInfoValidationException.class)
+    public ResponseEntity<MovieInfoError> invalidMovieInfo(MovieInfoValidationException e,
+                                                           ServerWebExchange exchange) {
+        return badRequest(e.getReason(), exchange, e.getViolations());
+    }
+
+    @ExceptionHandler(ServerWebInputException.class)
+    public ResponseEntity<MovieInfoError> unreadableInput(ServerWebInputException e, ServerWebExchange exchange) {
+        var cause = e.getMostSpecificCause();
+        var message = cause != e && cause.getMessage() != null ? e.getReason() + ": " + cause.getMessage()
+                : e.getReason();
+        return badRequest(message, exchange, List.of());
+    }
+
+    private static ResponseEntity<MovieInfoError> badRequest(String message, ServerWebExchange exchange,
+                                                             List<MovieInfoViolation> violations) {
+        return ResponseEntity.badRequest()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(MovieInfoError.builder()
+                        .status(HttpStatus.BAD_REQUEST.value())
+                        .error(HttpStatus.BAD_REQUEST.getReasonPhrase())
+                        .message(message)
+                        .path(exchange.getRequest().getPath().value())
+                        .violations(violations)
+                        .build());
+    }
+}
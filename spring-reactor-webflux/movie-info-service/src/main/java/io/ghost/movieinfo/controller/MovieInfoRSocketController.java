@@ -0,0 +1,56 @@
+package io.ghost.movieinfo.controller;
+
+import io.ghost.movieinfo.domain.MovieInfo;
+import io.ghost.movieinfo.domain.MovieInfoBulkResult;
+import io.ghost.movieinfo.domain.MovieInfoSearch;
+import io.ghost.movieinfo.service.MovieInfoService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.handler.annotation.DestinationVariable;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.stereotype.Controller;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * The MovieInfoService over RSocket (spring.rsocket.server.*), for internal consumers that keep one
+ * multiplexed connection open. Streams only pull as many documents from MongoDB as the requester
+ * asked for with request(n).
+ */
+@Controller
+@MessageMapping("movie-infos")
+public class MovieInfoRSocketController {
+
+    @Autowired
+    private MovieInfoService movieInfoService;
+
+    // request-response
+    @MessageMapping("get.{id}")
+    public Mono<MovieInfo> getMovieInfoById(@DestinationVariable String id) {
+        return this.movieInfoService.getMovieInfoById(id);
+    }
+
+    // request-stream over the whole catalog
+    @MessageMapping("list")
+    public Flux<MovieInfo> getAllMovieInfos() {
+        return this.movieInfoService.getAllMovieInfos();
+    }
+
+    // request-stream
+    @MessageMapping("search")
+    public Flux<MovieInfo> searchMovieInfos(MovieInfoSearch search) {
+        return this.movieInfoService.searchMovieInfos(search.getName(), search.getYear(), search.getCast(),
+                search.getLimit());
+    }
+
+    // request-channel: documents in, one result per written batch out
+    @MessageMapping("upsert")
+    public Flux<MovieInfoBulkResult> upsertMovieInfos(Flux<MovieInfo> movieInfos) {
+        return this.movieInfoService.bulkPersistMovieInfos(movieInfos);
+    }
+
+    // fire-and-forget (request-response also works and completes once deleted)
+    @MessageMapping("delete.{id}")
+    public Mono<Void> deleteMovieInfoById(@DestinationVariable String id) {
+        return this.movieInfoService.deleteMovieInfoById(id);
+    }
+}
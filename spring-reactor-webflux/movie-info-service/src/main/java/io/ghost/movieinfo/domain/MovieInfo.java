@@ -5,9 +5,15 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.index.TextIndexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.format.annotation.DateTimeFormat;
 
+import java.time.Instant;
 import java.time.LocalDate;
 import java.util.List;
 
@@ -16,16 +22,29 @@ import java.util.List;
 @NoArgsConstructor
 @Document
 @Builder
+// Backs the (year, _id) keyset pagination so every page is an index range scan; also serves year lookups
+@CompoundIndex(name = "year_id", def = "{'year': 1, '_id': 1}")
 public class MovieInfo {
 
     @Id
     private String movieInfoId;
 
+    @TextIndexed
     private String name;
 
     private Integer year;
 
+    // Multikey: one index entry per cast member
+    @Indexed
     private List<String> casts;
 
+    @Indexed
     private LocalDate releaseDate;
+
+    // Incremented on every write; it is the ETag and the If-Match precondition of updates
+    @Version
+    private Long version;
+
+    @LastModifiedDate
+    private Instant lastModified;
 }
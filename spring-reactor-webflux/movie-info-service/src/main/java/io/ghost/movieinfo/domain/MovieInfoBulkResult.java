@@ -0,0 +1,31 @@
+package io.ghost.movieinfo.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Outcome of one batch of a bulk ingest, streamed back to the client as soon as the batch is written.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class MovieInfoBulkResult {
+
+    private long batch;
+
+    private int accepted;
+
+    private int failed;
+
+    private List<String> failedIds;
+
+    // Records rejected by validation before the write; they are neither accepted nor failed
+    private int invalid;
+
+    private List<MovieInfoViolation> violations;
+}
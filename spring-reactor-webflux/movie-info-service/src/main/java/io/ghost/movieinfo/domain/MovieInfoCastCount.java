@@ -0,0 +1,20 @@
+package io.ghost.movieinfo.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Number of titles a cast member appears in.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class MovieInfoCastCount {
+
+    private String cast;
+
+    private long count;
+}
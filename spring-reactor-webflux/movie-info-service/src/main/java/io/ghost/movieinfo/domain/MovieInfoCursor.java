@@ -0,0 +1,47 @@
+package io.ghost.movieinfo.domain;
+
+import lombok.Value;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque keyset position: the sort key values of the last item of a page.
+ * Encoded as URL safe base64 so clients pass it back untouched in the {@code after} parameter.
+ */
+@Value
+public class MovieInfoCursor {
+
+    private static final String SEPARATOR = "\n";
+
+    MovieInfoSort sort;
+
+    Integer year;
+
+    String movieInfoId;
+
+    public static MovieInfoCursor after(MovieInfoSort sort, MovieInfo last) {
+        return new MovieInfoCursor(sort, sort == MovieInfoSort.YEAR ? last.getYear() : null, last.getMovieInfoId());
+    }
+
+    public String encode() {
+        var raw = this.sort.name() + SEPARATOR + (this.year == null ? "" : this.year) + SEPARATOR + this.movieInfoId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException if the token was not produced by {@link #encode()} for the given sort
+     */
+    public static MovieInfoCursor decode(String token, MovieInfoSort expectedSort) {
+        var parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split(SEPARATOR, 3);
+        if (parts.length != 3 || parts[2].isEmpty()) {
+            throw new IllegalArgumentException("Malformed cursor");
+        }
+        var sort = MovieInfoSort.valueOf(parts[0]);
+        if (sort != expectedSort) {
+            throw new IllegalArgumentException("Cursor was issued for sort " + sort.name().toLowerCase());
+        }
+        var year = parts[1].isEmpty() ? null : Integer.valueOf(parts[1]);
+        return new MovieInfoCursor(sort, year, parts[2]);
+    }
+}
@@ -0,0 +1,61 @@
+package io.ghost.movieinfo.domain;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Objects;
+
+/**
+ * HTTP validators derived from the document version, so they can be computed from a projection of
+ * version and lastModified without loading (or serializing) the documents themselves.
+ */
+public final class MovieInfoETags {
+
+    private MovieInfoETags() {
+    }
+
+    /**
+     * Strong ETag of a single document, null for documents written before versioning.
+     */
+    public static String of(MovieInfo movieInfo) {
+        return movieInfo.getVersion() == null ? null : "\"" + movieInfo.getVersion() + "\"";
+    }
+
+    /**
+     * Weak ETag of a page: changes whenever a document on it changes, or one is added or removed.
+     * The requested fields are part of it since they change the representation.
+     */
+    public static String ofPage(Collection<MovieInfo> movieInfos, Collection<String> fields) {
+        long hash = Objects.hashCode(fields);
+        for (MovieInfo movieInfo : movieInfos) {
+            hash = 31 * hash + Objects.hashCode(movieInfo.getMovieInfoId());
+            hash = 31 * hash + Objects.hashCode(movieInfo.getVersion());
+        }
+        return "W/\"" + Long.toHexString(hash) + "\"";
+    }
+
+    public static Instant lastModified(Collection<MovieInfo> movieInfos) {
+        return movieInfos.stream()
+                .map(MovieInfo::getLastModified)
+                .filter(Objects::nonNull)
+                .max(Instant::compareTo)
+                .orElse(null);
+    }
+
+    /**
+     * The version an If-Match header asks for, or null if it is not one of our ETags.
+     */
+    public static Long parseVersion(String etag) {
+        var value = etag.trim();
+        if (value.startsWith("W/")) {
+            value = value.substring(2);
+        }
+        if (value.length() > 2 && value.startsWith("\"") && value.endsWith("\"")) {
+            value = value.substring(1, value.length() - 1);
+        }
+        try {
+            return Long.valueOf(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package io.ghost.movieinfo.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Body of 400 responses: what was wrong with the request and, for invalid records, every violation at once.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class MovieInfoError {
+
+    private int status;
+
+    private String error;
+
+    private String message;
+
+    private String path;
+
+    private List<MovieInfoViolation> violations;
+}
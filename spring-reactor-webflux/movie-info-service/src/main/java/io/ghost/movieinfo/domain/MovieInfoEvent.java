@@ -0,0 +1,32 @@
+package io.ghost.movieinfo.domain;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One change of the movieInfo collection as published on /v1/movie-infos/stream.
+ * The id is the change stream resume token; send it back as Last-Event-ID (SSE) or "after" (NDJSON) to resume.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class MovieInfoEvent {
+
+    private String id;
+
+    // insert, update, replace, delete, ...
+    private String operationType;
+
+    private String movieInfoId;
+
+    // Current document, null for deletes
+    private MovieInfo movieInfo;
+
+    // Position in the shared stream of this instance, used to replay from the buffer on reconnect
+    @JsonIgnore
+    private long sequence;
+}
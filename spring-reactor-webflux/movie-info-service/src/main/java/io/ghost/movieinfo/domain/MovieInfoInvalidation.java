@@ -0,0 +1,21 @@
+package io.ghost.movieinfo.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A write of one movie info, broadcast so every instance drops its cached copy if that is older.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class MovieInfoInvalidation {
+
+    private String movieInfoId;
+
+    // Version written, null for deletes and writes of unknown version: any cached copy is dropped then
+    private Long version;
+}
@@ -0,0 +1,27 @@
+package io.ghost.movieinfo.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class MovieInfoPage {
+
+    private List<MovieInfo> items;
+
+    // null on the last page
+    private String nextCursor;
+
+    private String etag;
+
+    private Instant lastModified;
+
+    public MovieInfoPage(List<MovieInfo> items, String nextCursor) {
+        this(items, nextCursor, null, null);
+    }
+}
@@ -0,0 +1,24 @@
+package io.ghost.movieinfo.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Criteria of a search over RSocket, the same as the query parameters of GET /v1/movie-infos/search.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class MovieInfoSearch {
+
+    private String name;
+
+    private Integer year;
+
+    private String cast;
+
+    private Integer limit;
+}
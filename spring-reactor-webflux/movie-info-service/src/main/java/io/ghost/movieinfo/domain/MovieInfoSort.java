@@ -0,0 +1,17 @@
+package io.ghost.movieinfo.domain;
+
+import java.util.Locale;
+
+/**
+ * Keyset orderings supported by the paginated listing. Both end in _id so every position is unique.
+ */
+public enum MovieInfoSort {
+
+    ID,
+
+    YEAR;
+
+    public static MovieInfoSort from(String value) {
+        return valueOf(value.trim().toUpperCase(Locale.ROOT));
+    }
+}
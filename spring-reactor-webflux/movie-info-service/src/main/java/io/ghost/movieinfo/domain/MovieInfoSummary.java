@@ -0,0 +1,25 @@
+package io.ghost.movieinfo.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+
+/**
+ * DTO projection of MovieInfo for lists that only render the title: the query reads these fields only, so
+ * casts, dates and the version stay on the server.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class MovieInfoSummary {
+
+    @Id
+    private String movieInfoId;
+
+    private String name;
+
+    private Integer year;
+}
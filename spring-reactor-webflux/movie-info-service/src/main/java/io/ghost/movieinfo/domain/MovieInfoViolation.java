@@ -0,0 +1,30 @@
+package io.ghost.movieinfo.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One failed constraint of a record. index is the position of the record in a bulk request and null for
+ * single writes.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class MovieInfoViolation {
+
+    private Long index;
+
+    private String movieInfoId;
+
+    private String field;
+
+    // Stable machine readable reason: required, too-long, out-of-range, too-many
+    private String code;
+
+    private String message;
+
+    private String rejectedValue;
+}
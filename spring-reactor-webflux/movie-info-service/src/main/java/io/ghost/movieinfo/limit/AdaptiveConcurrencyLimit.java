@@ -0,0 +1,107 @@
+package io.ghost.movieinfo.limit;
+
+import io.ghost.movieinfo.config.MovieInfoProperties;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Gradient style adaptive concurrency limit. Every completed request's latency is compared with a slowly
+ * moving long term average: while they agree the limit grows by about sqrt(limit), once latency rises
+ * (requests queueing in the driver pool or in Mongo) the limit shrinks in proportion to the rise.
+ * Errors shrink it multiplicatively.
+ */
+public class AdaptiveConcurrencyLimit {
+
+    private static final double LONG_RTT_WEIGHT = 0.01;
+
+    private static final double BACKOFF_RATIO = 0.9;
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private final boolean adaptive;
+
+    private final double rttTolerance;
+
+    private final double smoothing;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private volatile double limit;
+
+    // Guarded by this
+    private double longRttNanos;
+
+    public AdaptiveConcurrencyLimit(MovieInfoProperties.Limit limit, double rttTolerance, double smoothing) {
+        this.minLimit = limit.getMinLimit();
+        this.maxLimit = limit.getMaxLimit();
+        this.adaptive = limit.isAdaptive();
+        this.rttTolerance = rttTolerance;
+        this.smoothing = smoothing;
+        this.limit = limit.getInitialLimit();
+    }
+
+    /**
+     * @return the number of requests in flight including this one, or 0 if the limit is reached
+     */
+    public int tryAcquire() {
+        while (true) {
+            int current = this.inFlight.get();
+            if (current >= getLimit()) {
+                return 0;
+            }
+            if (this.inFlight.compareAndSet(current, current + 1)) {
+                return current + 1;
+            }
+        }
+    }
+
+    public void release() {
+        this.inFlight.decrementAndGet();
+    }
+
+    /**
+     * @param inFlight what {@link #tryAcquire()} returned for this request
+     */
+    public synchronized void onSuccess(long rttNanos, int inFlight) {
+        if (!this.adaptive || rttNanos <= 0) {
+            return;
+        }
+        this.longRttNanos = this.longRttNanos == 0
+                ? rttNanos
+                : this.longRttNanos * (1 - LONG_RTT_WEIGHT) + rttNanos * LONG_RTT_WEIGHT;
+
+        double current = this.limit;
+        double gradient = Math.max(0.5, Math.min(1.0, this.rttTolerance * this.longRttNanos / rttNanos));
+        double estimate = current * gradient + Math.sqrt(current);
+        // A request that ran far below the limit does not show that a higher limit would be safe
+        if (estimate > current && inFlight < current / 2) {
+            return;
+        }
+        this.limit = clamp(current * (1 - this.smoothing) + estimate * this.smoothing);
+
+        // After a latency drop, let the long term average follow quickly instead of over ~100 samples
+        if (this.longRttNanos > 2 * rttNanos) {
+            this.longRttNanos *= 0.95;
+        }
+    }
+
+    public synchronized void onDropped() {
+        if (this.adaptive) {
+            this.limit = clamp(this.limit * BACKOFF_RATIO);
+        }
+    }
+
+    public int getLimit() {
+        return (int) this.limit;
+    }
+
+    public int getInFlight() {
+        return this.inFlight.get();
+    }
+
+    private double clamp(double value) {
+        return Math.max(this.minLimit, Math.min(this.maxLimit, value));
+    }
+}
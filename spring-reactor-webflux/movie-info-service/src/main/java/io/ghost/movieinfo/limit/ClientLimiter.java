@@ -0,0 +1,104 @@
+package io.ghost.movieinfo.limit;
+
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/**
+ * The rate and quota state of one client in two longs, each changed by compare-and-set only.
+ * <p>
+ * The token bucket is kept as a generic cell rate algorithm: instead of a token count and the time of the last
+ * refill, the time at which the bucket is full again (tat). Taking a cost moves it forward by cost / rate, the
+ * bucket is empty once it is a full burst ahead of now. All times and costs are in nanoseconds of refill.
+ */
+final class ClientLimiter {
+
+    private static final AtomicLongFieldUpdater<ClientLimiter> TAT =
+            AtomicLongFieldUpdater.newUpdater(ClientLimiter.class, "tat");
+
+    private static final AtomicLongFieldUpdater<ClientLimiter> QUOTA =
+            AtomicLongFieldUpdater.newUpdater(ClientLimiter.class, "quota");
+
+    // The quota long is the UTC epoch day in the high bits and what was used that day in the low ones
+    private static final int QUOTA_DAY_SHIFT = 40;
+
+    private static final long QUOTA_USED_MASK = (1L << QUOTA_DAY_SHIFT) - 1;
+
+    private volatile long tat = Long.MIN_VALUE;
+
+    private volatile long quota;
+
+    /**
+     * Takes cost from the bucket when it holds that much. Returns how far ahead of now the bucket's full time
+     * is, or would have been: the request was let in unless that is more than tolerance.
+     */
+    long tryAcquire(long now, long cost, long tolerance) {
+        while (true) {
+            long current = this.tat;
+            long next = Math.max(current, now) + cost;
+            long fill = next - now;
+            if (fill > tolerance) {
+                return fill;
+            }
+            if (TAT.compareAndSet(this, current, next)) {
+                return fill;
+            }
+        }
+    }
+
+    /**
+     * Takes cost whether or not the bucket holds it, for work already under way. The debt keeps the client's
+     * next requests out until it has been refilled.
+     */
+    void charge(long now, long cost) {
+        while (true) {
+            long current = this.tat;
+            if (TAT.compareAndSet(this, current, Math.max(current, now) + cost)) {
+                return;
+            }
+        }
+    }
+
+    void refund(long cost) {
+        TAT.addAndGet(this, -cost);
+    }
+
+    // How long from now until the bucket is full again
+    long fill(long now) {
+        long current = this.tat;
+        return current > now ? current - now : 0;
+    }
+
+    /**
+     * Adds units to what was used on the given day unless that would go over limit. Returns the units used
+     * including these, or -1 when they were refused.
+     */
+    long tryUseQuota(long day, long units, long limit) {
+        while (true) {
+            long current = this.quota;
+            long used = quotaUsed(current, day) + units;
+            if (used > limit) {
+                return -1;
+            }
+            if (QUOTA.compareAndSet(this, current, (day << QUOTA_DAY_SHIFT) | used)) {
+                return used;
+            }
+        }
+    }
+
+    void useQuota(long day, long units) {
+        while (true) {
+            long current = this.quota;
+            long used = Math.min(quotaUsed(current, day) + units, QUOTA_USED_MASK);
+            if (QUOTA.compareAndSet(this, current, (day << QUOTA_DAY_SHIFT) | used)) {
+                return;
+            }
+        }
+    }
+
+    long quotaUsed(long day) {
+        return quotaUsed(this.quota, day);
+    }
+
+    private static long quotaUsed(long quota, long day) {
+        return quota >>> QUOTA_DAY_SHIFT == day ? quota & QUOTA_USED_MASK : 0;
+    }
+}
@@ -0,0 +1,58 @@
+package io.ghost.movieinfo.limit;
+
+import io.ghost.movieinfo.config.MovieInfoProperties;
+
+/**
+ * A {@link MovieInfoProperties.RatePlan} with every cost converted to what {@link ClientLimiter} works in
+ * once; a request formats no constant header and only divides for X-RateLimit-Remaining.
+ */
+final class ClientPlan {
+
+    // Quotas are counted in thousandths of a token, so fractional record costs add up
+    static final long QUOTA_UNITS_PER_TOKEN = 1000;
+
+    final double nanosPerToken;
+
+    // How far ahead of now the bucket's full time may be: a whole burst
+    final long tolerance;
+
+    final long readCost;
+
+    final long writeCost;
+
+    final long readRecordCost;
+
+    final long writeRecordCost;
+
+    // In quota units, 0 when the client has no daily quota
+    final long dailyQuota;
+
+    final String limitHeader;
+
+    final String quotaLimitHeader;
+
+    ClientPlan(MovieInfoProperties.RatePlan plan, MovieInfoProperties.RateLimit rateLimit) {
+        if (plan.getRate() <= 0 || plan.getBurst() < Math.max(rateLimit.getReadCost(), rateLimit.getWriteCost())) {
+            throw new IllegalArgumentException("movie-info.rate-limit plans need a rate above 0 and a burst of "
+                    + "at least one request, was rate " + plan.getRate() + " and burst " + plan.getBurst());
+        }
+        this.nanosPerToken = 1_000_000_000d / plan.getRate();
+        this.tolerance = nanos(plan.getBurst());
+        this.readCost = nanos(rateLimit.getReadCost());
+        this.writeCost = nanos(rateLimit.getWriteCost());
+        this.readRecordCost = nanos(rateLimit.getReadRecordCost());
+        this.writeRecordCost = nanos(rateLimit.getWriteRecordCost());
+        this.dailyQuota = plan.getDailyQuota() * QUOTA_UNITS_PER_TOKEN;
+        this.limitHeader = String.valueOf((long) plan.getBurst());
+        this.quotaLimitHeader = String.valueOf(plan.getDailyQuota());
+    }
+
+    // Whole tokens left once the bucket's full time is fill ahead of now
+    long remaining(long fill) {
+        return (long) ((this.tolerance - fill) / this.nanosPerToken);
+    }
+
+    private long nanos(double tokens) {
+        return Math.round(tokens * this.nanosPerToken);
+    }
+}
@@ -0,0 +1,353 @@
+package io.ghost.movieinfo.limit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Policy;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.ghost.movieinfo.config.MovieInfoProperties;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Clock;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Rate limits and daily quotas per client, so one tenant cannot take the capacity the others need. A client
+ * is an API key with a plan of its own in movie-info.rate-limit.clients, otherwise its remote address. Reads
+ * and writes cost differently; bulk ingest, exports and streams are charged per record on top, as the records
+ * pass {@link #chargeRecords}. A request over the limit or the quota is answered with 429 and Retry-After.
+ * <p>
+ * Clients without a plan of their own are kept in a size bounded Caffeine cache, whose reads take no lock
+ * and go through striped buffers, and are dropped once idle with a full bucket and no quota used today. A
+ * charge moves the client's expiry out again, so what it was charged is not forgotten before it is refilled.
+ */
+public class ClientRateLimitFilter implements WebFilter, Ordered, MeterBinder {
+
+    // Ahead of the concurrency limit, so a client over its rate does not take one of the slots others wait for
+    public static final int ORDER = ConcurrencyLimitFilter.ORDER - 5;
+
+    public static final String LIMIT_HEADER = "X-RateLimit-Limit";
+
+    public static final String REMAINING_HEADER = "X-RateLimit-Remaining";
+
+    // Seconds until the bucket is full again
+    public static final String RESET_HEADER = "X-RateLimit-Reset";
+
+    public static final String QUOTA_LIMIT_HEADER = "X-RateLimit-Quota-Limit";
+
+    public static final String QUOTA_REMAINING_HEADER = "X-RateLimit-Quota-Remaining";
+
+    // Seconds until the quota starts over, at midnight UTC
+    public static final String QUOTA_RESET_HEADER = "X-RateLimit-Quota-Reset";
+
+    private static final String RECORD_CHARGE_ATTRIBUTE = ClientRateLimitFilter.class.getName() + ".recordCharge";
+
+    // Records charged at once, so the clock reads and the expiry update are paid per batch rather than per record
+    private static final int RECORD_BATCH = 64;
+
+    private static final long MILLIS_PER_DAY = TimeUnit.DAYS.toMillis(1);
+
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    // Shared by every request whose remote address is not known
+    private static final Object UNKNOWN_ADDRESS = new Object();
+
+    private static final Function<Object, ClientLimiter> NEW_LIMITER = key -> new ClientLimiter();
+
+    private final String apiKeyHeader;
+
+    private final boolean trustUnknownApiKeys;
+
+    private final ClientPlan defaultPlan;
+
+    // Keyed by API key; a handful of clients, never evicted so their quotas hold for the whole day
+    private final Map<String, PlannedClient> plannedClients = new HashMap<>();
+
+    // Keyed by unknown API key (a String) or remote address (an InetAddress)
+    private final Cache<Object, ClientLimiter> clients;
+
+    private final Policy.VarExpiration<Object, ClientLimiter> clientExpiry;
+
+    private final long idleTimeout;
+
+    private final long readQuotaUnits;
+
+    private final long writeQuotaUnits;
+
+    private final long readRecordQuotaUnits;
+
+    private final long writeRecordQuotaUnits;
+
+    private final Ticker ticker;
+
+    private final Clock clock;
+
+    private final AtomicLong rateRejections = new AtomicLong();
+
+    private final AtomicLong quotaRejections = new AtomicLong();
+
+    public ClientRateLimitFilter(MovieInfoProperties movieInfoProperties) {
+        this(movieInfoProperties, Ticker.systemTicker(), Clock.systemUTC());
+    }
+
+    ClientRateLimitFilter(MovieInfoProperties movieInfoProperties, Ticker ticker, Clock clock) {
+        var rateLimit = movieInfoProperties.getRateLimit();
+        this.apiKeyHeader = rateLimit.getApiKeyHeader();
+        this.trustUnknownApiKeys = rateLimit.isTrustUnknownApiKeys();
+        this.defaultPlan = new ClientPlan(rateLimit.getDefaults(), rateLimit);
+        rateLimit.getClients().forEach((apiKey, plan) ->
+                this.plannedClients.put(apiKey, new PlannedClient(new ClientPlan(plan, rateLimit))));
+        this.readQuotaUnits = quotaUnits(rateLimit.getReadCost());
+        this.writeQuotaUnits = quotaUnits(rateLimit.getWriteCost());
+        this.readRecordQuotaUnits = quotaUnits(rateLimit.getReadRecordCost());
+        this.writeRecordQuotaUnits = quotaUnits(rateLimit.getWriteRecordCost());
+        this.ticker = ticker;
+        this.clock = clock;
+
+        this.idleTimeout = rateLimit.getIdleTimeout().toNanos();
+        this.clients = Caffeine.newBuilder()
+                .maximumSize(rateLimit.getMaximumClients())
+                .ticker(ticker)
+                .expireAfter(new Expiry<Object, ClientLimiter>() {
+                    @Override
+                    public long expireAfterCreate(Object key, ClientLimiter limiter, long currentTime) {
+                        return expiry(limiter, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(Object key, ClientLimiter limiter, long currentTime,
+                                                  long currentDuration) {
+                        return expiry(limiter, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(Object key, ClientLimiter limiter, long currentTime,
+                                                long currentDuration) {
+                        return expiry(limiter, currentTime);
+                    }
+                })
+                .build();
+        this.clientExpiry = this.clients.policy().expireVariably().orElseThrow();
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        var request = exchange.getRequest();
+        var group = RouteGroup.of(request);
+        if (group == null) {
+            return chain.filter(exchange);
+        }
+        var apiKey = request.getHeaders().getFirst(this.apiKeyHeader);
+        var plannedClient = apiKey == null ? null : this.plannedClients.get(apiKey);
+        ClientPlan plan;
+        ClientLimiter limiter;
+        // Only clients without a plan of their own have an entry that expires
+        Object clientKey = null;
+        if (plannedClient != null) {
+            plan = plannedClient.plan;
+            limiter = plannedClient.limiter;
+        } else {
+            plan = this.defaultPlan;
+            clientKey = clientKey(request, apiKey);
+            limiter = this.clients.get(clientKey, NEW_LIMITER);
+        }
+        boolean write = group == RouteGroup.WRITES
+                || (group == RouteGroup.STREAMS && request.getMethod() == HttpMethod.POST);
+        long cost = write ? plan.writeCost : plan.readCost;
+
+        var headers = exchange.getResponse().getHeaders();
+        headers.set(LIMIT_HEADER, plan.limitHeader);
+        long now = this.ticker.read();
+        long fill = limiter.tryAcquire(now, cost, plan.tolerance);
+        if (fill > plan.tolerance) {
+            this.rateRejections.incrementAndGet();
+            headers.set(REMAINING_HEADER, "0");
+            headers.set(RESET_HEADER, seconds(limiter.fill(now)));
+            return reject(exchange, seconds(fill - plan.tolerance));
+        }
+        if (plan.dailyQuota > 0) {
+            long millis = this.clock.millis();
+            var quotaReset = seconds(TimeUnit.MILLISECONDS.toNanos(untilMidnight(millis)));
+            long used = limiter.tryUseQuota(millis / MILLIS_PER_DAY, write ? this.writeQuotaUnits : this.readQuotaUnits,
+                    plan.dailyQuota);
+            headers.set(QUOTA_LIMIT_HEADER, plan.quotaLimitHeader);
+            headers.set(QUOTA_RESET_HEADER, quotaReset);
+            if (used < 0) {
+                limiter.refund(cost);
+                this.quotaRejections.incrementAndGet();
+                headers.set(QUOTA_REMAINING_HEADER, "0");
+                headers.set(REMAINING_HEADER, String.valueOf(plan.remaining(limiter.fill(now))));
+                headers.set(RESET_HEADER, seconds(limiter.fill(now)));
+                return reject(exchange, quotaReset);
+            }
+            headers.set(QUOTA_REMAINING_HEADER,
+                    String.valueOf((plan.dailyQuota - used) / ClientPlan.QUOTA_UNITS_PER_TOKEN));
+        }
+        extendExpiry(clientKey, limiter, now);
+        headers.set(REMAINING_HEADER, String.valueOf(plan.remaining(fill)));
+        headers.set(RESET_HEADER, seconds(fill));
+        if (group == RouteGroup.STREAMS) {
+            exchange.getAttributes().put(RECORD_CHARGE_ATTRIBUTE, write
+                    ? new RecordCharge(clientKey, limiter, plan.writeRecordCost, plan.dailyQuota > 0,
+                            this.writeRecordQuotaUnits)
+                    : new RecordCharge(clientKey, limiter, plan.readRecordCost, plan.dailyQuota > 0,
+                            this.readRecordQuotaUnits));
+        }
+        return chain.filter(exchange);
+    }
+
+    /**
+     * Charges the client of the exchange for each record of a bulk ingest, an export or a stream as it passes.
+     * The request was let in already, so the records are never refused: what goes over the bucket or the
+     * quota is debt the client's next requests wait for. Records are charged in batches, the last one when the
+     * records end, so a slow stream owes up to a batch at a time. Records pass unchanged when the filter is off.
+     */
+    public static <T> Flux<T> chargeRecords(ServerWebExchange exchange, Flux<T> records) {
+        RecordCharge charge = exchange.getAttribute(RECORD_CHARGE_ATTRIBUTE);
+        if (charge == null) {
+            return records;
+        }
+        return Flux.defer(() -> {
+            var pending = new AtomicInteger();
+            return records
+                    .doOnNext(record -> {
+                        if (pending.incrementAndGet() >= RECORD_BATCH) {
+                            charge.charge(pending.getAndSet(0));
+                        }
+                    })
+                    // Also on cancel and error, the records that passed were served
+                    .doFinally(signal -> charge.charge(pending.getAndSet(0)));
+        });
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("movie-info.rate-limit.clients", this.clients, Cache::estimatedSize)
+                .description("Clients without a plan of their own whose state is held")
+                .register(registry);
+        FunctionCounter.builder("movie-info.rate-limit.rejected", this.rateRejections, AtomicLong::get)
+                .tag("reason", "rate")
+                .description("Requests answered with 429 because the client was over its limit or quota")
+                .register(registry);
+        FunctionCounter.builder("movie-info.rate-limit.rejected", this.quotaRejections, AtomicLong::get)
+                .tag("reason", "quota")
+                .description("Requests answered with 429 because the client was over its limit or quota")
+                .register(registry);
+    }
+
+    // Forgetting a client before its bucket refilled or its quota reset would hand it a new one
+    private long expiry(ClientLimiter limiter, long now) {
+        long expiry = this.idleTimeout + limiter.fill(now);
+        if (this.defaultPlan.dailyQuota > 0) {
+            long millis = this.clock.millis();
+            if (limiter.quotaUsed(millis / MILLIS_PER_DAY) > 0) {
+                expiry = Math.max(expiry, TimeUnit.MILLISECONDS.toNanos(untilMidnight(millis)));
+            }
+        }
+        return expiry;
+    }
+
+    // The expiry Caffeine computed when the client was looked up predates the charge
+    private void extendExpiry(Object clientKey, ClientLimiter limiter, long now) {
+        if (clientKey != null) {
+            this.clientExpiry.setExpiresAfter(clientKey, expiry(limiter, now), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Object clientKey(ServerHttpRequest request, String apiKey) {
+        if (apiKey != null && this.trustUnknownApiKeys) {
+            return apiKey;
+        }
+        // The client's own address behind a proxy with server.forward-headers-strategy set
+        var remoteAddress = request.getRemoteAddress();
+        var address = remoteAddress == null ? null : remoteAddress.getAddress();
+        return address == null ? UNKNOWN_ADDRESS : address;
+    }
+
+    private static Mono<Void> reject(ServerWebExchange exchange, String retryAfter) {
+        var response = exchange.getResponse();
+        response.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+        response.getHeaders().set(HttpHeaders.RETRY_AFTER, retryAfter);
+        return response.setComplete();
+    }
+
+    private static String seconds(long nanos) {
+        return String.valueOf((nanos + NANOS_PER_SECOND - 1) / NANOS_PER_SECOND);
+    }
+
+    private static long untilMidnight(long millis) {
+        return MILLIS_PER_DAY - millis % MILLIS_PER_DAY;
+    }
+
+    private static long quotaUnits(double tokens) {
+        return Math.round(tokens * ClientPlan.QUOTA_UNITS_PER_TOKEN);
+    }
+
+    private static final class PlannedClient {
+
+        private final ClientPlan plan;
+
+        private final ClientLimiter limiter = new ClientLimiter();
+
+        private PlannedClient(ClientPlan plan) {
+            this.plan = plan;
+        }
+    }
+
+    private final class RecordCharge {
+
+        private final Object clientKey;
+
+        private final ClientLimiter limiter;
+
+        private final long cost;
+
+        private final boolean quota;
+
+        private final long quotaUnits;
+
+        private RecordCharge(Object clientKey, ClientLimiter limiter, long cost, boolean quota, long quotaUnits) {
+            this.clientKey = clientKey;
+            this.limiter = limiter;
+            this.cost = cost;
+            this.quota = quota;
+            this.quotaUnits = quotaUnits;
+        }
+
+        private void charge(int records) {
+            if (records <= 0) {
+                return;
+            }
+            long now = ClientRateLimitFilter.this.ticker.read();
+            this.limiter.charge(now, this.cost * records);
+            if (this.quota) {
+                this.limiter.useQuota(ClientRateLimitFilter.this.clock.millis() / MILLIS_PER_DAY,
+                        this.quotaUnits * records);
+            }
+            extendExpiry(this.clientKey, this.limiter, now);
+        }
+    }
+}
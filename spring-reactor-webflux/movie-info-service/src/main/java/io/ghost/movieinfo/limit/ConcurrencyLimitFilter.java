@@ -0,0 +1,119 @@
+package io.ghost.movieinfo.limit;
+
+import io.ghost.movieinfo.config.MovieInfoProperties;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounds the requests in flight per {@link RouteGroup}. A request over the current limit is answered
+ * right away with 503 and Retry-After instead of queueing for a Mongo connection; the read and write
+ * limits adapt to the latency the requests that do get through observe.
+ */
+public class ConcurrencyLimitFilter implements WebFilter, Ordered, MeterBinder {
+
+    // Right after the http.server.requests metrics filter, so rejections still show up there
+    public static final int ORDER = Ordered.HIGHEST_PRECEDENCE + 10;
+
+    private final Map<RouteGroup, AdaptiveConcurrencyLimit> limits = new EnumMap<>(RouteGroup.class);
+
+    private final Map<RouteGroup, AtomicLong> rejections = new EnumMap<>(RouteGroup.class);
+
+    private final String retryAfter;
+
+    public ConcurrencyLimitFilter(MovieInfoProperties movieInfoProperties) {
+        var concurrency = movieInfoProperties.getConcurrency();
+        this.limits.put(RouteGroup.READS, limit(concurrency.getReads(), concurrency));
+        this.limits.put(RouteGroup.WRITES, limit(concurrency.getWrites(), concurrency));
+        this.limits.put(RouteGroup.STREAMS, limit(concurrency.getStreams(), concurrency));
+        for (RouteGroup group : RouteGroup.values()) {
+            this.rejections.put(group, new AtomicLong());
+        }
+        this.retryAfter = String.valueOf(Math.max(1, (concurrency.getRetryAfter().toMillis() + 999) / 1000));
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        var group = RouteGroup.of(exchange.getRequest());
+        if (group == null) {
+            return chain.filter(exchange);
+        }
+        var limit = this.limits.get(group);
+        int inFlight = limit.tryAcquire();
+        if (inFlight == 0) {
+            this.rejections.get(group).incrementAndGet();
+            var response = exchange.getResponse();
+            response.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+            response.getHeaders().set(HttpHeaders.RETRY_AFTER, this.retryAfter);
+            return response.setComplete();
+        }
+        long start = System.nanoTime();
+        return chain.filter(exchange)
+                .doOnSuccess(done -> {
+                    var status = exchange.getResponse().getStatusCode();
+                    if (status != null && status.is5xxServerError()) {
+                        limit.onDropped();
+                    } else {
+                        limit.onSuccess(System.nanoTime() - start, inFlight);
+                    }
+                })
+                // Errors reach here before they are rendered: a 4xx is the client's doing, not overload
+                .doOnError(e -> {
+                    if (isServerError(e)) {
+                        limit.onDropped();
+                    } else {
+                        limit.onSuccess(System.nanoTime() - start, inFlight);
+                    }
+                })
+                .doFinally(signal -> limit.release());
+    }
+
+    public AdaptiveConcurrencyLimit getLimit(RouteGroup group) {
+        return this.limits.get(group);
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        this.limits.forEach((group, limit) -> {
+            var tag = group.name().toLowerCase();
+            Gauge.builder("movie-info.concurrency.limit", limit, AdaptiveConcurrencyLimit::getLimit)
+                    .tag("group", tag)
+                    .description("Current concurrency limit estimate")
+                    .register(registry);
+            Gauge.builder("movie-info.concurrency.in-flight", limit, AdaptiveConcurrencyLimit::getInFlight)
+                    .tag("group", tag)
+                    .register(registry);
+            FunctionCounter.builder("movie-info.concurrency.rejected", this.rejections.get(group), AtomicLong::get)
+                    .tag("group", tag)
+                    .description("Requests answered with 503 because the limit was reached")
+                    .register(registry);
+        });
+    }
+
+    private static boolean isServerError(Throwable e) {
+        return !(e instanceof ResponseStatusException) || ((ResponseStatusException) e).getStatus().is5xxServerError();
+    }
+
+    private static AdaptiveConcurrencyLimit limit(MovieInfoProperties.Limit limit,
+                                                  MovieInfoProperties.Concurrency concurrency) {
+        return new AdaptiveConcurrencyLimit(limit, concurrency.getRttTolerance(), concurrency.getSmoothing());
+    }
+}
@@ -0,0 +1,34 @@
+package io.ghost.movieinfo.limit;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+
+public enum RouteGroup {
+
+    READS,
+
+    WRITES,
+
+    // Change streams, bulk ingest and exports: long lived requests
+    STREAMS;
+
+    private static final String API_PREFIX = "/v1/";
+
+    /**
+     * The group of an API request, null for anything outside /v1 (actuator, static resources).
+     */
+    public static RouteGroup of(ServerHttpRequest request) {
+        var path = request.getPath().pathWithinApplication().value();
+        if (!path.startsWith(API_PREFIX)) {
+            return null;
+        }
+        if (path.endsWith("/stream") || path.endsWith(":bulk") || path.endsWith(":export")) {
+            return STREAMS;
+        }
+        var method = request.getMethod();
+        if (method == HttpMethod.GET || method == HttpMethod.HEAD || path.endsWith(":batchGet")) {
+            return READS;
+        }
+        return WRITES;
+    }
+}
@@ -0,0 +1,130 @@
+package io.ghost.movieinfo.repository;
+
+import io.ghost.movieinfo.domain.MovieInfo;
+import io.ghost.movieinfo.validation.CastNamePool;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+import org.bson.Document;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Decodes MovieInfo straight from the BSON of the wire, without the intermediate Document (a LinkedHashMap
+ * per document and an ArrayList per array) that the template reads first. Same results as
+ * {@link MovieInfoReadingConverter}. Encoding is left to the mapping layer: the Document it writes is encoded
+ * with the registry's Document codec, so a MovieInfo written through this codec looks like any other.
+ */
+public class MovieInfoBsonCodec implements Codec<MovieInfo> {
+
+    private final CastNamePool castNamePool;
+
+    private final MongoConverter mongoConverter;
+
+    private final Codec<Document> documentCodec;
+
+    private final ZoneId zone = ZoneId.systemDefault();
+
+    public MovieInfoBsonCodec(CastNamePool castNamePool, MongoConverter mongoConverter,
+                              CodecRegistry codecRegistry) {
+        this.castNamePool = castNamePool;
+        this.mongoConverter = mongoConverter;
+        this.documentCodec = codecRegistry.get(Document.class);
+    }
+
+    @Override
+    public MovieInfo decode(BsonReader reader, DecoderContext decoderContext) {
+        var movieInfo = new MovieInfo();
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            var field = reader.readName();
+            if (reader.getCurrentBsonType() == BsonType.NULL) {
+                reader.readNull();
+                continue;
+            }
+            switch (field) {
+                case "_id":
+                    movieInfo.setMovieInfoId(reader.getCurrentBsonType() == BsonType.OBJECT_ID
+                            ? reader.readObjectId().toHexString() : reader.readString());
+                    break;
+                case "name":
+                    movieInfo.setName(reader.readString());
+                    break;
+                case "year":
+                    movieInfo.setYear((int) readNumber(reader));
+                    break;
+                case "casts":
+                    movieInfo.setCasts(readCasts(reader));
+                    break;
+                case "releaseDate":
+                    movieInfo.setReleaseDate(LocalDate.ofInstant(Instant.ofEpochMilli(reader.readDateTime()),
+                            this.zone));
+                    break;
+                case "version":
+                    movieInfo.setVersion(readNumber(reader));
+                    break;
+                case "lastModified":
+                    movieInfo.setLastModified(Instant.ofEpochMilli(reader.readDateTime()));
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.readEndDocument();
+        return movieInfo;
+    }
+
+    private List<String> readCasts(BsonReader reader) {
+        var casts = new String[4];
+        int size = 0;
+        boolean hasNull = false;
+        reader.readStartArray();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            if (size == casts.length) {
+                casts = Arrays.copyOf(casts, size * 2);
+            }
+            if (reader.getCurrentBsonType() == BsonType.NULL) {
+                reader.readNull();
+                hasNull = true;
+                casts[size++] = null;
+            } else {
+                casts[size++] = this.castNamePool.intern(reader.readString());
+            }
+        }
+        reader.readEndArray();
+        return MovieInfoReadingConverter.immutableList(size == casts.length ? casts : Arrays.copyOf(casts, size),
+                hasNull);
+    }
+
+    private static long readNumber(BsonReader reader) {
+        switch (reader.getCurrentBsonType()) {
+            case INT32:
+                return reader.readInt32();
+            case DOUBLE:
+                return (long) reader.readDouble();
+            default:
+                return reader.readInt64();
+        }
+    }
+
+    @Override
+    public void encode(BsonWriter writer, MovieInfo value, EncoderContext encoderContext) {
+        var document = new Document();
+        this.mongoConverter.write(value, document);
+        this.documentCodec.encode(writer, document, encoderContext);
+    }
+
+    @Override
+    public Class<MovieInfo> getEncoderClass() {
+        return MovieInfo.class;
+    }
+}
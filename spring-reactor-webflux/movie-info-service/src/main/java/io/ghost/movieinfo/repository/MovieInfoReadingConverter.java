@@ -0,0 +1,70 @@
+package io.ghost.movieinfo.repository;
+
+import io.ghost.movieinfo.domain.MovieInfo;
+import io.ghost.movieinfo.validation.CastNamePool;
+import org.bson.Document;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.data.convert.ReadingConverter;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Reads a MovieInfo out of the Document the driver decoded, in place of the reflective MappingMongoConverter:
+ * no property accessors or type information lookups per field, cast names interned through the
+ * {@link CastNamePool} and held in an immutable list. Applies to every MovieInfo query of the templates and
+ * repositories, partial documents of field projections included. The field names follow MovieInfo, which
+ * renames nothing but the id.
+ */
+@ReadingConverter
+public class MovieInfoReadingConverter implements Converter<Document, MovieInfo> {
+
+    private final CastNamePool castNamePool;
+
+    // Spring Data stores LocalDate as the start of the day in the default time zone
+    private final ZoneId zone = ZoneId.systemDefault();
+
+    public MovieInfoReadingConverter(CastNamePool castNamePool) {
+        this.castNamePool = castNamePool;
+    }
+
+    @Override
+    public MovieInfo convert(Document source) {
+        var year = source.get("year");
+        var releaseDate = source.get("releaseDate");
+        var version = source.get("version");
+        var lastModified = source.get("lastModified");
+        return new MovieInfo(
+                source.get("_id") == null ? null : MovieInfoRepositoryCustomImpl.idToString(source.get("_id")),
+                source.getString("name"),
+                year instanceof Number ? ((Number) year).intValue() : null,
+                casts(source.get("casts")),
+                releaseDate instanceof Date ? LocalDate.ofInstant(((Date) releaseDate).toInstant(), this.zone) : null,
+                version instanceof Number ? ((Number) version).longValue() : null,
+                lastModified instanceof Date ? ((Date) lastModified).toInstant() : null);
+    }
+
+    private List<String> casts(Object value) {
+        if (!(value instanceof List)) {
+            return null;
+        }
+        var names = (List<?>) value;
+        var casts = new String[names.size()];
+        boolean hasNull = false;
+        for (int i = 0; i < casts.length; i++) {
+            var name = names.get(i);
+            casts[i] = name == null ? null : this.castNamePool.intern(name.toString());
+            hasNull |= name == null;
+        }
+        return immutableList(casts, hasNull);
+    }
+
+    // List.of rejects null elements, which only documents written around the validation can have
+    static List<String> immutableList(String[] casts, boolean hasNull) {
+        return hasNull ? Collections.unmodifiableList(Arrays.asList(casts)) : List.of(casts);
+    }
+}
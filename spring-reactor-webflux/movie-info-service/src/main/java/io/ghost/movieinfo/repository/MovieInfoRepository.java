@@ -1,7 +1,23 @@
 package io.ghost.movieinfo.repository;
 
 import io.ghost.movieinfo.domain.MovieInfo;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
-public interface MovieInfoRepository extends ReactiveMongoRepository<MovieInfo, String> {
+public interface MovieInfoRepository extends ReactiveMongoRepository<MovieInfo, String>, MovieInfoRepositoryCustom {
+
+    // Served by the year_id compound index
+    Flux<MovieInfo> findByYear(Integer year, Pageable pageable);
+
+    Flux<MovieInfo> findByCasts(String cast, Pageable pageable);
+
+    @Query("{ 'year': ?0, 'casts': ?1 }")
+    Flux<MovieInfo> findByYearAndCast(Integer year, String cast, Pageable pageable);
+
+    // Only _id, version and lastModified, enough to answer conditional requests
+    @Query(fields = "{ 'version': 1, 'lastModified': 1 }")
+    Mono<MovieInfo> findVersionById(String movieInfoId);
 }
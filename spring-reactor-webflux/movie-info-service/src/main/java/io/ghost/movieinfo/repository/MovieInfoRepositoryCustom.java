@@ -0,0 +1,77 @@
+package io.ghost.movieinfo.repository;
+
+import io.ghost.movieinfo.domain.MovieInfo;
+import io.ghost.movieinfo.domain.MovieInfoBulkResult;
+import io.ghost.movieinfo.domain.MovieInfoCastCount;
+import io.ghost.movieinfo.domain.MovieInfoCursor;
+import io.ghost.movieinfo.domain.MovieInfoSort;
+import io.ghost.movieinfo.domain.MovieInfoSummary;
+import io.ghost.movieinfo.domain.MovieInfoYearCount;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Queries and writes that cannot be expressed as derived repository methods.
+ * Implemented by {@link MovieInfoRepositoryCustomImpl} on top of the ReactiveMongoTemplate.
+ */
+public interface MovieInfoRepositoryCustom {
+
+    /**
+     * Upserts the whole batch with one unordered bulkWrite. Records without an id get a new ObjectId,
+     * existing documents are replaced field by field and get their version incremented.
+     */
+    Mono<MovieInfoBulkResult> bulkUpsert(List<MovieInfo> movieInfos);
+
+    /**
+     * One record of {@link #bulkUpsert}: inserted, or replaced with its version incremented whatever version
+     * the record carries. Returns the document as written.
+     */
+    Mono<MovieInfo> upsert(MovieInfo movieInfo);
+
+    /**
+     * Keyset page: up to {@code limit} documents strictly after {@code after} (null for the first page)
+     * in {@code sort} order. Only {@code fields} are loaded when given, _id is always included.
+     */
+    Flux<MovieInfo> findPage(MovieInfoSort sort, MovieInfoCursor after, int limit, Collection<String> fields);
+
+    /**
+     * Every document, like findAll, but decoded straight from BSON by {@link MovieInfoBsonCodec}. For
+     * exports, where the documents are encoded once and dropped.
+     */
+    Flux<MovieInfo> streamAll();
+
+    /**
+     * Up to {@code limit} summaries in id order after {@code after} (null for the first), optionally of one
+     * year only. Only _id, name and year are read.
+     */
+    Flux<MovieInfoSummary> findSummaries(Integer year, String after, int limit);
+
+    /**
+     * Full text search on the name, best matches first, optionally narrowed down by year and cast member.
+     */
+    Flux<MovieInfo> searchByName(String name, Integer year, String cast, int limit);
+
+    /**
+     * Same as findById, but read from a secondary when one is available. Used to hedge slow primary reads.
+     */
+    Mono<MovieInfo> findByIdOnSecondary(String id);
+
+    /**
+     * Number of titles per year in year order, counted by an aggregation on the server.
+     */
+    Flux<MovieInfoYearCount> countByYear();
+
+    /**
+     * The {@code limit} cast members appearing in the most titles, most frequent first.
+     */
+    Flux<MovieInfoCastCount> countByCast(int limit);
+
+    /**
+     * Gives documents written before versioning was introduced version 0, returns how many were updated.
+     * Runs once per database: a marker in the migrations collection makes later calls complete empty.
+     */
+    Mono<Long> initializeVersions();
+}
@@ -0,0 +1,338 @@
+package io.ghost.movieinfo.repository;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ReadPreference;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.WriteModel;
+import com.mongodb.client.result.UpdateResult;
+import io.ghost.movieinfo.config.MovieInfoProperties;
+import io.ghost.movieinfo.domain.MovieInfo;
+import io.ghost.movieinfo.domain.MovieInfoBulkResult;
+import io.ghost.movieinfo.domain.MovieInfoCastCount;
+import io.ghost.movieinfo.domain.MovieInfoCursor;
+import io.ghost.movieinfo.domain.MovieInfoSort;
+import io.ghost.movieinfo.domain.MovieInfoSummary;
+import io.ghost.movieinfo.domain.MovieInfoYearCount;
+import io.ghost.movieinfo.validation.CastNamePool;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonType;
+import org.bson.Document;
+import org.bson.codecs.configuration.CodecRegistries;
+import org.bson.types.ObjectId;
+import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.TextCriteria;
+import org.springframework.data.mongodb.core.query.TextQuery;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@Slf4j
+public class MovieInfoRepositoryCustomImpl implements MovieInfoRepositoryCustom {
+
+    private static final BulkWriteOptions UNORDERED = new BulkWriteOptions().ordered(false);
+
+    private static final UpdateOptions UPSERT = new UpdateOptions().upsert(true);
+
+    private static final FindOneAndUpdateOptions UPSERT_RETURNING_NEW = new FindOneAndUpdateOptions()
+            .upsert(true)
+            .returnDocument(ReturnDocument.AFTER);
+
+    private static final String MIGRATIONS_COLLECTION = "migrations";
+
+    private static final String VERSIONS_MIGRATION = "movieInfo.version";
+
+    // $group and $sort may spill to disk instead of failing at the 100MB stage limit on a large catalog
+    private static final AggregationOptions ALLOW_DISK_USE = AggregationOptions.builder().allowDiskUse(true).build();
+
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
+
+    // Same database and mapping, but queries honour movie-info.mongo.read-preference
+    private final ReactiveMongoTemplate readMongoTemplate;
+
+    // Hedged reads go to a secondary, whatever the configured read preference is
+    private final ReactiveMongoTemplate secondaryMongoTemplate;
+
+    private final ReadPreference readPreference;
+
+    private final CastNamePool castNamePool;
+
+    // Mapped fields a bulk record replaces; the ones it leaves out are unset like a full replace would
+    private final List<String> replacedFields = new ArrayList<>();
+
+    private final String versionField;
+
+    private final String lastModifiedField;
+
+    public MovieInfoRepositoryCustomImpl(ReactiveMongoTemplate reactiveMongoTemplate,
+                                         MovieInfoProperties movieInfoProperties,
+                                         CastNamePool castNamePool) {
+        this.reactiveMongoTemplate = reactiveMongoTemplate;
+        var readPreference = ReadPreference.valueOf(movieInfoProperties.getMongo().getReadPreference());
+        this.readPreference = readPreference;
+        this.castNamePool = castNamePool;
+        if (readPreference.equals(ReadPreference.primary())) {
+            this.readMongoTemplate = reactiveMongoTemplate;
+        } else {
+            this.readMongoTemplate = new ReactiveMongoTemplate(reactiveMongoTemplate.getMongoDatabaseFactory(),
+                    reactiveMongoTemplate.getConverter());
+            this.readMongoTemplate.setReadPreference(readPreference);
+        }
+        if (readPreference.equals(ReadPreference.secondaryPreferred())) {
+            this.secondaryMongoTemplate = this.readMongoTemplate;
+        } else {
+            this.secondaryMongoTemplate = new ReactiveMongoTemplate(reactiveMongoTemplate.getMongoDatabaseFactory(),
+                    reactiveMongoTemplate.getConverter());
+            this.secondaryMongoTemplate.setReadPreference(ReadPreference.secondaryPreferred());
+        }
+
+        var entity = reactiveMongoTemplate.getConverter().getMappingContext()
+                .getRequiredPersistentEntity(MovieInfo.class);
+        this.versionField = entity.getRequiredVersionProperty().getFieldName();
+        String lastModifiedField = null;
+        for (MongoPersistentProperty property : entity) {
+            if (property.isAnnotationPresent(LastModifiedDate.class)) {
+                lastModifiedField = property.getFieldName();
+            } else if (!property.isIdProperty() && !property.isVersionProperty()) {
+                this.replacedFields.add(property.getFieldName());
+            }
+        }
+        this.lastModifiedField = lastModifiedField;
+    }
+
+    @Override
+    public Mono<MovieInfoBulkResult> bulkUpsert(List<MovieInfo> movieInfos) {
+        if (movieInfos.isEmpty()) {
+            return Mono.just(MovieInfoBulkResult.builder().failedIds(List.of()).build());
+        }
+        var ids = new ArrayList<String>(movieInfos.size());
+        var writes = new ArrayList<WriteModel<Document>>(movieInfos.size());
+        for (MovieInfo movieInfo : movieInfos) {
+            var document = new Document();
+            var id = toDocument(movieInfo, document);
+            ids.add(idToString(id));
+            writes.add(new UpdateOneModel<>(Filters.eq("_id", id), versionedReplace(document), UPSERT));
+        }
+
+        return this.reactiveMongoTemplate.getCollection(this.reactiveMongoTemplate.getCollectionName(MovieInfo.class))
+                .flatMap(collection -> Mono.from(collection.bulkWrite(writes, UNORDERED)))
+                .map(result -> MovieInfoBulkResult.builder()
+                        .accepted(ids.size())
+                        .failedIds(List.of())
+                        .build())
+                // Unordered writes keep going past a bad record, so only the reported indexes failed
+                .onErrorResume(MongoBulkWriteException.class, e -> {
+                    var failedIds = e.getWriteErrors().stream()
+                            .map(BulkWriteError::getIndex)
+                            .map(ids::get)
+                            .collect(Collectors.toList());
+                    return Mono.just(MovieInfoBulkResult.builder()
+                            .accepted(ids.size() - failedIds.size())
+                            .failed(failedIds.size())
+                            .failedIds(failedIds)
+                            .build());
+                })
+                .onErrorResume(e -> {
+                    log.error("Bulk write of {} movie infos failed", ids.size(), e);
+                    return Mono.just(MovieInfoBulkResult.builder()
+                            .failed(ids.size())
+                            .failedIds(ids)
+                            .build());
+                });
+    }
+
+    @Override
+    public Mono<MovieInfo> upsert(MovieInfo movieInfo) {
+        var document = new Document();
+        var id = toDocument(movieInfo, document);
+        var update = versionedReplace(document);
+        return this.reactiveMongoTemplate.getCollection(this.reactiveMongoTemplate.getCollectionName(MovieInfo.class))
+                .flatMap(collection -> Mono.from(collection.findOneAndUpdate(Filters.eq("_id", id), update,
+                        UPSERT_RETURNING_NEW)))
+                .map(written -> this.reactiveMongoTemplate.getConverter().read(MovieInfo.class, written));
+    }
+
+    // Writes the record into document without its _id and returns that, a new ObjectId when it has none
+    private Object toDocument(MovieInfo movieInfo, Document document) {
+        this.reactiveMongoTemplate.getConverter().write(movieInfo, document);
+        var id = document.remove("_id");
+        return id == null ? new ObjectId() : id;
+    }
+
+    @Override
+    public Flux<MovieInfo> findPage(MovieInfoSort sort, MovieInfoCursor after, int limit, Collection<String> fields) {
+        var query = new Query().limit(limit);
+        if (sort == MovieInfoSort.YEAR) {
+            query.with(Sort.by(Sort.Direction.ASC, "year", "_id"));
+            if (after != null) {
+                query.addCriteria(yearAfter(after.getYear(), after.getMovieInfoId()));
+            }
+        } else {
+            query.with(Sort.by(Sort.Direction.ASC, "_id"));
+            if (after != null) {
+                query.addCriteria(idAfter(after.getMovieInfoId()));
+            }
+        }
+        if (fields != null && !fields.isEmpty()) {
+            query.fields().include(fields.toArray(new String[0]));
+        }
+        return this.readMongoTemplate.find(query, MovieInfo.class);
+    }
+
+    @Override
+    public Flux<MovieInfo> streamAll() {
+        return this.reactiveMongoTemplate.getCollection(this.reactiveMongoTemplate.getCollectionName(MovieInfo.class))
+                .flatMapMany(collection -> {
+                    var codec = new MovieInfoBsonCodec(this.castNamePool, this.reactiveMongoTemplate.getConverter(),
+                            collection.getCodecRegistry());
+                    return collection
+                            .withReadPreference(this.readPreference)
+                            .withDocumentClass(MovieInfo.class)
+                            .withCodecRegistry(CodecRegistries.fromRegistries(
+                                    CodecRegistries.fromCodecs(codec), collection.getCodecRegistry()))
+                            .find();
+                });
+    }
+
+    // With a year the year_id index serves both the filter and the order, without it the _id index
+    @Override
+    public Flux<MovieInfoSummary> findSummaries(Integer year, String after, int limit) {
+        var query = new Query()
+                .with(Sort.by(Sort.Direction.ASC, "_id"))
+                .limit(limit);
+        if (year != null) {
+            query.addCriteria(Criteria.where("year").is(year));
+        }
+        if (after != null) {
+            query.addCriteria(idAfter(after));
+        }
+        return this.readMongoTemplate.query(MovieInfo.class)
+                .as(MovieInfoSummary.class)
+                .matching(query)
+                .all();
+    }
+
+    @Override
+    public Flux<MovieInfo> searchByName(String name, Integer year, String cast, int limit) {
+        var query = TextQuery.queryText(TextCriteria.forDefaultLanguage().matching(name))
+                .sortByScore()
+                .limit(limit);
+        if (year != null) {
+            query.addCriteria(Criteria.where("year").is(year));
+        }
+        if (cast != null) {
+            query.addCriteria(Criteria.where("casts").is(cast));
+        }
+        return this.readMongoTemplate.find(query, MovieInfo.class);
+    }
+
+    @Override
+    public Mono<MovieInfo> findByIdOnSecondary(String id) {
+        return this.secondaryMongoTemplate.findById(id, MovieInfo.class);
+    }
+
+    @Override
+    public Flux<MovieInfoYearCount> countByYear() {
+        var aggregation = Aggregation.newAggregation(MovieInfo.class,
+                        Aggregation.group("year").count().as("count"),
+                        Aggregation.sort(Sort.Direction.ASC, "_id"),
+                        Aggregation.project("count").and("year").previousOperation())
+                .withOptions(ALLOW_DISK_USE);
+        return this.readMongoTemplate.aggregate(aggregation, MovieInfoYearCount.class);
+    }
+
+    // The sort on the group output is followed by the limit, so the server only keeps the top entries
+    @Override
+    public Flux<MovieInfoCastCount> countByCast(int limit) {
+        var aggregation = Aggregation.newAggregation(MovieInfo.class,
+                        Aggregation.unwind("casts"),
+                        Aggregation.group("casts").count().as("count"),
+                        Aggregation.sort(Sort.by(Sort.Direction.DESC, "count").and(Sort.by(Sort.Direction.ASC, "_id"))),
+                        Aggregation.limit(limit),
+                        Aggregation.project("count").and("cast").previousOperation())
+                .withOptions(ALLOW_DISK_USE);
+        return this.readMongoTemplate.aggregate(aggregation, MovieInfoCastCount.class);
+    }
+
+    // $set instead of a replacement so the version can be incremented and lastModified stamped server side
+    private Document versionedReplace(Document document) {
+        document.remove(this.versionField);
+        document.remove(this.lastModifiedField);
+        var unset = new Document();
+        for (String field : this.replacedFields) {
+            if (!document.containsKey(field)) {
+                unset.put(field, "");
+            }
+        }
+        var update = new Document("$inc", new Document(this.versionField, 1L))
+                .append("$currentDate", new Document(this.lastModifiedField, true));
+        if (!document.isEmpty()) {
+            update.append("$set", document);
+        }
+        if (!unset.isEmpty()) {
+            update.append("$unset", unset);
+        }
+        return update;
+    }
+
+    @Override
+    public Mono<Long> initializeVersions() {
+        // The filter matches no index, so without the marker every startup would scan the collection
+        var marker = Query.query(Criteria.where("_id").is(VERSIONS_MIGRATION));
+        return this.reactiveMongoTemplate.exists(marker, MIGRATIONS_COLLECTION)
+                .filter(done -> !done)
+                .flatMap(pending -> this.reactiveMongoTemplate.updateMulti(
+                        Query.query(Criteria.where(this.versionField).exists(false)),
+                        new Update().set(this.versionField, 0L), MovieInfo.class))
+                .map(UpdateResult::getModifiedCount)
+                .flatMap(count -> this.reactiveMongoTemplate.upsert(marker, new Update().currentDate("completedAt"),
+                                MIGRATIONS_COLLECTION)
+                        .thenReturn(count));
+    }
+
+    private static Criteria yearAfter(Integer year, String movieInfoId) {
+        // Missing years sort first, so a null year cursor is followed by the rest of the nulls and then every year
+        if (year == null) {
+            return new Criteria().orOperator(
+                    new Criteria().andOperator(Criteria.where("year").is(null), idAfter(movieInfoId)),
+                    Criteria.where("year").ne(null));
+        }
+        return new Criteria().orOperator(
+                Criteria.where("year").gt(year),
+                new Criteria().andOperator(Criteria.where("year").is(year), idAfter(movieInfoId)));
+    }
+
+    /**
+     * Ids are a mix of client supplied strings and generated ObjectIds. Range operators only compare values
+     * of the same BSON type and strings sort before ObjectIds, so after a string id every ObjectId still follows.
+     */
+    private static Criteria idAfter(String movieInfoId) {
+        if (ObjectId.isValid(movieInfoId)) {
+            return Criteria.where("_id").gt(new ObjectId(movieInfoId));
+        }
+        return new Criteria().orOperator(
+                Criteria.where("_id").gt(movieInfoId),
+                Criteria.where("_id").type(BsonType.OBJECT_ID.getValue()));
+    }
+
+    static String idToString(Object id) {
+        return id instanceof ObjectId ? ((ObjectId) id).toHexString() : String.valueOf(id);
+    }
+}
@@ -0,0 +1,363 @@
+package io.ghost.movieinfo.resilience;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mongodb.MongoSocketException;
+import com.mongodb.MongoTimeoutException;
+import io.ghost.movieinfo.config.MovieInfoProperties;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Per-operation policies around repository calls (movie-info.resilience). Every call gets a timeout and goes
+ * through one circuit breaker shared by all operations, since they all fail together when Mongo does. Reads
+ * are idempotent and are additionally retried with jittered exponential backoff, can be hedged to a
+ * secondary once they take longer than the observed p95, and can fall back to the last value read for the
+ * same key. Only connection failures and timeouts count as failures; everything else is an answer.
+ * <p>
+ * Failures the caller cannot do anything about (timeouts, an open circuit, an unreachable server) surface as
+ * 503, which also makes the concurrency limiter back off.
+ */
+@Slf4j
+@Component
+public class MovieInfoResilience {
+
+    public static final String CIRCUIT_BREAKER_NAME = "movieInfoRepository";
+
+    // Latency of successful attempts per operation; its percentile is the hedge delay
+    public static final String LATENCY_METRICS_NAME = "movie-info.repository";
+
+    // movie-info.resilience.events{operation, event=retry|timeout|hedge|stale-fallback|rejected}
+    public static final String EVENTS_METRICS_NAME = "movie-info.resilience.events";
+
+    private static final long HEDGE_DELAY_REFRESH_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final MovieInfoProperties.Resilience properties;
+
+    private final MeterRegistry meterRegistry;
+
+    private final CircuitBreaker circuitBreaker;
+
+    private final Cache<String, Object> staleValues;
+
+    private final Map<String, Operation> operations = new ConcurrentHashMap<>();
+
+    public MovieInfoResilience(MovieInfoProperties movieInfoProperties, MeterRegistry meterRegistry) {
+        this.properties = movieInfoProperties.getResilience();
+        this.meterRegistry = meterRegistry;
+
+        var breaker = this.properties.getCircuitBreaker();
+        var circuitBreakerRegistry = CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+                .failureRateThreshold(breaker.getFailureRateThreshold())
+                .slowCallRateThreshold(breaker.getSlowCallRateThreshold())
+                .slowCallDurationThreshold(breaker.getSlowCallDurationThreshold())
+                .slidingWindowSize(breaker.getSlidingWindowSize())
+                .minimumNumberOfCalls(breaker.getMinimumNumberOfCalls())
+                .waitDurationInOpenState(breaker.getWaitDurationInOpenState())
+                .permittedNumberOfCallsInHalfOpenState(breaker.getPermittedCallsInHalfOpenState())
+                .recordException(MovieInfoResilience::isBackendFailure)
+                .build());
+        this.circuitBreaker = circuitBreakerRegistry.circuitBreaker(CIRCUIT_BREAKER_NAME);
+        this.circuitBreaker.getEventPublisher().onStateTransition(event ->
+                log.warn("Circuit breaker {}: {}", CIRCUIT_BREAKER_NAME, event.getStateTransition()));
+        // resilience4j.circuitbreaker.state, .calls{kind=successful|failed|ignored|not_permitted}, ...
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(circuitBreakerRegistry).bindTo(meterRegistry);
+
+        var stale = this.properties.getStaleFallback();
+        this.staleValues = Caffeine.newBuilder()
+                .maximumSize(stale.getMaximumSize())
+                .expireAfterWrite(stale.getMaximumAge())
+                .build();
+    }
+
+    public <T> Mono<T> read(String operation, Supplier<Mono<T>> call) {
+        return read(operation, null, call, null);
+    }
+
+    /**
+     * An idempotent read. {@code staleKey} identifies the result for the stale fallback (null disables it),
+     * {@code hedge} is the same read against a secondary (null disables hedging).
+     */
+    public <T> Mono<T> read(String operation, String staleKey, Supplier<Mono<T>> call, Supplier<Mono<T>> hedge) {
+        if (!this.properties.isEnabled()) {
+            return Mono.defer(call);
+        }
+        var op = operation(operation);
+        var policy = op.policy;
+
+        Mono<T> attempt = attempt(op, call, true);
+        if (hedge != null && policy.getHedged()) {
+            var primary = attempt;
+            var secondary = Mono.defer(() -> Mono.delay(op.hedgeDelay()))
+                    .doOnNext(tick -> op.event(Event.HEDGE))
+                    .then(attempt(op, hedge, false));
+            // Whichever answers first wins, the other one is cancelled
+            attempt = Mono.firstWithSignal(primary, secondary);
+        }
+
+        var result = guarded(op, attempt)
+                .retryWhen(retry(op).filter(MovieInfoResilience::isBackendFailure));
+        if (staleKey != null && policy.getStaleFallback()) {
+            var key = operation + '\0' + staleKey;
+            result = result
+                    .doOnSuccess(value -> {
+                        if (value == null) {
+                            this.staleValues.invalidate(key);
+                        } else {
+                            this.staleValues.put(key, value);
+                        }
+                    })
+                    .onErrorResume(MovieInfoResilience::isUnavailable, e -> staleValue(op, key, e));
+        }
+        return result.onErrorMap(MovieInfoResilience::isUnavailable, MovieInfoResilience::unavailable);
+    }
+
+    /**
+     * A read that streams. The timeout applies until the first element and a failure is only retried
+     * before anything was emitted, so the caller never sees an element twice. The circuit breaker records
+     * the time to the first element rather than the length of the stream.
+     */
+    public <T> Flux<T> readMany(String operation, Supplier<Flux<T>> call) {
+        if (!this.properties.isEnabled()) {
+            return Flux.defer(call);
+        }
+        var op = operation(operation);
+        return Flux.defer(() -> {
+            var emitted = new AtomicBoolean();
+            return Flux.defer(() -> firstElementGuarded(op, call))
+                    .doOnNext(item -> emitted.set(true))
+                    .retryWhen(retry(op).filter(e -> !emitted.get() && isBackendFailure(e)))
+                    .onErrorMap(MovieInfoResilience::isUnavailable, MovieInfoResilience::unavailable);
+        });
+    }
+
+    /**
+     * A write: timeout and circuit breaker, never retried since a timed out write may still have been applied.
+     */
+    public <T> Mono<T> write(String operation, Supplier<Mono<T>> call) {
+        if (!this.properties.isEnabled()) {
+            return Mono.defer(call);
+        }
+        var op = operation(operation);
+        return guarded(op, attempt(op, call, true))
+                .onErrorMap(MovieInfoResilience::isUnavailable, MovieInfoResilience::unavailable);
+    }
+
+    /**
+     * Forgets the fallback value of a read, e.g. after the document it returned was deleted.
+     */
+    public void evictStale(String operation, String staleKey) {
+        this.staleValues.invalidate(operation + '\0' + staleKey);
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return this.circuitBreaker;
+    }
+
+    MovieInfoProperties.Policy policy(String operation) {
+        return operation(operation).policy;
+    }
+
+    private <T> Mono<T> attempt(Operation op, Supplier<Mono<T>> call, boolean recordLatency) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            var attempt = Mono.defer(call).timeout(op.policy.getTimeout());
+            if (recordLatency) {
+                attempt = attempt.doOnSuccess(value -> op.latency.record(System.nanoTime() - start,
+                        TimeUnit.NANOSECONDS));
+            }
+            return attempt.doOnError(TimeoutException.class, e -> op.event(Event.TIMEOUT));
+        });
+    }
+
+    private <T> Mono<T> guarded(Operation op, Mono<T> call) {
+        return call.transformDeferred(CircuitBreakerOperator.of(this.circuitBreaker))
+                .doOnError(CallNotPermittedException.class, e -> op.event(Event.REJECTED));
+    }
+
+    private <T> Flux<T> firstElementGuarded(Operation op, Supplier<Flux<T>> call) {
+        if (!this.circuitBreaker.tryAcquirePermission()) {
+            op.event(Event.REJECTED);
+            return Flux.error(CallNotPermittedException.createCallNotPermittedException(this.circuitBreaker));
+        }
+        long start = System.nanoTime();
+        var recorded = new AtomicBoolean();
+        return Flux.defer(call)
+                .timeout(Mono.delay(op.policy.getTimeout()), item -> Mono.never())
+                .doOnNext(item -> {
+                    if (recorded.compareAndSet(false, true)) {
+                        this.circuitBreaker.onSuccess(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    }
+                })
+                .doOnComplete(() -> {
+                    if (recorded.compareAndSet(false, true)) {
+                        this.circuitBreaker.onSuccess(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    }
+                })
+                .doOnError(e -> {
+                    if (e instanceof TimeoutException) {
+                        op.event(Event.TIMEOUT);
+                    }
+                    if (recorded.compareAndSet(false, true)) {
+                        this.circuitBreaker.onError(System.nanoTime() - start, TimeUnit.NANOSECONDS, e);
+                    }
+                })
+                .doOnCancel(() -> {
+                    if (recorded.compareAndSet(false, true)) {
+                        this.circuitBreaker.releasePermission();
+                    }
+                });
+    }
+
+    private Retry retry(Operation op) {
+        var policy = op.policy;
+        return Retry.backoff(policy.getMaxRetries(), policy.getRetryBackoff())
+                .maxBackoff(policy.getMaxRetryBackoff())
+                .jitter(policy.getRetryJitter())
+                .doBeforeRetry(signal -> op.event(Event.RETRY))
+                .onRetryExhaustedThrow((spec, signal) -> signal.failure());
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> Mono<T> staleValue(Operation op, String key, Throwable error) {
+        var value = (T) this.staleValues.getIfPresent(key);
+        if (value == null) {
+            return Mono.error(error);
+        }
+        op.event(Event.STALE_FALLBACK);
+        return Mono.just(value);
+    }
+
+    private Operation operation(String name) {
+        return this.operations.computeIfAbsent(name, Operation::new);
+    }
+
+    /**
+     * The operation's own settings, with the ones it leaves out taken from the defaults.
+     */
+    private MovieInfoProperties.Policy merged(String operation) {
+        var defaults = this.properties.getDefaults();
+        var own = this.properties.getOperations().get(operation);
+        if (own == null) {
+            return defaults;
+        }
+        return new MovieInfoProperties.Policy(
+                own.getTimeout() != null ? own.getTimeout() : defaults.getTimeout(),
+                own.getMaxRetries() != null ? own.getMaxRetries() : defaults.getMaxRetries(),
+                own.getRetryBackoff() != null ? own.getRetryBackoff() : defaults.getRetryBackoff(),
+                own.getMaxRetryBackoff() != null ? own.getMaxRetryBackoff() : defaults.getMaxRetryBackoff(),
+                own.getRetryJitter() != null ? own.getRetryJitter() : defaults.getRetryJitter(),
+                own.getHedged() != null ? own.getHedged() : defaults.getHedged(),
+                own.getStaleFallback() != null ? own.getStaleFallback() : defaults.getStaleFallback());
+    }
+
+    /**
+     * Connection failures and timeouts: worth retrying, and what the circuit breaker counts as failures.
+     * Not found, duplicate keys and version conflicts are answers from a healthy server.
+     */
+    static boolean isBackendFailure(Throwable e) {
+        return e instanceof TimeoutException
+                || e instanceof DataAccessResourceFailureException
+                || e instanceof QueryTimeoutException
+                || e instanceof TransientDataAccessResourceException
+                || e instanceof MongoSocketException
+                || e instanceof MongoTimeoutException;
+    }
+
+    private static boolean isUnavailable(Throwable e) {
+        return isBackendFailure(e) || e instanceof CallNotPermittedException;
+    }
+
+    private static ResponseStatusException unavailable(Throwable e) {
+        return new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "movie info store unavailable", e);
+    }
+
+    private enum Event {
+        RETRY, TIMEOUT, HEDGE, STALE_FALLBACK, REJECTED;
+
+        String tag() {
+            return name().toLowerCase(Locale.ROOT).replace('_', '-');
+        }
+    }
+
+    private final class Operation {
+
+        private final MovieInfoProperties.Policy policy;
+
+        private final Timer latency;
+
+        private final Map<Event, Counter> events = new EnumMap<>(Event.class);
+
+        private volatile long hedgeDelayNanos;
+
+        private volatile long hedgeDelayComputedAt;
+
+        private Operation(String name) {
+            this.policy = merged(name);
+            this.latency = Timer.builder(LATENCY_METRICS_NAME)
+                    .tag("operation", name)
+                    .publishPercentiles(properties.getHedge().getPercentile())
+                    .register(meterRegistry);
+            for (Event event : Event.values()) {
+                this.events.put(event, Counter.builder(EVENTS_METRICS_NAME)
+                        .tag("operation", name)
+                        .tag("event", event.tag())
+                        .register(meterRegistry));
+            }
+            this.hedgeDelayComputedAt = System.nanoTime() - HEDGE_DELAY_REFRESH_NANOS;
+        }
+
+        void event(Event event) {
+            this.events.get(event).increment();
+        }
+
+        /**
+         * The latency percentile of recent successful attempts within [minDelay, maxDelay], recomputed at
+         * most once a second. maxDelay until there are measurements.
+         */
+        Duration hedgeDelay() {
+            long now = System.nanoTime();
+            if (now - this.hedgeDelayComputedAt >= HEDGE_DELAY_REFRESH_NANOS) {
+                var hedge = properties.getHedge();
+                long minDelay = hedge.getMinDelay().toNanos();
+                long maxDelay = hedge.getMaxDelay().toNanos();
+                long delay = maxDelay;
+                var percentiles = this.latency.takeSnapshot().percentileValues();
+                if (percentiles.length > 0 && percentiles[0].value() > 0) {
+                    delay = Math.max(minDelay, Math.min(maxDelay,
+                            (long) percentiles[0].value(TimeUnit.NANOSECONDS)));
+                }
+                this.hedgeDelayNanos = delay;
+                this.hedgeDelayComputedAt = now;
+            }
+            return Duration.ofNanos(this.hedgeDelayNanos);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package io.ghost.movieinfo.scheduling;
+
+import io.ghost.movieinfo.config.MovieInfoProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Named schedulers per kind of work, so none of it runs on the Netty event loop and the kinds do not starve
+ * each other: cpu for CPU bound work, streaming for delivering long lived streams to their subscribers and
+ * blocking for calls that block their thread. Schedulers.enableMetrics() reports each under its name.
+ * <p>
+ * cpu and streaming threads are non-blocking threads, so BlockHound fails the tests on any blocking call
+ * made there. With movie-info.scheduling.virtual-threads on a Java 21+ runtime, blocking work runs on
+ * virtual threads instead of the bounded pool. Reactor 3.4 and the Java 11 build know nothing about them,
+ * so the virtual thread factory is looked up reflectively.
+ */
+@Slf4j
+@Component
+public class MovieInfoSchedulers {
+
+    private final Scheduler cpu;
+
+    private final Scheduler streaming;
+
+    private final Scheduler blocking;
+
+    private final boolean virtualThreads;
+
+    public MovieInfoSchedulers(MovieInfoProperties movieInfoProperties) {
+        var properties = movieInfoProperties.getScheduling();
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        int cpuParallelism = properties.getCpuParallelism() > 0 ? properties.getCpuParallelism() : cores;
+        this.cpu = Schedulers.newParallel("movie-info-cpu", cpuParallelism, true);
+
+        int streamingParallelism = properties.getStreamingParallelism() > 0
+                ? properties.getStreamingParallelism() : Math.max(2, cores / 2);
+        this.streaming = Schedulers.newParallel("movie-info-streaming", streamingParallelism, true);
+
+        var virtualThreadFactory = properties.isVirtualThreads() ? virtualThreadFactory("movie-info-blocking") : null;
+        if (properties.isVirtualThreads() && virtualThreadFactory == null) {
+            log.warn("movie-info.scheduling.virtual-threads needs Java 21 or later, running {} on a bounded pool",
+                    System.getProperty("java.version"));
+        }
+        this.virtualThreads = virtualThreadFactory != null;
+        if (this.virtualThreads) {
+            this.blocking = Schedulers.fromExecutorService(threadPerTaskExecutor(virtualThreadFactory),
+                    "movie-info-blocking");
+        } else {
+            int threadCap = properties.getBlockingThreadCap() > 0 ? properties.getBlockingThreadCap() : 10 * cores;
+            this.blocking = Schedulers.newBoundedElastic(threadCap, properties.getBlockingQueuedTaskCap(),
+                    "movie-info-blocking", (int) properties.getBlockingThreadTtl().toSeconds(), true);
+        }
+    }
+
+    public Scheduler cpu() {
+        return this.cpu;
+    }
+
+    public Scheduler streaming() {
+        return this.streaming;
+    }
+
+    /**
+     * For calls that block. Not capable of time based scheduling on virtual threads; use it with
+     * subscribeOn / publishOn only.
+     */
+    public Scheduler blocking() {
+        return this.blocking;
+    }
+
+    public boolean isVirtualThreads() {
+        return this.virtualThreads;
+    }
+
+    /**
+     * A scheduler that may block and runs its tasks one at a time in submission order, for a resource that
+     * must not be used concurrently (a journal file). It takes a thread of blocking, or a virtual thread
+     * named after name. The caller owns and disposes it.
+     */
+    public Scheduler newSerial(String name) {
+        if (this.virtualThreads) {
+            return Schedulers.fromExecutorService(
+                    Executors.newSingleThreadScheduledExecutor(virtualThreadFactory(name)), name);
+        }
+        // One worker of the blocking pool is pinned to one of its threads, so tasks run in order
+        return Schedulers.single(this.blocking);
+    }
+
+    @PreDestroy
+    public void close() {
+        this.cpu.dispose();
+        this.streaming.dispose();
+        this.blocking.dispose();
+    }
+
+    // Thread.ofVirtual().name(prefix + "-", 0).factory(), or null before Java 21
+    private static ThreadFactory virtualThreadFactory(String prefix) {
+        try {
+            var builderType = Class.forName("java.lang.Thread$Builder");
+            var builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, prefix + "-", 0L);
+            return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    // Executors.newThreadPerTaskExecutor(factory): virtual threads are cheap and must not be pooled
+    private static ExecutorService threadPerTaskExecutor(ThreadFactory threadFactory) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                    .invoke(null, threadFactory);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Virtual threads are available but newThreadPerTaskExecutor is not", e);
+        }
+    }
+}
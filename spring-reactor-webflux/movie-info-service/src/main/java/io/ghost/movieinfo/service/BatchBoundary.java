@@ -0,0 +1,96 @@
+package io.ghost.movieinfo.service;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Stateful {@code bufferUntil} predicate that closes a batch once it is full or once its first
+ * element is {@code maxAge} old, on a timer, so a partial batch is written even when no further element
+ * comes. Unlike {@code bufferTimeout} in Reactor 3.4 it never emits without downstream demand, so
+ * backpressure reaches the source untouched. One instance per subscription, see {@link #batches}.
+ */
+final class BatchBoundary implements Predicate<Object> {
+
+    private final int maxSize;
+
+    private final long maxAgeNanos;
+
+    // The timer's ticks, merged into the elements so the predicate sees them in order
+    private final Sinks.Many<Tick> ticks = Sinks.many().unicast().onBackpressureBuffer();
+
+    private int size;
+
+    private long openedAt;
+
+    private long batch;
+
+    private Disposable timer;
+
+    private BatchBoundary(int maxSize, Duration maxAge) {
+        this.maxSize = maxSize;
+        this.maxAgeNanos = maxAge.toNanos();
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> Flux<List<T>> batches(Flux<T> source, int maxSize, Duration maxAge) {
+        return Flux.defer(() -> {
+            var boundary = new BatchBoundary(maxSize, maxAge);
+            var elements = source.doOnTerminate(boundary.ticks::tryEmitComplete);
+            return Flux.<Object>merge(elements, boundary.ticks.asFlux())
+                    .bufferUntil(boundary)
+                    .doFinally(signal -> boundary.cancelTimer())
+                    .<List<T>>handle((batch, sink) -> {
+                        batch.removeIf(Tick.class::isInstance);
+                        if (!batch.isEmpty()) {
+                            sink.next((List<T>) batch);
+                        }
+                    });
+        });
+    }
+
+    @Override
+    public boolean test(Object element) {
+        if (element instanceof Tick) {
+            // A tick of a batch closed since is dropped with the next batch
+            return ((Tick) element).batch == this.batch && this.size > 0 && close();
+        }
+        long now = System.nanoTime();
+        if (this.size++ == 0) {
+            this.openedAt = now;
+            long opened = ++this.batch;
+            this.timer = Schedulers.parallel().schedule(() -> this.ticks.emitNext(new Tick(opened),
+                            (signal, result) -> result == Sinks.EmitResult.FAIL_NON_SERIALIZED),
+                    this.maxAgeNanos, TimeUnit.NANOSECONDS);
+        }
+        return (this.size >= this.maxSize || now - this.openedAt >= this.maxAgeNanos) && close();
+    }
+
+    private boolean close() {
+        this.size = 0;
+        cancelTimer();
+        return true;
+    }
+
+    private void cancelTimer() {
+        if (this.timer != null) {
+            this.timer.dispose();
+            this.timer = null;
+        }
+    }
+
+    private static final class Tick {
+
+        private final long batch;
+
+        private Tick(long batch) {
+            this.batch = batch;
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package io.ghost.movieinfo.service;
+
+import com.mongodb.client.model.changestream.FullDocument;
+import io.ghost.movieinfo.config.MovieInfoProperties;
+import io.ghost.movieinfo.domain.MovieInfo;
+import io.ghost.movieinfo.domain.MovieInfoEvent;
+import io.ghost.movieinfo.scheduling.MovieInfoSchedulers;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.springframework.data.mongodb.core.ChangeStreamEvent;
+import org.springframework.data.mongodb.core.ChangeStreamOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+import reactor.util.retry.Retry;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Single MongoDB change stream cursor for the movieInfo collection, shared by every stream subscriber.
+ * Events are multicast through a size limited replay sink; each subscriber gets its own bounded buffer
+ * so a slow client only loses its own events instead of holding back the cursor.
+ */
+@Slf4j
+@Component
+public class MovieInfoChangeStream {
+
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
+
+    private final MovieInfoProperties.Stream properties;
+
+    private final Scheduler streaming;
+
+    private final Sinks.Many<MovieInfoEvent> sink;
+
+    // Resume token -> sequence for the events still held by the replay sink
+    private final Map<String, Long> replayIndex;
+
+    private final AtomicBoolean connected = new AtomicBoolean();
+
+    private volatile BsonValue lastResumeToken;
+
+    private volatile Disposable upstream;
+
+    private volatile long sequence;
+
+    public MovieInfoChangeStream(ReactiveMongoTemplate reactiveMongoTemplate, MovieInfoProperties movieInfoProperties,
+                                 MovieInfoSchedulers movieInfoSchedulers) {
+        this.reactiveMongoTemplate = reactiveMongoTemplate;
+        this.properties = movieInfoProperties.getStream();
+        this.streaming = movieInfoSchedulers.streaming();
+        int replaySize = this.properties.getReplaySize();
+        this.sink = Sinks.many().replay().limit(replaySize);
+        this.replayIndex = new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                return size() > replaySize;
+            }
+        };
+    }
+
+    /**
+     * @param lastEventId id of the last event the client saw, or null to receive only new events
+     */
+    public Flux<MovieInfoEvent> events(String lastEventId) {
+        connectIfNecessary();
+        Flux<MovieInfoEvent> events;
+        if (lastEventId == null) {
+            events = Flux.defer(() -> {
+                long subscribedAt = this.sequence;
+                return this.sink.asFlux().filter(event -> event.getSequence() > subscribedAt);
+            });
+        } else {
+            events = resume(lastEventId);
+        }
+        return withOverflowStrategy(events);
+    }
+
+    private Flux<MovieInfoEvent> resume(String lastEventId) {
+        Long resumedAt;
+        synchronized (this.replayIndex) {
+            resumedAt = this.replayIndex.get(lastEventId);
+        }
+        if (resumedAt != null) {
+            return this.sink.asFlux().filter(event -> event.getSequence() > resumedAt);
+        }
+        // Too old for the replay buffer: this client needs its own cursor to catch up without a reload
+        log.info("Resume token is outside the replay window, opening a dedicated change stream");
+        return changeEvents(decodeResumeToken(lastEventId)).map(this::toEvent);
+    }
+
+    private Flux<MovieInfoEvent> withOverflowStrategy(Flux<MovieInfoEvent> events) {
+        // Each subscriber is served from a streaming thread instead of the one thread reading the cursor, so
+        // encoding for many subscribers does not queue up behind each other
+        events = events.publishOn(this.streaming);
+        int bufferSize = this.properties.getSubscriberBufferSize();
+        switch (this.properties.getOverflowStrategy()) {
+            case LATEST:
+                return events.onBackpressureLatest();
+            case DROP_LATEST:
+                return events.onBackpressureBuffer(bufferSize, this::dropped, BufferOverflowStrategy.DROP_LATEST);
+            default:
+                return events.onBackpressureBuffer(bufferSize, this::dropped, BufferOverflowStrategy.DROP_OLDEST);
+        }
+    }
+
+    private void dropped(MovieInfoEvent event) {
+        log.debug("Dropped event {} for a slow stream subscriber", event.getId());
+    }
+
+    private void connectIfNecessary() {
+        if (this.connected.compareAndSet(false, true)) {
+            this.upstream = Flux.defer(() -> changeEvents(this.lastResumeToken))
+                    .doOnNext(event -> this.lastResumeToken = event.getResumeToken())
+                    .doOnError(e -> log.warn("MovieInfo change stream failed, reconnecting", e))
+                    .retryWhen(Retry.backoff(Long.MAX_VALUE, this.properties.getRetryBackoff())
+                            .maxBackoff(Duration.ofMinutes(1)))
+                    .map(this::toEvent)
+                    .subscribe(this::publish);
+        }
+    }
+
+    private Flux<ChangeStreamEvent<MovieInfo>> changeEvents(BsonValue resumeToken) {
+        var options = ChangeStreamOptions.builder().fullDocumentLookup(FullDocument.UPDATE_LOOKUP);
+        if (resumeToken != null) {
+            options.resumeAfter(resumeToken);
+        }
+        return this.reactiveMongoTemplate.changeStream(
+                this.reactiveMongoTemplate.getCollectionName(MovieInfo.class), options.build(), MovieInfo.class);
+    }
+
+    // Only called from the single upstream subscription, so sequence needs no synchronization on write
+    private void publish(MovieInfoEvent event) {
+        event.setSequence(++this.sequence);
+        synchronized (this.replayIndex) {
+            this.replayIndex.put(event.getId(), event.getSequence());
+        }
+        var result = this.sink.tryEmitNext(event);
+        if (result.isFailure()) {
+            log.warn("Could not publish movie info event {}: {}", event.getId(), result);
+        }
+    }
+
+    private MovieInfoEvent toEvent(ChangeStreamEvent<MovieInfo> changeEvent) {
+        var operationType = changeEvent.getOperationType();
+        var documentKey = changeEvent.getRaw() == null ? null : changeEvent.getRaw().getDocumentKey();
+        return MovieInfoEvent.builder()
+                .id(encodeResumeToken(changeEvent.getResumeToken()))
+                .operationType(operationType == null ? null : operationType.getValue())
+                .movieInfoId(documentKey == null ? null : idToString(documentKey.get("_id")))
+                .movieInfo(changeEvent.getBody())
+                .build();
+    }
+
+    private static String idToString(BsonValue id) {
+        if (id == null) {
+            return null;
+        }
+        return id.isObjectId() ? id.asObjectId().getValue().toHexString() : id.asString().getValue();
+    }
+
+    // Tokens are {_data: "<hex>"} on MongoDB 4.2+; anything else is carried as extended JSON
+    static String encodeResumeToken(BsonValue resumeToken) {
+        var data = resumeToken.asDocument().get("_data");
+        return data != null && data.isString() ? data.asString().getValue() : resumeToken.asDocument().toJson();
+    }
+
+    static BsonValue decodeResumeToken(String id) {
+        return id.startsWith("{") ? BsonDocument.parse(id) : new BsonDocument("_data", new BsonString(id));
+    }
+
+    @PreDestroy
+    void close() {
+        if (this.upstream != null) {
+            this.upstream.dispose();
+        }
+    }
+}
@@ -1,31 +1,421 @@
 package io.ghost.movieinfo.service;
 
+import io.ghost.movieinfo.cache.MovieInfoCache;
+import io.ghost.movieinfo.cache.MovieInfoStatsCache;
+import io.ghost.movieinfo.config.MovieInfoProperties;
 import io.ghost.movieinfo.domain.MovieInfo;
+import io.ghost.movieinfo.domain.MovieInfoBulkResult;
+import io.ghost.movieinfo.domain.MovieInfoCastCount;
+import io.ghost.movieinfo.domain.MovieInfoCursor;
+import io.ghost.movieinfo.domain.MovieInfoETags;
+import io.ghost.movieinfo.domain.MovieInfoEvent;
+import io.ghost.movieinfo.domain.MovieInfoPage;
+import io.ghost.movieinfo.domain.MovieInfoSort;
+import io.ghost.movieinfo.domain.MovieInfoSummary;
+import io.ghost.movieinfo.domain.MovieInfoYearCount;
 import io.ghost.movieinfo.repository.MovieInfoRepository;
+import io.ghost.movieinfo.resilience.MovieInfoResilience;
+import io.ghost.movieinfo.validation.MovieInfoValidator;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import org.springframework.web.server.ResponseStatusException;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+@Slf4j
 @Service
 public class MovieInfoService {
 
+    // Reactor metrics prefix: movie-info.service.flow.duration, .subscribed, .requested, ... tagged by method
+    public static final String METRICS_NAME = "movie-info.service";
+
+    private static final Set<String> PROJECTABLE_FIELDS = Set.of("name", "year", "casts", "releaseDate");
+
+    // Always loaded with a projection, the page validators are computed from them
+    private static final List<String> VERSION_FIELDS = List.of("version", "lastModified");
+
     @Autowired
     private MovieInfoRepository movieInfoRepository;
 
+    @Autowired
+    private MovieInfoProperties movieInfoProperties;
+
+    @Autowired
+    private MovieInfoChangeStream movieInfoChangeStream;
+
+    @Autowired
+    private MovieInfoCache movieInfoCache;
+
+    @Autowired
+    private MovieInfoWriteBehind movieInfoWriteBehind;
+
+    @Autowired
+    private MovieInfoResilience movieInfoResilience;
+
+    @Autowired
+    private MovieInfoValidator movieInfoValidator;
+
+    @Autowired
+    private MovieInfoStatsCache movieInfoStatsCache;
+
+    /**
+     * Normalizes and validates the record (400 listing every violation), then upserts it: an existing id is
+     * replaced and its version incremented. With write-behind enabled it is only journaled and queued, and
+     * written by the same kind of upsert later.
+     */
     public Mono<MovieInfo> persistMovieInfo(MovieInfo movieInfo) {
-        return this.movieInfoRepository.save(movieInfo);
+        return timed(this.movieInfoValidator.validate(movieInfo).flatMap(this::persist), "persistMovieInfo");
+    }
+
+    private Mono<MovieInfo> persist(MovieInfo movieInfo) {
+        if (this.movieInfoWriteBehind.isEnabled()) {
+            return this.movieInfoWriteBehind.accept(movieInfo)
+                    .doOnTerminate(this.movieInfoStatsCache::invalidateAll);
+        }
+        return this.movieInfoResilience.write("upsert", () -> this.movieInfoRepository.upsert(movieInfo))
+                .doOnNext(this.movieInfoCache::put)
+                .doOnTerminate(this.movieInfoStatsCache::invalidateAll);
+    }
+
+    /**
+     * Replaces the document if it is still at the version of the If-Match ETag (any version when
+     * ifMatch is null or *). An invalid record fails with 400, a stale ETag with 412, an unknown id with 404.
+     */
+    public Mono<MovieInfo> updateMovieInfo(String movieInfoId, MovieInfo movieInfo, String ifMatch) {
+        Mono<Long> expectedVersion;
+        if (ifMatch == null || "*".equals(ifMatch.trim())) {
+            expectedVersion = this.movieInfoResilience.read("findVersionById",
+                            () -> this.movieInfoRepository.findVersionById(movieInfoId))
+                    .mapNotNull(MovieInfo::getVersion)
+                    .switchIfEmpty(Mono.error(() -> notFound(movieInfoId)));
+        } else {
+            var version = MovieInfoETags.parseVersion(ifMatch);
+            if (version == null) {
+                return Mono.error(new ResponseStatusException(HttpStatus.PRECONDITION_FAILED,
+                        "If-Match does not match the current version of movie info " + movieInfoId));
+            }
+            expectedVersion = Mono.just(version);
+        }
+        return timed(this.movieInfoValidator.validate(movieInfo)
+                .then(expectedVersion)
+                .flatMap(version -> {
+                    movieInfo.setMovieInfoId(movieInfoId);
+                    movieInfo.setVersion(version);
+                    return this.movieInfoResilience.write("save", () -> this.movieInfoRepository.save(movieInfo))
+                            .doOnTerminate(this.movieInfoStatsCache::invalidateAll);
+                })
+                .doOnNext(this.movieInfoCache::put)
+                .onErrorResume(OptimisticLockingFailureException.class, e -> {
+                    this.movieInfoCache.invalidate(movieInfoId);
+                    return this.movieInfoResilience.read("existsById",
+                                    () -> this.movieInfoRepository.existsById(movieInfoId))
+                            .flatMap(exists -> Mono.error(exists
+                                    ? new ResponseStatusException(HttpStatus.PRECONDITION_FAILED,
+                                    "movie info " + movieInfoId + " was modified, fetch it again", e)
+                                    : notFound(movieInfoId)));
+                }), "updateMovieInfo");
+    }
+
+    /**
+     * Groups the incoming records into size/time bounded batches and writes them one batch at a time,
+     * so demand on the source (the request body) only grows as fast as Mongo acknowledges batches.
+     * Invalid records are left out of the write and reported with their position in the request; large
+     * batches are validated and converted to BSON on the cpu scheduler rather than the event loop.
+     */
+    public Flux<MovieInfoBulkResult> bulkPersistMovieInfos(Flux<MovieInfo> movieInfos) {
+        var bulk = this.movieInfoProperties.getBulk();
+        var batches = BatchBoundary.batches(movieInfos, bulk.getBatchSize(), bulk.getBatchTimeout());
+        return timed(Flux.defer(() -> {
+            var position = new AtomicLong();
+            return batches
+                    .index()
+                    .concatMap(batch -> this.movieInfoValidator
+                            .validateBatch(batch.getT2(), position.getAndAdd(batch.getT2().size()))
+                            .flatMap(validated -> timed(bulkUpsert(validated.getValid()), "bulkUpsertBatch")
+                                    .doOnNext(result -> {
+                                        result.setBatch(batch.getT1());
+                                        result.setInvalid(validated.getInvalid());
+                                        result.setViolations(validated.getViolations());
+                                    }))
+                            .doOnTerminate(() -> {
+                                this.movieInfoCache.invalidateAll(batch.getT2().stream()
+                                        .map(MovieInfo::getMovieInfoId)
+                                        .filter(Objects::nonNull)
+                                        .collect(Collectors.toList()));
+                                this.movieInfoStatsCache.invalidateAll();
+                            }));
+        }), "bulkPersistMovieInfos");
+    }
+
+    private Mono<MovieInfoBulkResult> bulkUpsert(List<MovieInfo> movieInfos) {
+        if (movieInfos.isEmpty()) {
+            return Mono.just(MovieInfoBulkResult.builder().failedIds(List.of()).build());
+        }
+        return this.movieInfoResilience.write("bulkUpsert", () -> this.movieInfoRepository.bulkUpsert(movieInfos))
+                // bulkUpsert reports Mongo errors itself, this is a timeout or an open circuit
+                .onErrorResume(e -> Mono.just(failedBatch(movieInfos, e)));
     }
 
     public Flux<MovieInfo> getAllMovieInfos() {
-        return this.movieInfoRepository.findAll();
+        var compactReads = this.movieInfoProperties.getQuery().isCompactReads();
+        return timed(this.movieInfoResilience.readMany("findAll",
+                () -> compactReads ? this.movieInfoRepository.streamAll() : this.movieInfoRepository.findAll()),
+                "getAllMovieInfos");
+    }
+
+    /**
+     * Id, name and year only, in id order; pass the id of the last summary as "after" for the next ones.
+     */
+    public Flux<MovieInfoSummary> getMovieInfoSummaries(Integer year, String after, Integer limit) {
+        var page = this.movieInfoProperties.getPage();
+        int pageSize = limit == null ? page.getDefaultLimit() : limit;
+        if (pageSize < 1 || pageSize > page.getMaxLimit()) {
+            return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "limit must be between 1 and " + page.getMaxLimit()));
+        }
+        return timed(this.movieInfoResilience.readMany("findSummaries",
+                () -> this.movieInfoRepository.findSummaries(year, after, pageSize)), "getMovieInfoSummaries");
+    }
+
+    /**
+     * Keyset pagination: the cursor carries the sort key of the last item, so every page is an index seek
+     * regardless of depth. One extra document is fetched to find out whether a next page exists.
+     */
+    public Mono<MovieInfoPage> getMovieInfoPage(String sort, String after, Integer limit, List<String> fields) {
+        return timed(page(sort, after, limit, fields, false), "getMovieInfoPage");
+    }
+
+    /**
+     * Only the ETag and Last-Modified the same page would have, read with a version projection.
+     */
+    public Mono<MovieInfoPage> getMovieInfoPageValidators(String sort, String after, Integer limit,
+                                                         List<String> fields) {
+        return timed(page(sort, after, limit, fields, true), "getMovieInfoPageValidators");
+    }
+
+    private Mono<MovieInfoPage> page(String sort, String after, Integer limit, List<String> fields,
+                                     boolean validatorsOnly) {
+        MovieInfoSort movieInfoSort;
+        MovieInfoCursor cursor;
+        try {
+            movieInfoSort = MovieInfoSort.from(sort);
+            cursor = after == null ? null : MovieInfoCursor.decode(after, movieInfoSort);
+        } catch (IllegalArgumentException e) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e));
+        }
+        var page = this.movieInfoProperties.getPage();
+        int pageSize = limit == null ? page.getDefaultLimit() : limit;
+        if (pageSize < 1 || pageSize > page.getMaxLimit()) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "limit must be between 1 and " + page.getMaxLimit()));
+        }
+        if (fields != null && !PROJECTABLE_FIELDS.containsAll(fields)) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "fields must be a subset of " + PROJECTABLE_FIELDS));
+        }
+        List<String> queryFields = null;
+        // The next cursor is made from the sort key of the last item (_id is always projected)
+        boolean withoutYear = !validatorsOnly && fields != null && !fields.isEmpty()
+                && movieInfoSort == MovieInfoSort.YEAR && !fields.contains("year");
+        if (validatorsOnly) {
+            queryFields = VERSION_FIELDS;
+        } else if (fields != null && !fields.isEmpty()) {
+            queryFields = new ArrayList<>(fields);
+            queryFields.addAll(VERSION_FIELDS);
+            if (withoutYear) {
+                queryFields.add("year");
+            }
+        }
+
+        var projection = queryFields;
+        var staleKey = movieInfoSort + "|" + after + "|" + pageSize + "|" + projection;
+        return this.movieInfoResilience.read("findPage", staleKey,
+                        () -> this.movieInfoRepository.findPage(movieInfoSort, cursor, pageSize + 1, projection)
+                                .collectList(), null)
+                .map(movieInfos -> {
+                    var etag = MovieInfoETags.ofPage(movieInfos, fields);
+                    var lastModified = MovieInfoETags.lastModified(movieInfos);
+                    if (validatorsOnly) {
+                        return new MovieInfoPage(List.of(), null, etag, lastModified);
+                    }
+                    if (movieInfos.size() <= pageSize) {
+                        return new MovieInfoPage(withoutYear ? withoutYear(movieInfos) : movieInfos, null, etag,
+                                lastModified);
+                    }
+                    var items = movieInfos.subList(0, pageSize);
+                    var next = MovieInfoCursor.after(movieInfoSort, items.get(pageSize - 1)).encode();
+                    return new MovieInfoPage(withoutYear ? withoutYear(items) : items, next, etag, lastModified);
+                });
+    }
+
+    // Copies, the loaded page may be kept as a stale fallback and must keep the year its cursor is made from
+    private static List<MovieInfo> withoutYear(List<MovieInfo> movieInfos) {
+        return movieInfos.stream()
+                .map(movieInfo -> MovieInfo.builder()
+                        .movieInfoId(movieInfo.getMovieInfoId()).name(movieInfo.getName())
+                        .casts(movieInfo.getCasts()).releaseDate(movieInfo.getReleaseDate())
+                        .version(movieInfo.getVersion()).lastModified(movieInfo.getLastModified())
+                        .build())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Every combination is answered from an index: text search on name (best matches first, optionally
+     * filtered by year and cast), otherwise year_id and/or the multikey casts index in _id order.
+     */
+    public Flux<MovieInfo> searchMovieInfos(String name, Integer year, String cast, Integer limit) {
+        var page = this.movieInfoProperties.getPage();
+        int pageSize = limit == null ? page.getDefaultLimit() : limit;
+        if (pageSize < 1 || pageSize > page.getMaxLimit()) {
+            return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "limit must be between 1 and " + page.getMaxLimit()));
+        }
+        boolean hasName = StringUtils.hasText(name);
+        boolean hasCast = StringUtils.hasText(cast);
+        if (!hasName && year == null && !hasCast) {
+            return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "at least one of name, year or cast is required"));
+        }
+
+        Supplier<Flux<MovieInfo>> query;
+        var pageable = PageRequest.of(0, pageSize, Sort.by("_id"));
+        if (hasName) {
+            query = () -> this.movieInfoRepository.searchByName(name, year, hasCast ? cast : null, pageSize);
+        } else if (year != null && hasCast) {
+            query = () -> this.movieInfoRepository.findByYearAndCast(year, cast, pageable);
+        } else if (year != null) {
+            query = () -> this.movieInfoRepository.findByYear(year, pageable);
+        } else {
+            query = () -> this.movieInfoRepository.findByCasts(cast, pageable);
+        }
+        return timed(this.movieInfoResilience.readMany("search", query), "searchMovieInfos");
     }
 
     public Mono<MovieInfo> getMovieInfoById(String movieInfoId) {
-        return this.movieInfoRepository.findById(movieInfoId);
+        return timed(Mono.defer(() -> {
+            var pending = this.movieInfoWriteBehind.getPending(movieInfoId);
+            return pending != null ? Mono.just(pending) : this.movieInfoResilience.read("findById", movieInfoId,
+                    () -> this.movieInfoCache.get(movieInfoId),
+                    () -> this.movieInfoRepository.findByIdOnSecondary(movieInfoId));
+        }), "getMovieInfoById");
+    }
+
+    /**
+     * Only version and lastModified, for conditional requests: taken from the cache when the document is
+     * already there, otherwise read with a projection that leaves the document body on the server.
+     */
+    public Mono<MovieInfo> getMovieInfoVersionById(String movieInfoId) {
+        return timed(Mono.defer(() -> {
+            var cached = this.movieInfoCache.getIfLoaded(movieInfoId);
+            return cached != null ? Mono.just(cached) : this.movieInfoResilience.read("findVersionById",
+                    () -> this.movieInfoRepository.findVersionById(movieInfoId));
+        }), "getMovieInfoVersionById");
+    }
+
+    /**
+     * Multi-get in request order; unknown ids are skipped. Cached ids are served from memory and all
+     * remaining ones are fetched with a single $in query.
+     */
+    public Flux<MovieInfo> getMovieInfosByIds(List<String> movieInfoIds) {
+        var maxIds = this.movieInfoProperties.getPage().getMaxLimit();
+        if (movieInfoIds.size() > maxIds) {
+            return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "at most " + maxIds + " ids can be fetched at once"));
+        }
+        var distinctIds = movieInfoIds.stream().distinct().collect(Collectors.toList());
+        return timed(this.movieInfoResilience.read("findAllById", () -> this.movieInfoCache.getAll(distinctIds))
+                .flatMapIterable(found -> distinctIds.stream()
+                        .map(found::get)
+                        .filter(Objects::nonNull)
+                        .collect(Collectors.toList())), "getMovieInfosByIds");
     }
 
     public Mono<Void> deleteMovieInfoById(String id) {
-        return this.movieInfoRepository.deleteById(id);
+        return timed(this.movieInfoWriteBehind.discard(id)
+                .then(this.movieInfoResilience.write("deleteById", () -> this.movieInfoRepository.deleteById(id)))
+                .doOnTerminate(() -> {
+                    this.movieInfoCache.invalidate(id);
+                    this.movieInfoResilience.evictStale("findById", id);
+                    this.movieInfoStatsCache.invalidateAll();
+                }), "deleteMovieInfoById");
+    }
+
+    /**
+     * Titles per year, aggregated on the server and cached for movie-info.stats.time-to-live.
+     */
+    public Flux<MovieInfoYearCount> getMovieInfoCountsByYear() {
+        return timed(this.movieInfoStatsCache.get("by-year",
+                () -> this.movieInfoResilience.readMany("countByYear", this.movieInfoRepository::countByYear)),
+                "getMovieInfoCountsByYear");
+    }
+
+    /**
+     * The cast members appearing in the most titles, aggregated on the server and cached like the counts
+     * by year.
+     */
+    public Flux<MovieInfoCastCount> getTopCasts(Integer limit) {
+        var stats = this.movieInfoProperties.getStats();
+        int topCasts = limit == null ? stats.getDefaultTopCastLimit() : limit;
+        if (topCasts < 1 || topCasts > stats.getMaxTopCastLimit()) {
+            return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "limit must be between 1 and " + stats.getMaxTopCastLimit()));
+        }
+        return timed(this.movieInfoStatsCache.get("top-cast|" + topCasts,
+                () -> this.movieInfoResilience.readMany("countByCast",
+                        () -> this.movieInfoRepository.countByCast(topCasts))), "getTopCasts");
+    }
+
+    public Flux<MovieInfoEvent> streamMovieInfoEvents(String lastEventId) {
+        return timed(this.movieInfoChangeStream.events(lastEventId), "streamMovieInfoEvents");
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initializeVersions() {
+        this.movieInfoRepository.initializeVersions()
+                .subscribe(count -> {
+                    if (count > 0) {
+                        log.info("Initialized the version of {} movie infos", count);
+                    }
+                }, e -> log.warn("Could not initialize movie info versions", e));
+    }
+
+    private static MovieInfoBulkResult failedBatch(List<MovieInfo> movieInfos, Throwable e) {
+        log.error("Bulk write of {} movie infos failed", movieInfos.size(), e);
+        return MovieInfoBulkResult.builder()
+                .failed(movieInfos.size())
+                .failedIds(movieInfos.stream()
+                        .map(MovieInfo::getMovieInfoId)
+                        .filter(Objects::nonNull)
+                        .collect(Collectors.toList()))
+                .build();
+    }
+
+    private static ResponseStatusException notFound(String movieInfoId) {
+        return new ResponseStatusException(HttpStatus.NOT_FOUND, "movie info " + movieInfoId + " not found");
+    }
+
+    // In-flight subscriptions per method are <name>.subscribed minus the count of <name>.flow.duration
+    private static <T> Mono<T> timed(Mono<T> mono, String method) {
+        return mono.name(METRICS_NAME).tag("method", method).metrics();
+    }
+
+    private static <T> Flux<T> timed(Flux<T> flux, String method) {
+        return flux.name(METRICS_NAME).tag("method", method).metrics();
     }
 }
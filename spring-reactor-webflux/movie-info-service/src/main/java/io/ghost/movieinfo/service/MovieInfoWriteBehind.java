@@ -0,0 +1,255 @@
+package io.ghost.movieinfo.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.ghost.movieinfo.cache.MovieInfoCache;
+import io.ghost.movieinfo.config.MovieInfoProperties;
+import io.ghost.movieinfo.domain.MovieInfo;
+import io.ghost.movieinfo.repository.MovieInfoRepository;
+import io.ghost.movieinfo.resilience.MovieInfoResilience;
+import io.ghost.movieinfo.scheduling.MovieInfoSchedulers;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Write-behind mode of persistMovieInfo (movie-info.write-behind.enabled). An accepted record is appended
+ * to the {@link WriteBehindJournal} and put into a pending map keyed by id, so repeated updates of one id
+ * collapse into a single write. A flush every flushInterval writes the pending records with bulk upserts.
+ * <p>
+ * Journal appends, the pending map updates and flushes all run on one serial scheduler that may block,
+ * which keeps the file IO off the event loop and makes "everything in a closed segment is in the map" hold
+ * without locking. Records that fail to write, or all of a flush that fails as a whole, go back to pending
+ * for the next flush; a journal segment is only deleted once a flush wrote every record accepted up to it.
+ */
+@Slf4j
+@Component
+public class MovieInfoWriteBehind {
+
+    private final MovieInfoRepository movieInfoRepository;
+
+    private final MovieInfoCache movieInfoCache;
+
+    private final MovieInfoResilience movieInfoResilience;
+
+    private final MovieInfoProperties.WriteBehind properties;
+
+    private final ObjectMapper objectMapper;
+
+    private final MovieInfoSchedulers movieInfoSchedulers;
+
+    private final Map<String, MovieInfo> pending = new ConcurrentHashMap<>();
+
+    // Ids of the batch being written and its completion, so a delete can wait for it
+    private volatile Set<String> flushingIds = Set.of();
+
+    private volatile Mono<Void> flushing = Mono.empty();
+
+    // Ids of the batch being written that were deleted meanwhile, not to be put back if the write fails
+    private final Set<String> discardedWhileFlushing = new HashSet<>();
+
+    private Scheduler scheduler;
+
+    private WriteBehindJournal journal;
+
+    private Disposable flusher;
+
+    public MovieInfoWriteBehind(MovieInfoRepository movieInfoRepository, MovieInfoCache movieInfoCache,
+                                MovieInfoResilience movieInfoResilience, MovieInfoProperties movieInfoProperties,
+                                ObjectMapper objectMapper, MovieInfoSchedulers movieInfoSchedulers) {
+        this.movieInfoRepository = movieInfoRepository;
+        this.movieInfoCache = movieInfoCache;
+        this.movieInfoResilience = movieInfoResilience;
+        this.properties = movieInfoProperties.getWriteBehind();
+        this.objectMapper = objectMapper;
+        this.movieInfoSchedulers = movieInfoSchedulers;
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (!isEnabled()) {
+            return;
+        }
+        // Not a Reactor single scheduler: its thread counts as non-blocking and the journal does file IO
+        this.scheduler = this.movieInfoSchedulers.newSerial("movie-info-write-behind");
+        this.journal = new WriteBehindJournal(this.properties.getJournalDirectory(), this.objectMapper,
+                this.properties.isSyncEachWrite());
+        this.journal.open(this::apply);
+        if (!this.pending.isEmpty()) {
+            log.info("Replayed {} unwritten movie infos from the write-behind journal", this.pending.size());
+        }
+        this.flusher = Flux.interval(this.properties.getFlushInterval(), this.scheduler)
+                .onBackpressureDrop()
+                .concatMap(tick -> flush(), 1)
+                .subscribe();
+    }
+
+    public boolean isEnabled() {
+        return this.properties.isEnabled();
+    }
+
+    /**
+     * Journals and queues the record; it is written to Mongo by a later flush. Records without an id get
+     * an ObjectId right away so the caller can refer to them before they are written.
+     */
+    public Mono<MovieInfo> accept(MovieInfo movieInfo) {
+        return Mono.fromCallable(() -> {
+            if (movieInfo.getMovieInfoId() == null) {
+                movieInfo.setMovieInfoId(new ObjectId().toHexString());
+            }
+            var movieInfoId = movieInfo.getMovieInfoId();
+            if (this.pending.size() >= this.properties.getMaxPending() && !this.pending.containsKey(movieInfoId)) {
+                throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "write-behind queue is full");
+            }
+            this.journal.append(WriteBehindJournal.Entry.upsert(movieInfo));
+            this.pending.put(movieInfoId, movieInfo);
+            // Covers reads while the record is being flushed; the flush invalidates it afterwards
+            this.movieInfoCache.put(movieInfo);
+            return movieInfo;
+        }).subscribeOn(this.scheduler);
+    }
+
+    /**
+     * Drops a pending write of the id; completes only after a flush that is already writing it finished,
+     * so a delete issued afterwards cannot be overtaken by it.
+     */
+    public Mono<Void> discard(String movieInfoId) {
+        if (!isEnabled()) {
+            return Mono.empty();
+        }
+        return Mono.fromCallable(() -> {
+                    this.journal.append(WriteBehindJournal.Entry.delete(movieInfoId));
+                    this.pending.remove(movieInfoId);
+                    if (!this.flushingIds.contains(movieInfoId)) {
+                        return false;
+                    }
+                    this.discardedWhileFlushing.add(movieInfoId);
+                    return true;
+                })
+                .subscribeOn(this.scheduler)
+                .flatMap(beingWritten -> beingWritten ? this.flushing : Mono.empty());
+    }
+
+    /**
+     * The latest accepted but not yet written record of the id, so reads see their own writes.
+     */
+    public MovieInfo getPending(String movieInfoId) {
+        return this.pending.get(movieInfoId);
+    }
+
+    public int pendingCount() {
+        return this.pending.size();
+    }
+
+    private void apply(WriteBehindJournal.Entry entry) {
+        if (entry.getMovieInfo() != null) {
+            this.pending.put(entry.getMovieInfo().getMovieInfoId(), entry.getMovieInfo());
+        } else if (entry.getDeletedId() != null) {
+            this.pending.remove(entry.getDeletedId());
+        }
+    }
+
+    private Mono<Void> flush() {
+        if (this.pending.isEmpty()) {
+            return Mono.empty();
+        }
+        long closedSegment;
+        try {
+            closedSegment = this.journal.rotate();
+        } catch (IOException e) {
+            log.error("Could not rotate the write-behind journal, postponing the flush", e);
+            return Mono.empty();
+        }
+        List<MovieInfo> batch = new ArrayList<>(this.pending.values());
+        // Only remove what is written now; an id updated meanwhile keeps its newer record for the next flush
+        batch.forEach(movieInfo -> this.pending.remove(movieInfo.getMovieInfoId(), movieInfo));
+        var byId = batch.stream().collect(Collectors.toMap(MovieInfo::getMovieInfoId, movieInfo -> movieInfo));
+        this.flushingIds = new HashSet<>(byId.keySet());
+
+        // Only touched on the scheduler: results and errors are published on it
+        var unwritten = new ArrayList<MovieInfo>();
+        var flush = Flux.fromIterable(batch)
+                .buffer(this.properties.getBatchSize())
+                .concatMap(records -> this.movieInfoResilience.write("bulkUpsert",
+                        () -> this.movieInfoRepository.bulkUpsert(records)))
+                .publishOn(this.scheduler)
+                .doOnNext(result -> result.getFailedIds().forEach(id -> unwritten.add(byId.get(id))))
+                .then()
+                .onErrorResume(e -> {
+                    // Which of the bulk writes got through is unknown, the whole batch is written again
+                    log.error("Write-behind flush of {} records failed", batch.size(), e);
+                    unwritten.clear();
+                    unwritten.addAll(batch);
+                    return Mono.empty();
+                })
+                .then(Mono.fromRunnable(() -> {
+                    this.movieInfoCache.invalidateAll(byId.keySet());
+                    this.flushingIds = Set.of();
+                    requeue(unwritten);
+                    this.discardedWhileFlushing.clear();
+                    if (!unwritten.isEmpty()) {
+                        log.warn("{} write-behind records could not be written, retrying with the next flush",
+                                unwritten.size());
+                        return;
+                    }
+                    // Every record accepted up to the closed segment was pending, so in this batch, or is written
+                    try {
+                        this.journal.deleteUpTo(closedSegment);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }))
+                .onErrorResume(e -> {
+                    log.error("Could not delete written write-behind journal segments", e);
+                    return Mono.empty();
+                })
+                .then()
+                .cache();
+        this.flushing = flush;
+        return flush;
+    }
+
+    // A newer record accepted meanwhile wins, a record deleted meanwhile stays deleted
+    private void requeue(Collection<MovieInfo> unwritten) {
+        for (MovieInfo movieInfo : unwritten) {
+            if (movieInfo != null && !this.discardedWhileFlushing.contains(movieInfo.getMovieInfoId())) {
+                this.pending.putIfAbsent(movieInfo.getMovieInfoId(), movieInfo);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws IOException {
+        if (!isEnabled() || this.scheduler.isDisposed()) {
+            return;
+        }
+        this.flusher.dispose();
+        try {
+            Mono.defer(this::flush)
+                    .subscribeOn(this.scheduler)
+                    .block(this.properties.getShutdownTimeout());
+        } catch (RuntimeException e) {
+            log.warn("Final write-behind flush did not finish, {} records stay journaled", this.pending.size(), e);
+        }
+        this.journal.close();
+        this.scheduler.dispose();
+    }
+}
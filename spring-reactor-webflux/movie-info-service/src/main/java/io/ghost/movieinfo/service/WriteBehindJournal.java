@@ -0,0 +1,169 @@
+package io.ghost.movieinfo.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.ghost.movieinfo.domain.MovieInfo;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Append-only NDJSON journal of the writes accepted by {@link MovieInfoWriteBehind}, split into numbered
+ * segments. A segment is only deleted once everything accepted up to its end has reached Mongo.
+ * Not thread safe, the write-behind calls it from its own single thread.
+ */
+@Slf4j
+class WriteBehindJournal implements Closeable {
+
+    private static final String PREFIX = "segment-";
+
+    private static final String SUFFIX = ".ndjson";
+
+    private final Path directory;
+
+    private final ObjectWriter writer;
+
+    private final ObjectReader reader;
+
+    private final boolean syncEachWrite;
+
+    private FileChannel segment;
+
+    private long sequence;
+
+    private long segmentSize;
+
+    WriteBehindJournal(Path directory, ObjectMapper objectMapper, boolean syncEachWrite) {
+        this.directory = directory;
+        this.writer = objectMapper.writerFor(Entry.class);
+        this.reader = objectMapper.readerFor(Entry.class);
+        this.syncEachWrite = syncEachWrite;
+    }
+
+    /**
+     * Replays every existing segment oldest first, then starts a new segment after them.
+     */
+    void open(Consumer<Entry> replay) throws IOException {
+        Files.createDirectories(this.directory);
+        var segments = segments();
+        for (Path existing : segments) {
+            try (var lines = Files.newBufferedReader(existing)) {
+                String line;
+                while ((line = lines.readLine()) != null) {
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    try {
+                        replay.accept(this.reader.readValue(line));
+                    } catch (JsonProcessingException e) {
+                        // The last record of a segment may be torn by a crash in the middle of a write
+                        log.warn("Skipping an unreadable write-behind record in {}", existing);
+                    }
+                }
+            }
+        }
+        this.sequence = segments.isEmpty() ? 0 : sequence(segments.get(segments.size() - 1)) + 1;
+        this.segment = openSegment(this.sequence);
+    }
+
+    void append(Entry entry) throws IOException {
+        var bytes = this.writer.writeValueAsBytes(entry);
+        var buffer = ByteBuffer.allocate(bytes.length + 1).put(bytes).put((byte) '\n').flip();
+        while (buffer.hasRemaining()) {
+            this.segmentSize += this.segment.write(buffer);
+        }
+        if (this.syncEachWrite) {
+            this.segment.force(false);
+        }
+    }
+
+    /**
+     * Closes the current segment and continues in a new one.
+     *
+     * @return the sequence of the last closed segment, everything appended so far is at or before it
+     */
+    long rotate() throws IOException {
+        if (this.segmentSize == 0) {
+            return this.sequence - 1;
+        }
+        this.segment.force(false);
+        this.segment.close();
+        long closed = this.sequence;
+        this.segment = openSegment(++this.sequence);
+        this.segmentSize = 0;
+        return closed;
+    }
+
+    void deleteUpTo(long sequence) throws IOException {
+        for (Path existing : segments()) {
+            if (sequence(existing) <= sequence) {
+                Files.deleteIfExists(existing);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (this.segment != null) {
+            this.segment.force(false);
+            this.segment.close();
+        }
+    }
+
+    private FileChannel openSegment(long sequence) throws IOException {
+        return FileChannel.open(this.directory.resolve(PREFIX + sequence + SUFFIX),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private List<Path> segments() throws IOException {
+        try (var files = Files.list(this.directory)) {
+            return files
+                    .filter(file -> {
+                        var name = file.getFileName().toString();
+                        return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+                    })
+                    .sorted(Comparator.comparingLong(WriteBehindJournal::sequence))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static long sequence(Path segment) {
+        var name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    static class Entry {
+
+        // Set for an accepted upsert
+        private MovieInfo movieInfo;
+
+        // Set for a delete that cancels earlier upserts of the id
+        private String deletedId;
+
+        static Entry upsert(MovieInfo movieInfo) {
+            return new Entry(movieInfo, null);
+        }
+
+        static Entry delete(String movieInfoId) {
+            return new Entry(null, movieInfoId);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package io.ghost.movieinfo.validation;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * Bounded interner for cast names. The same few thousand names appear in most records, so sharing one
+ * String instance per name shrinks the cached documents and the write-behind queue. Unlike String.intern()
+ * it is bounded, and W-TinyLFU keeps the frequent names while one-off ones are evicted.
+ */
+public class CastNamePool {
+
+    private final Cache<String, String> names;
+
+    public CastNamePool(long maximumSize) {
+        this.names = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .build();
+    }
+
+    public String intern(String name) {
+        return this.names.get(name, key -> key);
+    }
+
+    public long size() {
+        return this.names.estimatedSize();
+    }
+}
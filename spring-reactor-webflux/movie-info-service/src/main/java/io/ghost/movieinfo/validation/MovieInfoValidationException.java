@@ -0,0 +1,24 @@
+package io.ghost.movieinfo.validation;
+
+import io.ghost.movieinfo.domain.MovieInfoViolation;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+
+/**
+ * A record failed validation; carries all of its violations so the client can fix them in one go.
+ */
+public class MovieInfoValidationException extends ResponseStatusException {
+
+    private final List<MovieInfoViolation> violations;
+
+    public MovieInfoValidationException(List<MovieInfoViolation> violations) {
+        super(HttpStatus.BAD_REQUEST, "movie info is invalid: " + violations.size() + " violation(s)");
+        this.violations = List.copyOf(violations);
+    }
+
+    public List<MovieInfoViolation> getViolations() {
+        return this.violations;
+    }
+}
@@ -0,0 +1,262 @@
+package io.ghost.movieinfo.validation;
+
+import io.ghost.movieinfo.config.MovieInfoProperties;
+import io.ghost.movieinfo.domain.MovieInfo;
+import io.ghost.movieinfo.domain.MovieInfoViolation;
+import io.ghost.movieinfo.scheduling.MovieInfoSchedulers;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.time.LocalDate;
+import java.time.Year;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * Normalization and validation of records before they are written, for single and bulk writes alike.
+ * <p>
+ * Normalization trims and collapses whitespace in the name and the cast names, drops blank and duplicate cast
+ * entries and interns cast names through the {@link CastNamePool}. The constraints are built once from
+ * movie-info.validation as plain checks on the getters, so validating a record involves no annotation lookup
+ * or reflection, and every violation of a record is reported instead of only the first.
+ */
+@Component
+public class MovieInfoValidator {
+
+    private final CastNamePool castNamePool;
+
+    private final Scheduler cpu;
+
+    private final int offloadThreshold;
+
+    private final int maxYearsAhead;
+
+    private final List<Constraint> constraints = new ArrayList<>();
+
+    public MovieInfoValidator(MovieInfoProperties movieInfoProperties, MovieInfoSchedulers movieInfoSchedulers,
+                              CastNamePool castNamePool) {
+        var properties = movieInfoProperties.getValidation();
+        this.castNamePool = castNamePool;
+        this.cpu = movieInfoSchedulers.cpu();
+        this.offloadThreshold = properties.getOffloadThreshold();
+        this.maxYearsAhead = properties.getMaxYearsAhead();
+
+        int minYear = properties.getMinYear();
+        var minReleaseDate = LocalDate.of(minYear, 1, 1);
+        int maxNameLength = properties.getMaxNameLength();
+        int maxCasts = properties.getMaxCasts();
+        int maxCastNameLength = properties.getMaxCastNameLength();
+
+        this.constraints.add((movieInfo, maxYear, violations) -> {
+            if (movieInfo.getName() == null) {
+                violations.add("name", "required", "name must not be blank", null);
+            } else if (movieInfo.getName().length() > maxNameLength) {
+                violations.add("name", "too-long", "name must be at most " + maxNameLength + " characters",
+                        abbreviate(movieInfo.getName()));
+            }
+        });
+        this.constraints.add((movieInfo, maxYear, violations) -> {
+            var year = movieInfo.getYear();
+            if (year != null && (year < minYear || year > maxYear)) {
+                violations.add("year", "out-of-range", "year must be between " + minYear + " and " + maxYear,
+                        String.valueOf(year));
+            }
+        });
+        this.constraints.add((movieInfo, maxYear, violations) -> {
+            var releaseDate = movieInfo.getReleaseDate();
+            if (releaseDate != null && (releaseDate.isBefore(minReleaseDate) || releaseDate.getYear() > maxYear)) {
+                violations.add("releaseDate", "out-of-range", "releaseDate must be between " + minReleaseDate
+                        + " and the end of " + maxYear, releaseDate.toString());
+            }
+        });
+        this.constraints.add((movieInfo, maxYear, violations) -> {
+            var casts = movieInfo.getCasts();
+            if (casts == null) {
+                return;
+            }
+            if (casts.size() > maxCasts) {
+                violations.add("casts", "too-many", "at most " + maxCasts + " cast members are allowed",
+                        String.valueOf(casts.size()));
+            }
+            for (int i = 0; i < casts.size(); i++) {
+                if (casts.get(i).length() > maxCastNameLength) {
+                    violations.add("casts[" + i + "]", "too-long",
+                            "cast names must be at most " + maxCastNameLength + " characters",
+                            abbreviate(casts.get(i)));
+                }
+            }
+        });
+    }
+
+    /**
+     * Normalizes the record in place; fails with a {@link MovieInfoValidationException} listing every
+     * violation when it is invalid.
+     */
+    public Mono<MovieInfo> validate(MovieInfo movieInfo) {
+        return Mono.fromCallable(() -> {
+            var violations = normalizeAndCheck(movieInfo, null, maxYear());
+            if (!violations.isEmpty()) {
+                throw new MovieInfoValidationException(violations);
+            }
+            return movieInfo;
+        });
+    }
+
+    /**
+     * Normalizes and checks one bulk batch; {@code firstIndex} is the position of its first record in the
+     * request. Batches of offloadThreshold records or more are validated on the cpu scheduler, and so is
+     * whatever the caller does with the result right after.
+     */
+    public Mono<Batch> validateBatch(List<MovieInfo> movieInfos, long firstIndex) {
+        var validation = Mono.fromCallable(() -> {
+            int maxYear = maxYear();
+            var valid = new ArrayList<MovieInfo>(movieInfos.size());
+            var violations = new ArrayList<MovieInfoViolation>();
+            for (int i = 0; i < movieInfos.size(); i++) {
+                var movieInfo = movieInfos.get(i);
+                var recordViolations = normalizeAndCheck(movieInfo, firstIndex + i, maxYear);
+                if (recordViolations.isEmpty()) {
+                    valid.add(movieInfo);
+                } else {
+                    violations.addAll(recordViolations);
+                }
+            }
+            return new Batch(valid, movieInfos.size() - valid.size(), violations);
+        });
+        return movieInfos.size() >= this.offloadThreshold ? validation.subscribeOn(this.cpu) : validation;
+    }
+
+    List<MovieInfoViolation> normalizeAndCheck(MovieInfo movieInfo, Long index, int maxYear) {
+        normalize(movieInfo);
+        var violations = new Violations(index, movieInfo.getMovieInfoId());
+        for (Constraint constraint : this.constraints) {
+            constraint.check(movieInfo, maxYear, violations);
+        }
+        return violations.list;
+    }
+
+    private void normalize(MovieInfo movieInfo) {
+        var name = normalizeSpace(movieInfo.getName());
+        movieInfo.setName(name == null || name.isEmpty() ? null : name);
+        var casts = movieInfo.getCasts();
+        if (casts == null) {
+            return;
+        }
+        var normalized = new LinkedHashSet<String>(casts.size() * 2);
+        for (String cast : casts) {
+            var castName = normalizeSpace(cast);
+            if (castName != null && !castName.isEmpty()) {
+                normalized.add(this.castNamePool.intern(castName));
+            }
+        }
+        movieInfo.setCasts(new ArrayList<>(normalized));
+    }
+
+    private int maxYear() {
+        return Year.now().getValue() + this.maxYearsAhead;
+    }
+
+    private static String abbreviate(String value) {
+        return value.length() > 32 ? value.substring(0, 32) + "..." : value;
+    }
+
+    /**
+     * Trimmed, with every run of whitespace inside replaced by one space. The same instance when there is
+     * nothing to change, which is the common case.
+     */
+    static String normalizeSpace(String value) {
+        if (value == null) {
+            return null;
+        }
+        int length = value.length();
+        boolean clean = length == 0 || (!Character.isWhitespace(value.charAt(0))
+                && !Character.isWhitespace(value.charAt(length - 1)));
+        for (int i = 0; clean && i < length; i++) {
+            char c = value.charAt(i);
+            if (Character.isWhitespace(c) && (c != ' ' || Character.isWhitespace(value.charAt(i + 1)))) {
+                clean = false;
+            }
+        }
+        if (clean) {
+            return value;
+        }
+        var normalized = new StringBuilder(length);
+        boolean pendingSpace = false;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (Character.isWhitespace(c)) {
+                pendingSpace = normalized.length() > 0;
+            } else {
+                if (pendingSpace) {
+                    normalized.append(' ');
+                    pendingSpace = false;
+                }
+                normalized.append(c);
+            }
+        }
+        return normalized.toString();
+    }
+
+    /**
+     * Outcome of a bulk batch: the records to write and the violations of the ones left out.
+     */
+    public static class Batch {
+
+        private final List<MovieInfo> valid;
+
+        private final int invalid;
+
+        private final List<MovieInfoViolation> violations;
+
+        Batch(List<MovieInfo> valid, int invalid, List<MovieInfoViolation> violations) {
+            this.valid = valid;
+            this.invalid = invalid;
+            this.violations = violations;
+        }
+
+        public List<MovieInfo> getValid() {
+            return this.valid;
+        }
+
+        public int getInvalid() {
+            return this.invalid;
+        }
+
+        public List<MovieInfoViolation> getViolations() {
+            return this.violations;
+        }
+    }
+
+    @FunctionalInterface
+    private interface Constraint {
+
+        void check(MovieInfo movieInfo, int maxYear, Violations violations);
+    }
+
+    private static class Violations {
+
+        private final Long index;
+
+        private final String movieInfoId;
+
+        private final List<MovieInfoViolation> list = new ArrayList<>(0);
+
+        Violations(Long index, String movieInfoId) {
+            this.index = index;
+            this.movieInfoId = movieInfoId;
+        }
+
+        void add(String field, String code, String message, String rejectedValue) {
+            this.list.add(MovieInfoViolation.builder()
+                    .index(this.index)
+                    .movieInfoId(this.movieInfoId)
+                    .field(field)
+                    .code(code)
+                    .message(message)
+                    .rejectedValue(rejectedValue)
+                    .build());
+        }
+    }
+}
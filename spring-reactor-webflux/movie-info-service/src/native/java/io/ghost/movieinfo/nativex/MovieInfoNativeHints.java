@@ -0,0 +1,68 @@
+package io.ghost.movieinfo.nativex;
+
+import io.ghost.movieinfo.codec.MovieInfoProtobuf;
+import io.ghost.movieinfo.domain.MovieInfo;
+import io.ghost.movieinfo.domain.MovieInfoBulkResult;
+import io.ghost.movieinfo.domain.MovieInfoCastCount;
+import io.ghost.movieinfo.domain.MovieInfoCursor;
+import io.ghost.movieinfo.domain.MovieInfoError;
+import io.ghost.movieinfo.domain.MovieInfoEvent;
+import io.ghost.movieinfo.domain.MovieInfoInvalidation;
+import io.ghost.movieinfo.domain.MovieInfoSearch;
+import io.ghost.movieinfo.domain.MovieInfoSummary;
+import io.ghost.movieinfo.domain.MovieInfoViolation;
+import io.ghost.movieinfo.domain.MovieInfoYearCount;
+import io.ghost.movieinfo.repository.MovieInfoRepository;
+import io.ghost.movieinfo.repository.MovieInfoRepositoryCustom;
+import io.ghost.movieinfo.repository.MovieInfoRepositoryCustomImpl;
+import org.springframework.aop.SpringProxy;
+import org.springframework.aop.framework.Advised;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.DecoratingProxy;
+import org.springframework.data.repository.Repository;
+import org.springframework.nativex.hint.JdkProxyHint;
+import org.springframework.nativex.hint.ResourceHint;
+import org.springframework.nativex.hint.TypeAccess;
+import org.springframework.nativex.hint.TypeHint;
+
+/**
+ * Reflection, proxy and resource hints for the native image that Spring AOT cannot infer. Only compiled by
+ * the native profile.
+ * <p>
+ * Jackson (JSON, CBOR, Smile, protobuf) and the Mongo mapping layer bind the domain types through their fields,
+ * getters, setters and constructors, and the Lombok builders are reachable through builder(). The repository is
+ * a JDK proxy over the derived queries plus the custom fragment. Caffeine instantiates a generated cache and
+ * node class per combination of features; the names below match the builders in MovieInfoCache,
+ * MovieInfoStatsCache, InMemorySharedMovieInfoCache, CastNamePool and MovieInfoResilience and have to follow
+ * them when those change.
+ */
+@Configuration(proxyBeanMethods = false)
+@TypeHint(types = {MovieInfo.class, MovieInfo.MovieInfoBuilder.class, MovieInfoBulkResult.class,
+        MovieInfoBulkResult.MovieInfoBulkResultBuilder.class, MovieInfoEvent.class,
+        MovieInfoEvent.MovieInfoEventBuilder.class, MovieInfoViolation.class,
+        MovieInfoViolation.MovieInfoViolationBuilder.class, MovieInfoError.class,
+        MovieInfoError.MovieInfoErrorBuilder.class, MovieInfoSearch.class, MovieInfoCursor.class,
+        MovieInfoYearCount.class, MovieInfoCastCount.class, MovieInfoInvalidation.class, MovieInfoSummary.class,
+        MovieInfoSummary.MovieInfoSummaryBuilder.class},
+        access = {TypeAccess.DECLARED_CONSTRUCTORS, TypeAccess.DECLARED_FIELDS, TypeAccess.DECLARED_METHODS,
+                TypeAccess.PUBLIC_METHODS})
+@TypeHint(types = {MovieInfoRepositoryCustom.class, MovieInfoRepositoryCustomImpl.class},
+        access = {TypeAccess.DECLARED_CONSTRUCTORS, TypeAccess.PUBLIC_METHODS})
+@TypeHint(typeNames = {
+        // CastNamePool: maximumSize
+        "com.github.benmanes.caffeine.cache.SSMS", "com.github.benmanes.caffeine.cache.PSMS",
+        // MovieInfoResilience stale values: maximumSize, expireAfterWrite
+        "com.github.benmanes.caffeine.cache.SSMSW", "com.github.benmanes.caffeine.cache.PSWMS",
+        // MovieInfoCache: recordStats, expireAfterWrite, refreshAfterWrite and maximumSize or maximumWeight
+        "com.github.benmanes.caffeine.cache.SSSMSWR", "com.github.benmanes.caffeine.cache.SSSMWWR",
+        "com.github.benmanes.caffeine.cache.PSWRMS", "com.github.benmanes.caffeine.cache.PSWRMW",
+        // MovieInfoStatsCache: recordStats, expireAfterWrite
+        "com.github.benmanes.caffeine.cache.SSSW", "com.github.benmanes.caffeine.cache.PSW",
+        // InMemorySharedMovieInfoCache and ClientRateLimitFilter: maximumSize, expireAfter
+        "com.github.benmanes.caffeine.cache.SSMSA", "com.github.benmanes.caffeine.cache.PSAMS"},
+        access = TypeAccess.DECLARED_CONSTRUCTORS)
+@JdkProxyHint(types = {MovieInfoRepository.class, Repository.class, SpringProxy.class, Advised.class,
+        DecoratingProxy.class})
+@ResourceHint(patterns = MovieInfoProtobuf.SCHEMA_LOCATION)
+public class MovieInfoNativeHints {
+}
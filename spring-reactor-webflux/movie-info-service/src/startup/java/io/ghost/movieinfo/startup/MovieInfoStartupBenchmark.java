@@ -0,0 +1,213 @@
+package io.ghost.movieinfo.startup;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cold start of the service in each packaging: time from process start to the first successful request and
+ * the resident set size at that moment. Run it with mvn -Pcds,startup-benchmark verify (see the pom).
+ * <p>
+ * Modes:
+ * <ul>
+ *     <li>jvm: the plain jar on the JVM, with the JDK's default class data archive only</li>
+ *     <li>cds: the same jar with an application class data archive, recorded by a training run on the first
+ *     use (dynamic archive on Java 13+, class list and static dump on Java 11)</li>
+ *     <li>native: the GraalVM executable built by the native profile</li>
+ * </ul>
+ * A mode whose artifact is missing is skipped. The first successful request is GET /actuator/health, which
+ * only answers 200 once Mongo is reachable, so the time includes connecting to startup.mongodb-uri.
+ */
+public class MovieInfoStartupBenchmark {
+
+    private static final Duration POLL_INTERVAL = Duration.ofMillis(5);
+
+    private final Path jar = Path.of(System.getProperty("startup.jar", "target/cds/movie-info-service.jar"));
+
+    private final Path cdsArchive = Path.of(System.getProperty("startup.cds-archive",
+            "target/cds/movie-info-service.jsa"));
+
+    private final Path nativeExecutable = Path.of(System.getProperty("startup.native-executable",
+            "target/movie-info-service"));
+
+    private final List<String> modes = Arrays.asList(System.getProperty("startup.modes", "jvm,cds,native").split(","));
+
+    private final int runs = Integer.getInteger("startup.runs", 5);
+
+    private final String mongodbUri = System.getProperty("startup.mongodb-uri",
+            "mongodb://localhost:27017/movie-info-startup");
+
+    private final Duration timeout = Duration.ofSeconds(Long.getLong("startup.timeout-seconds", 120));
+
+    private final Path reportDirectory = Path.of(System.getProperty("startup.report-directory", "target/startup"));
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofMillis(100))
+            .build();
+
+    public static void main(String[] args) throws Exception {
+        new MovieInfoStartupBenchmark().run();
+    }
+
+    void run() throws Exception {
+        Files.createDirectories(this.reportDirectory);
+        var report = new StringBuilder();
+        report.append("movie-info-service startup benchmark\n")
+                .append("mongodb: ").append(this.mongodbUri).append(", runs per mode: ").append(this.runs)
+                .append(", java: ").append(System.getProperty("java.version")).append("\n\n")
+                .append(String.format("%-8s %12s %12s %12s %12s%n", "mode", "first ok ms", "min ms", "max ms",
+                        "rss MiB"));
+        for (String mode : this.modes) {
+            var command = command(mode.trim());
+            if (command == null) {
+                report.append(String.format("%-8s skipped, no artifact%n", mode));
+                continue;
+            }
+            var startups = new ArrayList<Long>();
+            var rss = new ArrayList<Long>();
+            for (int run = 0; run < this.runs; run++) {
+                var result = start(command);
+                startups.add(result[0]);
+                rss.add(result[1]);
+            }
+            Collections.sort(startups);
+            Collections.sort(rss);
+            report.append(String.format("%-8s %12d %12d %12d %12s%n", mode, median(startups), startups.get(0),
+                    startups.get(startups.size() - 1), rss.get(0) < 0 ? "n/a" : median(rss) / 1024));
+        }
+        report.append("\nfirst ok: median time from process start to the first 200 of /actuator/health;"
+                + " rss: median resident set size at that moment\n");
+        Files.writeString(this.reportDirectory.resolve("startup-report.txt"), report);
+        System.out.print(report);
+    }
+
+    private List<String> command(String mode) throws Exception {
+        switch (mode) {
+            case "jvm":
+                return Files.exists(this.jar) ? List.of(java(), "-jar", this.jar.toString()) : null;
+            case "cds":
+                if (!Files.exists(this.jar)) {
+                    return null;
+                }
+                if (!Files.exists(this.cdsArchive)) {
+                    train();
+                }
+                return List.of(java(), "-XX:SharedArchiveFile=" + this.cdsArchive, "-jar", this.jar.toString());
+            case "native":
+                return Files.isExecutable(this.nativeExecutable) ? List.of(this.nativeExecutable.toString()) : null;
+            default:
+                throw new IllegalArgumentException("Unknown startup mode '" + mode + "', expected jvm, cds or native");
+        }
+    }
+
+    // Records the classes a startup loads; the archive is written when the training process exits
+    private void train() throws Exception {
+        System.out.println("Recording the class data archive " + this.cdsArchive);
+        if (Runtime.version().feature() >= 13) {
+            start(List.of(java(), "-XX:ArchiveClassesAtExit=" + this.cdsArchive, "-jar", this.jar.toString()));
+            return;
+        }
+        var classList = Path.of(this.cdsArchive + ".classlist");
+        start(List.of(java(), "-Xshare:off", "-XX:DumpLoadedClassList=" + classList, "-jar", this.jar.toString()));
+        var dump = new ProcessBuilder(java(), "-Xshare:dump", "-XX:SharedClassListFile=" + classList,
+                "-XX:SharedArchiveFile=" + this.cdsArchive, "-cp", this.jar.toString())
+                .inheritIO()
+                .start();
+        if (dump.waitFor() != 0) {
+            throw new IllegalStateException("Dumping the class data archive failed with exit code " + dump.exitValue());
+        }
+    }
+
+    /**
+     * Starts the command, waits for the first successful request and stops it again.
+     *
+     * @return the milliseconds to the first success and the resident set size in KiB then (-1 when unknown)
+     */
+    private long[] start(List<String> command) throws Exception {
+        int port = freePort();
+        var arguments = new ArrayList<>(command);
+        arguments.add("--server.port=" + port);
+        arguments.add("--spring.rsocket.server.port=0");
+        arguments.add("--spring.data.mongodb.uri=" + this.mongodbUri);
+        var output = this.reportDirectory.resolve("startup.log");
+        var health = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/actuator/health"))
+                .timeout(Duration.ofSeconds(1))
+                .build();
+
+        long started = System.nanoTime();
+        var process = new ProcessBuilder(arguments)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.appendTo(output.toFile()))
+                .start();
+        try {
+            long deadline = started + this.timeout.toNanos();
+            while (true) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException(String.join(" ", command) + " exited with "
+                            + process.exitValue() + ", see " + output);
+                }
+                if (System.nanoTime() > deadline) {
+                    throw new IllegalStateException(String.join(" ", command) + " was not up within " + this.timeout);
+                }
+                if (isUp(health)) {
+                    long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+                    return new long[]{millis, rssKib(process.pid())};
+                }
+                Thread.sleep(POLL_INTERVAL.toMillis());
+            }
+        } finally {
+            // SIGTERM, so a training run exits normally and writes its archive
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        }
+    }
+
+    private boolean isUp(HttpRequest health) throws InterruptedException {
+        try {
+            return this.httpClient.send(health, HttpResponse.BodyHandlers.discarding()).statusCode() == 200;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    // VmRSS of /proc/<pid>/status; Linux only
+    private static long rssKib(long pid) {
+        try {
+            for (String line : Files.readAllLines(Path.of("/proc", String.valueOf(pid), "status"))) {
+                if (line.startsWith("VmRSS:")) {
+                    return Long.parseLong(line.replaceAll("[^0-9]", ""));
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            // not on Linux
+        }
+        return -1;
+    }
+
+    private static int freePort() throws IOException {
+        try (var socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static String java() {
+        return Path.of(System.getProperty("java.home"), "bin", "java").toString();
+    }
+
+    private static long median(List<Long> sorted) {
+        return sorted.get(sorted.size() / 2);
+    }
+}
@@ -0,0 +1,21 @@
+package io.ghost.movieinfo;
+
+import reactor.blockhound.BlockHound;
+import reactor.blockhound.integration.BlockHoundIntegration;
+
+/**
+ * Blocking calls that are accepted on non-blocking threads in the tests, picked up by the BlockHound
+ * JUnit platform listener through META-INF/services. Anything else that blocks there fails the test.
+ */
+public class MovieInfoBlockHoundIntegration implements BlockHoundIntegration {
+
+    @Override
+    public void applyTo(BlockHound.Builder builder) {
+        // Console logging writes synchronously; a log line is not what these checks are after
+        builder.allowBlockingCallsInside("ch.qos.logback.core.OutputStreamAppender", "writeBytes");
+        // Caffeine makes a writer wait for its eviction lock when the write buffer is full. Only that wait is
+        // allowed: the maintenance run under the lock is checked again
+        builder.allowBlockingCallsInside("com.github.benmanes.caffeine.cache.BoundedLocalCache", "performCleanUp");
+        builder.disallowBlockingCallsInside("com.github.benmanes.caffeine.cache.BoundedLocalCache", "maintenance");
+    }
+}
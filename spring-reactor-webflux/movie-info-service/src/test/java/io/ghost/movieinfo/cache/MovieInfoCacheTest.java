@@ -0,0 +1,127 @@
+package io.ghost.movieinfo.cache;
+
+import io.ghost.movieinfo.config.MovieInfoProperties;
+import io.ghost.movieinfo.domain.MovieInfo;
+import io.ghost.movieinfo.repository.MovieInfoRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MovieInfoCacheTest {
+
+    private MovieInfoRepository movieInfoRepository;
+
+    private MovieInfoBatchLoader movieInfoBatchLoader;
+
+    private MovieInfoCache movieInfoCache;
+
+    private final MovieInfo movieInfo = MovieInfo.builder()
+            .movieInfoId("TDR").name("The Dark Knight Rises")
+            .releaseDate(LocalDate.parse("2012-07-20")).casts(
+                    List.of("Christian Bale", "Tom Hardy"))
+            .year(2012).build();
+
+    @BeforeEach
+    void setUp() {
+        this.movieInfoRepository = mock(MovieInfoRepository.class);
+        var properties = new MovieInfoProperties();
+        properties.getBatch().setWindow(Duration.ofMillis(20));
+        this.movieInfoBatchLoader = new MovieInfoBatchLoader(this.movieInfoRepository, properties);
+        this.movieInfoCache = new MovieInfoCache(this.movieInfoRepository, this.movieInfoBatchLoader,
+                SharedMovieInfoCache.NONE, MovieInfoInvalidationBus.NONE, properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        this.movieInfoBatchLoader.close();
+    }
+
+    @Test
+    void concurrentMissesShareOneLoad() {
+        when(this.movieInfoRepository.findAllById(anyIterable()))
+                .thenReturn(Flux.just(this.movieInfo).delayElements(Duration.ofMillis(100)));
+
+        var first = this.movieInfoCache.get("TDR");
+        var second = this.movieInfoCache.get("TDR");
+
+        StepVerifier.create(Mono.zip(first, second))
+                .assertNext(both -> assertEquals(both.getT1(), both.getT2()))
+                .verifyComplete();
+        StepVerifier.create(this.movieInfoCache.get("TDR"))
+                .expectNext(this.movieInfo)
+                .verifyComplete();
+
+        verify(this.movieInfoRepository, times(1)).findAllById(List.of("TDR"));
+        assertEquals(2, this.movieInfoCache.stats().hitCount());
+    }
+
+    @Test
+    void concurrentMissesOnDifferentIdsAreBatched() {
+        var other = MovieInfo.builder().movieInfoId("BB").name("Batman Begins").year(2005).build();
+        when(this.movieInfoRepository.findAllById(anyIterable()))
+                .thenReturn(Flux.just(this.movieInfo, other));
+
+        StepVerifier.create(Mono.zip(this.movieInfoCache.get("TDR"), this.movieInfoCache.get("BB")))
+                .assertNext(both -> {
+                    assertEquals("TDR", both.getT1().getMovieInfoId());
+                    assertEquals("BB", both.getT2().getMovieInfoId());
+                })
+                .verifyComplete();
+
+        verify(this.movieInfoRepository, times(1)).findAllById(anyIterable());
+    }
+
+    @Test
+    void missingIdIsEmptyAndNotCached() {
+        when(this.movieInfoRepository.findAllById(anyIterable())).thenReturn(Flux.empty());
+
+        StepVerifier.create(this.movieInfoCache.get("NONE")).verifyComplete();
+        StepVerifier.create(this.movieInfoCache.get("NONE")).verifyComplete();
+
+        verify(this.movieInfoRepository, times(2)).findAllById(List.of("NONE"));
+    }
+
+    @Test
+    void getAllLoadsOnlyAbsentIds() {
+        this.movieInfoCache.put(this.movieInfo);
+        when(this.movieInfoRepository.findAllById(anyIterable())).thenReturn(Flux.empty());
+
+        StepVerifier.create(this.movieInfoCache.getAll(List.of("TDR", "NONE")))
+                .assertNext(found -> {
+                    assertEquals(1, found.size());
+                    assertTrue(found.containsKey("TDR"));
+                })
+                .verifyComplete();
+
+        verify(this.movieInfoRepository, times(1)).findAllById(List.of("NONE"));
+    }
+
+    @Test
+    void invalidateForcesReload() {
+        when(this.movieInfoRepository.findAllById(anyIterable())).thenReturn(Flux.just(this.movieInfo));
+        this.movieInfoCache.put(this.movieInfo);
+
+        StepVerifier.create(this.movieInfoCache.get("TDR")).expectNext(this.movieInfo).verifyComplete();
+        verify(this.movieInfoRepository, times(0)).findAllById(anyIterable());
+
+        this.movieInfoCache.invalidate("TDR");
+
+        StepVerifier.create(this.movieInfoCache.get("TDR")).expectNext(this.movieInfo).verifyComplete();
+        verify(this.movieInfoRepository, times(1)).findAllById(anyIterable());
+    }
+}
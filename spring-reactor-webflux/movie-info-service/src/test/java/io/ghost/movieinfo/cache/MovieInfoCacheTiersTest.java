@@ -0,0 +1,145 @@
+package io.ghost.movieinfo.cache;
+
+import io.ghost.movieinfo.config.MovieInfoProperties;
+import io.ghost.movieinfo.domain.MovieInfo;
+import io.ghost.movieinfo.domain.MovieInfoInvalidation;
+import io.ghost.movieinfo.repository.MovieInfoRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Two instances, each with its own near cache, over one shared tier and one invalidation bus.
+ */
+class MovieInfoCacheTiersTest {
+
+    private MovieInfoRepository movieInfoRepository;
+
+    private InMemorySharedMovieInfoCache sharedCache;
+
+    private MovieInfoBatchLoader firstBatchLoader;
+
+    private MovieInfoBatchLoader secondBatchLoader;
+
+    private MovieInfoCache first;
+
+    private MovieInfoCache second;
+
+    @BeforeEach
+    void setUp() {
+        this.movieInfoRepository = mock(MovieInfoRepository.class);
+        var properties = new MovieInfoProperties();
+        properties.getBatch().setWindow(Duration.ofMillis(1));
+        this.sharedCache = new InMemorySharedMovieInfoCache(properties.getCache().getShared());
+        var invalidationBus = new LocalMovieInfoInvalidationBus();
+        this.firstBatchLoader = new MovieInfoBatchLoader(this.movieInfoRepository, properties);
+        this.secondBatchLoader = new MovieInfoBatchLoader(this.movieInfoRepository, properties);
+        this.first = new MovieInfoCache(this.movieInfoRepository, this.firstBatchLoader, this.sharedCache,
+                invalidationBus, properties);
+        this.second = new MovieInfoCache(this.movieInfoRepository, this.secondBatchLoader, this.sharedCache,
+                invalidationBus, properties);
+        this.first.subscribeInvalidations();
+        this.second.subscribeInvalidations();
+    }
+
+    @AfterEach
+    void tearDown() {
+        this.first.close();
+        this.second.close();
+        this.firstBatchLoader.close();
+        this.secondBatchLoader.close();
+    }
+
+    @Test
+    void missOnOneInstanceIsServedFromTheSharedTierOnAnother() {
+        when(this.movieInfoRepository.findAllById(anyIterable())).thenReturn(Flux.just(movieInfo(1)));
+
+        StepVerifier.create(this.first.get("TDR")).expectNext(movieInfo(1)).verifyComplete();
+        StepVerifier.create(this.second.get("TDR")).expectNext(movieInfo(1)).verifyComplete();
+        StepVerifier.create(this.second.getAll(List.of("TDR")))
+                .assertNext(found -> assertEquals(1L, found.get("TDR").getVersion()))
+                .verifyComplete();
+
+        verify(this.movieInfoRepository, times(1)).findAllById(anyIterable());
+    }
+
+    @Test
+    void writeOnOneInstanceReplacesTheCopyOfAnother() {
+        this.first.put(movieInfo(1));
+        StepVerifier.create(this.second.get("TDR")).expectNext(movieInfo(1)).verifyComplete();
+
+        this.first.put(movieInfo(2));
+
+        assertNull(this.second.getIfLoaded("TDR"));
+        StepVerifier.create(this.second.get("TDR")).expectNext(movieInfo(2)).verifyComplete();
+        verify(this.movieInfoRepository, times(0)).findAllById(anyIterable());
+    }
+
+    @Test
+    void lateInvalidationKeepsTheNewerCopy() {
+        this.second.put(movieInfo(3));
+
+        this.second.apply(new MovieInfoInvalidation("TDR", 2L));
+
+        assertEquals(3L, this.second.getIfLoaded("TDR").getVersion());
+    }
+
+    @Test
+    void sharedTierNeverGoesBackToAnOlderVersion() {
+        StepVerifier.create(this.sharedCache.put(movieInfo(2))).expectNext(true).verifyComplete();
+        StepVerifier.create(this.sharedCache.put(movieInfo(1))).expectNext(false).verifyComplete();
+        StepVerifier.create(this.sharedCache.put(movieInfo(2))).expectNext(false).verifyComplete();
+
+        StepVerifier.create(this.sharedCache.get("TDR")).expectNext(movieInfo(2)).verifyComplete();
+    }
+
+    @Test
+    void deleteDropsEveryCopyAndRefusesPutsOfTheOldDocument() {
+        this.first.put(movieInfo(1));
+        StepVerifier.create(this.second.get("TDR")).expectNext(movieInfo(1)).verifyComplete();
+        when(this.movieInfoRepository.findAllById(anyIterable())).thenReturn(Flux.empty());
+
+        this.first.invalidate("TDR");
+
+        assertNull(this.second.getIfLoaded("TDR"));
+        // A read that started before the delete finishes late
+        StepVerifier.create(this.sharedCache.put(movieInfo(1))).expectNext(false).verifyComplete();
+        StepVerifier.create(this.second.get("TDR")).verifyComplete();
+        verify(this.movieInfoRepository, times(1)).findAllById(anyIterable());
+    }
+
+    @Test
+    void unversionedWriteEvictsTheSharedCopy() {
+        this.first.put(movieInfo(1));
+        StepVerifier.create(this.second.get("TDR")).expectNext(movieInfo(1)).verifyComplete();
+        var pending = movieInfo(1);
+        pending.setVersion(null);
+
+        this.first.put(pending);
+
+        // Its own instance included, a copy of unknown version cannot be ordered against others
+        assertNull(this.first.getIfLoaded("TDR"));
+        assertNull(this.second.getIfLoaded("TDR"));
+        StepVerifier.create(this.sharedCache.get("TDR")).verifyComplete();
+    }
+
+    private static MovieInfo movieInfo(long version) {
+        return MovieInfo.builder()
+                .movieInfoId("TDR").name("The Dark Knight Rises")
+                .casts(List.of("Christian Bale", "Tom Hardy"))
+                .year(2012).version(version).build();
+    }
+}
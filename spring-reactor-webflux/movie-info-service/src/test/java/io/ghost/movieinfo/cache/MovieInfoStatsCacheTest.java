@@ -0,0 +1,72 @@
+package io.ghost.movieinfo.cache;
+
+import io.ghost.movieinfo.config.MovieInfoProperties;
+import io.ghost.movieinfo.domain.MovieInfoYearCount;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MovieInfoStatsCacheTest {
+
+    private MovieInfoStatsCache movieInfoStatsCache;
+
+    private final AtomicInteger aggregations = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        this.movieInfoStatsCache = new MovieInfoStatsCache(new MovieInfoProperties());
+    }
+
+    @Test
+    void concurrentRequestsShareOneAggregation() {
+        var first = this.movieInfoStatsCache.get("by-year", () -> byYear().delayElements(Duration.ofMillis(50)));
+        var second = this.movieInfoStatsCache.get("by-year", () -> byYear().delayElements(Duration.ofMillis(50)));
+
+        StepVerifier.create(Flux.merge(first, second))
+                .expectNextCount(4)
+                .verifyComplete();
+        assertEquals(1, this.aggregations.get());
+    }
+
+    @Test
+    void invalidateAllRunsTheAggregationAgain() {
+        StepVerifier.create(this.movieInfoStatsCache.get("by-year", this::byYear))
+                .expectNext(new MovieInfoYearCount(2005, 1), new MovieInfoYearCount(2012, 2))
+                .verifyComplete();
+        StepVerifier.create(this.movieInfoStatsCache.get("by-year", this::byYear))
+                .expectNextCount(2)
+                .verifyComplete();
+        assertEquals(1, this.aggregations.get());
+
+        this.movieInfoStatsCache.invalidateAll();
+
+        StepVerifier.create(this.movieInfoStatsCache.get("by-year", this::byYear))
+                .expectNextCount(2)
+                .verifyComplete();
+        assertEquals(2, this.aggregations.get());
+    }
+
+    @Test
+    void failedAggregationIsNotKept() {
+        StepVerifier.create(this.movieInfoStatsCache.get("by-year",
+                        () -> Flux.<MovieInfoYearCount>error(new IllegalStateException("down"))))
+                .verifyError(IllegalStateException.class);
+
+        StepVerifier.create(this.movieInfoStatsCache.get("by-year", this::byYear))
+                .expectNextCount(2)
+                .verifyComplete();
+    }
+
+    private Flux<MovieInfoYearCount> byYear() {
+        return Flux.defer(() -> {
+            this.aggregations.incrementAndGet();
+            return Flux.just(new MovieInfoYearCount(2005, 1), new MovieInfoYearCount(2012, 2));
+        });
+    }
+}
@@ -0,0 +1,27 @@
+package io.ghost.movieinfo.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.ghost.movieinfo.config.MovieInfoProperties;
+import org.junit.jupiter.api.Test;
+import reactor.test.StepVerifier;
+
+/**
+ * Nothing listens on the configured port, as when Redis is down at startup.
+ */
+class RedisSharedMovieInfoCacheTest {
+
+    @Test
+    void startsWithoutRedisAndFailsEachCall() {
+        var properties = new MovieInfoProperties().getCache();
+        properties.setRedisUri("redis://localhost:1");
+        try (var sharedCache = new RedisSharedMovieInfoCache(properties, new ObjectMapper())) {
+            StepVerifier.create(sharedCache.get("1"))
+                    .expectError()
+                    .verify();
+            // The failed connect is remembered, so the next call fails without another attempt
+            StepVerifier.create(sharedCache.evict("1"))
+                    .expectError()
+                    .verify();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package io.ghost.movieinfo.codec;
+
+import io.ghost.movieinfo.config.MovieInfoProperties;
+import io.ghost.movieinfo.domain.MovieInfo;
+import io.ghost.movieinfo.domain.MovieInfoEvent;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class MovieInfoProtobufCodecTest {
+
+    private static final ResolvableType MOVIE_INFO_TYPE = ResolvableType.forClass(MovieInfo.class);
+
+    private final DefaultDataBufferFactory bufferFactory = DefaultDataBufferFactory.sharedInstance;
+
+    private final MovieInfoProtobuf protobuf = new MovieInfoProtobuf(Jackson2ObjectMapperBuilder.json());
+
+    private final MovieInfoStreamingEncoder encoder =
+            MovieInfoStreamingEncoder.protobuf(this.protobuf, new MovieInfoProperties());
+
+    private final MovieInfoProtobufDecoder decoder = new MovieInfoProtobufDecoder(this.protobuf);
+
+    private final MovieInfo movieInfo = MovieInfo.builder()
+            .movieInfoId("TDR").name("The Dark Knight Rises")
+            .releaseDate(LocalDate.parse("2012-07-20")).casts(List.of("Christian Bale", "Tom Hardy"))
+            .year(2012).version(3L).build();
+
+    @Test
+    void singleMessageRoundTrip() {
+        var buffer = this.encoder.encodeValue(this.movieInfo, this.bufferFactory, MOVIE_INFO_TYPE,
+                MovieInfoMediaTypes.APPLICATION_PROTOBUF, Map.of());
+
+        assertEquals(this.movieInfo, this.decoder.decode(buffer, MOVIE_INFO_TYPE,
+                MovieInfoMediaTypes.APPLICATION_PROTOBUF, Map.of()));
+    }
+
+    @Test
+    void singleMessageIsNotLengthPrefixedWithoutDelimited() throws Exception {
+        var buffer = this.encoder.encodeValue(this.movieInfo, this.bufferFactory, MOVIE_INFO_TYPE,
+                MovieInfoMediaTypes.APPLICATION_PROTOBUF, Map.of());
+        var bytes = new byte[buffer.readableByteCount()];
+        buffer.read(bytes);
+        DataBufferUtils.release(buffer);
+
+        assertArrayEquals(this.protobuf.getWriters().get(MovieInfo.class).writeValueAsBytes(this.movieInfo), bytes);
+    }
+
+    @Test
+    void delimitedMessagesSplitAcrossBuffersAreDecoded() {
+        var other = MovieInfo.builder().movieInfoId("BB").name("Batman Begins").year(2005).build();
+        var bytes = encode(Flux.just(this.movieInfo, other, this.movieInfo));
+
+        StepVerifier.create(this.decoder.decode(chunks(bytes, 7), MOVIE_INFO_TYPE,
+                        MovieInfoMediaTypes.APPLICATION_PROTOBUF, Map.of()))
+                .expectNext(this.movieInfo, other, this.movieInfo)
+                .verifyComplete();
+    }
+
+    @Test
+    void truncatedMessageIsAnError() {
+        var bytes = encode(Flux.just(this.movieInfo));
+        var truncated = new byte[bytes.length - 3];
+        System.arraycopy(bytes, 0, truncated, 0, truncated.length);
+
+        StepVerifier.create(this.decoder.decode(chunks(truncated, 16), MOVIE_INFO_TYPE,
+                        MovieInfoMediaTypes.APPLICATION_PROTOBUF, Map.of()))
+                .verifyError(DecodingException.class);
+    }
+
+    @Test
+    void eventsCarryTheDocument() throws Exception {
+        var event = MovieInfoEvent.builder().id("token-1").operationType("insert").movieInfoId("TDR")
+                .movieInfo(this.movieInfo).build();
+        var type = ResolvableType.forClass(MovieInfoEvent.class);
+        var buffer = this.encoder.encodeValue(event, this.bufferFactory, type,
+                MovieInfoMediaTypes.APPLICATION_PROTOBUF, Map.of());
+
+        var decoded = (MovieInfoEvent) this.protobuf.readerFor(MovieInfoEvent.class)
+                .readValue(buffer.asInputStream(true));
+        assertEquals(event, decoded);
+        assertNull(this.protobuf.readerFor(String.class));
+    }
+
+    private byte[] encode(Flux<MovieInfo> movieInfos) {
+        var buffer = DataBufferUtils.join(this.encoder.encode(movieInfos, this.bufferFactory, MOVIE_INFO_TYPE,
+                MovieInfoMediaTypes.APPLICATION_PROTOBUF_DELIMITED, Map.of())).block();
+        var bytes = new byte[buffer.readableByteCount()];
+        buffer.read(bytes);
+        DataBufferUtils.release(buffer);
+        return bytes;
+    }
+
+    private Flux<DataBuffer> chunks(byte[] bytes, int size) {
+        var chunks = new ArrayList<DataBuffer>();
+        for (int offset = 0; offset < bytes.length; offset += size) {
+            var chunk = this.bufferFactory.allocateBuffer(size);
+            chunk.write(bytes, offset, Math.min(size, bytes.length - offset));
+            chunks.add(chunk);
+        }
+        return Flux.fromIterable(chunks);
+    }
+}
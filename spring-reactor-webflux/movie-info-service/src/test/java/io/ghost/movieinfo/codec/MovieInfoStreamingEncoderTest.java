@@ -0,0 +1,141 @@
+package io.ghost.movieinfo.codec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.ghost.movieinfo.config.MovieInfoProperties;
+import io.ghost.movieinfo.domain.MovieInfo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.MediaType;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MovieInfoStreamingEncoderTest {
+
+    private static final ResolvableType MOVIE_INFO_TYPE = ResolvableType.forClass(MovieInfo.class);
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    private MovieInfoProperties movieInfoProperties;
+
+    @BeforeEach
+    void setUp() {
+        this.movieInfoProperties = new MovieInfoProperties();
+    }
+
+    @Test
+    void ndjsonIsOneDocumentPerLine() throws Exception {
+        var lines = join(encode(movieInfos(3), MediaType.APPLICATION_NDJSON)).split("\n");
+
+        assertEquals(3, lines.length);
+        for (int i = 0; i < lines.length; i++) {
+            assertEquals("id-" + i, this.objectMapper.readValue(lines[i], MovieInfo.class).getMovieInfoId());
+        }
+    }
+
+    @Test
+    void jsonFluxIsOneArray() throws Exception {
+        var json = join(encode(movieInfos(3), MediaType.APPLICATION_JSON));
+
+        var movieInfos = this.objectMapper.readValue(json, MovieInfo[].class);
+        assertEquals(3, movieInfos.length);
+        assertEquals("id-2", movieInfos[2].getMovieInfoId());
+    }
+
+    @Test
+    void emptyJsonFluxIsAnEmptyArray() {
+        assertEquals("[]", join(encode(Flux.empty(), MediaType.APPLICATION_JSON)));
+    }
+
+    @Test
+    void jsonMonoIsASingleObject() throws Exception {
+        var json = join(encode(Mono.just(movieInfo(0)), MediaType.APPLICATION_JSON));
+
+        assertEquals("id-0", this.objectMapper.readValue(json, MovieInfo.class).getMovieInfoId());
+    }
+
+    @Test
+    void buffersAreEmittedOnceFlushSizeIsReached() throws Exception {
+        this.movieInfoProperties.getEncoding().setFlushSize(256);
+
+        var buffers = encode(movieInfos(100), MediaType.APPLICATION_JSON);
+
+        assertTrue(buffers.size() > 1);
+        assertEquals(100, this.objectMapper.readValue(join(buffers), MovieInfo[].class).length);
+    }
+
+    @Test
+    void cborFluxIsOneArrayAndCborSeqIsASequence() throws Exception {
+        var cborMapper = new CBORMapper();
+        cborMapper.registerModule(new JavaTimeModule());
+        var encoder = MovieInfoStreamingEncoder.cbor(cborMapper, this.movieInfoProperties);
+
+        var array = bytes(encoder.encode(movieInfos(3), DefaultDataBufferFactory.sharedInstance, MOVIE_INFO_TYPE,
+                MediaType.APPLICATION_CBOR, Map.of()).collectList().block());
+        assertEquals(3, cborMapper.readValue(array, MovieInfo[].class).length);
+
+        var sequence = bytes(encoder.encode(movieInfos(3), DefaultDataBufferFactory.sharedInstance, MOVIE_INFO_TYPE,
+                MovieInfoMediaTypes.APPLICATION_CBOR_SEQ, Map.of()).collectList().block());
+        try (var values = cborMapper.readerFor(MovieInfo.class).<MovieInfo>readValues(sequence)) {
+            assertEquals(3, values.readAll().size());
+        }
+    }
+
+    @Test
+    void otherElementTypesAreLeftToTheDefaultEncoder() {
+        var encoder = MovieInfoStreamingEncoder.json(this.objectMapper, this.movieInfoProperties);
+
+        assertTrue(encoder.canEncode(MOVIE_INFO_TYPE, MediaType.APPLICATION_NDJSON));
+        assertFalse(encoder.canEncode(ResolvableType.forClass(String.class), MediaType.APPLICATION_JSON));
+        assertFalse(encoder.canEncode(MOVIE_INFO_TYPE, MediaType.TEXT_EVENT_STREAM));
+    }
+
+    private List<DataBuffer> encode(Publisher<MovieInfo> movieInfos, MediaType mediaType) {
+        var encoder = MovieInfoStreamingEncoder.json(this.objectMapper, this.movieInfoProperties);
+        return encoder.encode(movieInfos, DefaultDataBufferFactory.sharedInstance, MOVIE_INFO_TYPE, mediaType,
+                        Map.of())
+                .collectList()
+                .block();
+    }
+
+    private static byte[] bytes(List<DataBuffer> buffers) {
+        var joined = DataBufferUtils.join(Flux.fromIterable(buffers)).block();
+        var bytes = new byte[joined.readableByteCount()];
+        joined.read(bytes);
+        DataBufferUtils.release(joined);
+        return bytes;
+    }
+
+    private static String join(List<DataBuffer> buffers) {
+        var json = new StringBuilder();
+        for (DataBuffer buffer : buffers) {
+            json.append(buffer.toString(StandardCharsets.UTF_8));
+            DataBufferUtils.release(buffer);
+        }
+        return json.toString();
+    }
+
+    private static Flux<MovieInfo> movieInfos(int count) {
+        return Flux.range(0, count).map(MovieInfoStreamingEncoderTest::movieInfo);
+    }
+
+    private static MovieInfo movieInfo(int i) {
+        return MovieInfo.builder()
+                .movieInfoId("id-" + i).name("Movie " + i).year(2000 + i)
+                .casts(List.of("Cast " + i)).build();
+    }
+}
@@ -1,9 +1,11 @@
 package io.ghost.movieinfo.controller;
 
+import io.ghost.movieinfo.scheduling.MovieInfoSchedulers;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.HttpStatus;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import reactor.core.publisher.Mono;
@@ -12,6 +14,7 @@ import reactor.test.StepVerifier;
 import static org.junit.jupiter.api.Assertions.*;
 
 @WebFluxTest(controllers = FluxMonoController.class)
+@Import(MovieInfoSchedulers.class)
 @AutoConfigureWebTestClient
 class FluxMonoControllerTest {
 
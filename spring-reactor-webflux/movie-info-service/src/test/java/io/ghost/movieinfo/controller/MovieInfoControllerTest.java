@@ -1,14 +1,23 @@
 package io.ghost.movieinfo.controller;
 
 import io.ghost.movieinfo.domain.MovieInfo;
+import io.ghost.movieinfo.domain.MovieInfoBulkResult;
+import io.ghost.movieinfo.domain.MovieInfoCastCount;
+import io.ghost.movieinfo.domain.MovieInfoSummary;
+import io.ghost.movieinfo.domain.MovieInfoYearCount;
 import io.ghost.movieinfo.repository.MovieInfoRepository;
+import org.bson.types.ObjectId;
 import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.web.reactive.server.WebTestClient;
@@ -17,7 +26,9 @@ import reactor.test.StepVerifier;
 
 import java.net.http.HttpRequest;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -37,6 +48,12 @@ class MovieInfoControllerTest {
     private WebTestClient webTestClient;
 
     private static String MOVIE_BASE_URI = "/v1";
+    // ObjectId seeds itself from SecureRandom once; make that happen here rather than on an event loop
+    @BeforeAll
+    static void seedObjectIds() {
+        new ObjectId();
+    }
+
     // This is the setup method which pushes the data in embedded DB
     @BeforeEach
     void setUp() {
@@ -92,6 +109,34 @@ class MovieInfoControllerTest {
 
     }
 
+    @Test
+    void bulkPostMovieInfos() {
+        var body = "{\"name\":\"Andhadun\",\"year\":2018,\"casts\":[\"Tabu\"],\"releaseDate\":\"2018-10-05\"}\n"
+                + "{\"movieInfoId\":\"DRS\",\"name\":\"Drishyam\",\"year\":2015,\"casts\":[\"Ajay Devgn\"],"
+                + "\"releaseDate\":\"2015-07-31\"}\n";
+
+        var resultsFlux = webTestClient.post()
+                .uri(MOVIE_BASE_URI + "/movie-infos:bulk")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .bodyValue(body)
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .returnResult(MovieInfoBulkResult.class)
+                .getResponseBody();
+
+        StepVerifier.create(resultsFlux)
+                .assertNext(result -> {
+                    assertEquals(2, result.getAccepted());
+                    assertEquals(0, result.getFailed());
+                })
+                .verifyComplete();
+
+        StepVerifier.create(this.movieInfoRepository.count())
+                .expectNext(5L)
+                .verifyComplete();
+    }
+
     @Test
     void getAllMovieInfos() {
         var movieInfosFlux = webTestClient.get()
@@ -109,6 +154,76 @@ class MovieInfoControllerTest {
 
     }
 
+    @Test
+    void getMovieInfosPageByPage() {
+        var cursor = webTestClient.get()
+                .uri(MOVIE_BASE_URI + "/movie-infos?sort=year&limit=2")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectHeader()
+                .exists(MovieInfoController.NEXT_CURSOR_HEADER)
+                .expectBodyList(MovieInfo.class)
+                .hasSize(2)
+                .consumeWith(result -> assertEquals(2008, result.getResponseBody().get(1).getYear()))
+                .returnResult()
+                .getResponseHeaders()
+                .getFirst(MovieInfoController.NEXT_CURSOR_HEADER);
+
+        webTestClient.get()
+                .uri(MOVIE_BASE_URI + "/movie-infos?sort=year&limit=2&fields=name&after={after}", cursor)
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectHeader()
+                .doesNotExist(MovieInfoController.NEXT_CURSOR_HEADER)
+                .expectBodyList(MovieInfo.class)
+                .hasSize(1)
+                .consumeWith(result -> {
+                    var movieInfo = result.getResponseBody().get(0);
+                    assertEquals("TDR", movieInfo.getMovieInfoId());
+                    assertEquals("The Dark Knight Rises", movieInfo.getName());
+                    assertNull(movieInfo.getYear());
+                });
+    }
+
+    @Test
+    void getMovieInfosPageByPageWithoutTheSortField() {
+        // Two of the same year, so the _id tie-breaker of the cursor matters too
+        this.movieInfoRepository.save(MovieInfo.builder().movieInfoId("BB2").name("Batman Begins Again")
+                .year(2005).build()).block();
+        var names = new ArrayList<String>();
+        String cursor = null;
+        do {
+            var uri = MOVIE_BASE_URI + "/movie-infos?sort=year&limit=1&fields=name"
+                    + (cursor == null ? "" : "&after=" + cursor);
+            var result = webTestClient.get()
+                    .uri(uri)
+                    .exchange()
+                    .expectStatus()
+                    .is2xxSuccessful()
+                    .expectBodyList(MovieInfo.class)
+                    .hasSize(1)
+                    .consumeWith(page -> assertNull(page.getResponseBody().get(0).getYear()))
+                    .returnResult();
+            names.add(result.getResponseBody().get(0).getName());
+            cursor = result.getResponseHeaders().getFirst(MovieInfoController.NEXT_CURSOR_HEADER);
+        } while (cursor != null && names.size() < 10);
+
+        assertEquals(4, names.size());
+        assertEquals(Set.of("Batman Begins", "Batman Begins Again"), Set.copyOf(names.subList(0, 2)));
+        assertEquals(List.of("The Dark Knight", "The Dark Knight Rises"), names.subList(2, 4));
+    }
+
+    @Test
+    void getMovieInfosWithInvalidCursor() {
+        webTestClient.get()
+                .uri(MOVIE_BASE_URI + "/movie-infos?after=not-a-cursor")
+                .exchange()
+                .expectStatus()
+                .isBadRequest();
+    }
+
     @Test
     void getMovieInfosBy() {
         webTestClient.get()
@@ -124,6 +239,334 @@ class MovieInfoControllerTest {
                 });
     }
 
+    @Test
+    void getMovieInfosByIds() {
+        var movieInfosFlux = webTestClient.get()
+                .uri(MOVIE_BASE_URI + "/movie-infos?ids=TDR,UNKNOWN")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .returnResult(MovieInfo.class)
+                .getResponseBody();
+
+        StepVerifier.create(movieInfosFlux)
+                .assertNext(movieInfo -> assertEquals("TDR", movieInfo.getMovieInfoId()))
+                .verifyComplete();
+    }
+
+    @Test
+    void batchGetMovieInfos() {
+        webTestClient.post()
+                .uri(MOVIE_BASE_URI + "/movie-infos:batchGet")
+                .bodyValue(List.of("UNKNOWN", "TDR"))
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBodyList(MovieInfo.class)
+                .hasSize(1);
+    }
+
+    @Test
+    void getMovieInfoByIdNotModified() {
+        var etag = webTestClient.get()
+                .uri(MOVIE_BASE_URI + "/movie-infos/TDR")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .exists(HttpHeaders.LAST_MODIFIED)
+                .returnResult(MovieInfo.class)
+                .getResponseHeaders()
+                .getETag();
+        assertNotNull(etag);
+
+        webTestClient.get()
+                .uri(MOVIE_BASE_URI + "/movie-infos/TDR")
+                .ifNoneMatch(etag)
+                .exchange()
+                .expectStatus()
+                .isNotModified()
+                .expectBody()
+                .isEmpty();
+    }
+
+    @Test
+    void getMovieInfosNotModified() {
+        var etag = webTestClient.get()
+                .uri(MOVIE_BASE_URI + "/movie-infos?limit=2")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .returnResult(MovieInfo.class)
+                .getResponseHeaders()
+                .getETag();
+        assertNotNull(etag);
+
+        webTestClient.get()
+                .uri(MOVIE_BASE_URI + "/movie-infos?limit=2")
+                .ifNoneMatch(etag)
+                .exchange()
+                .expectStatus()
+                .isNotModified();
+
+        this.movieInfoRepository.deleteById("TDR").block();
+
+        webTestClient.get()
+                .uri(MOVIE_BASE_URI + "/movie-infos?limit=2")
+                .ifNoneMatch(etag)
+                .exchange()
+                .expectStatus()
+                .isOk();
+    }
+
+    @Test
+    void putMovieInfoWithIfMatch() {
+        var etag = webTestClient.get()
+                .uri(MOVIE_BASE_URI + "/movie-infos/TDR")
+                .exchange()
+                .returnResult(MovieInfo.class)
+                .getResponseHeaders()
+                .getETag();
+        var update = MovieInfo.builder()
+                .name("The Dark Knight Rises").year(2012)
+                .casts(List.of("Christian Bale", "Tom Hardy")).build();
+
+        var newEtag = webTestClient.put()
+                .uri(MOVIE_BASE_URI + "/movie-infos/TDR")
+                .ifMatch(etag)
+                .bodyValue(update)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody(MovieInfo.class)
+                .value(movieInfo -> assertEquals(List.of("Christian Bale", "Tom Hardy"), movieInfo.getCasts()))
+                .returnResult()
+                .getResponseHeaders()
+                .getETag();
+        assertNotEquals(etag, newEtag);
+
+        webTestClient.put()
+                .uri(MOVIE_BASE_URI + "/movie-infos/TDR")
+                .ifMatch(etag)
+                .bodyValue(update)
+                .exchange()
+                .expectStatus()
+                .isEqualTo(HttpStatus.PRECONDITION_FAILED);
+
+        webTestClient.put()
+                .uri(MOVIE_BASE_URI + "/movie-infos/UNKNOWN")
+                .bodyValue(update)
+                .exchange()
+                .expectStatus()
+                .isNotFound();
+    }
+
+    @Test
+    void postExistingMovieInfoReplacesIt() {
+        webTestClient.post()
+                .uri(MOVIE_BASE_URI + "/movie-info")
+                .bodyValue(MovieInfo.builder().movieInfoId("TDR").name("The Dark Knight Rises").year(2012)
+                        .casts(List.of("Christian Bale", "Tom Hardy")).build())
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBody(MovieInfo.class)
+                .consumeWith(result -> {
+                    var movieInfo = result.getResponseBody();
+                    assertEquals(List.of("Christian Bale", "Tom Hardy"), movieInfo.getCasts());
+                    assertEquals(1L, movieInfo.getVersion());
+                });
+
+        StepVerifier.create(this.movieInfoRepository.count())
+                .expectNext(3L)
+                .verifyComplete();
+    }
+
+    @Test
+    void postInvalidMovieInfoIsRejected() {
+        webTestClient.post()
+                .uri(MOVIE_BASE_URI + "/movie-info")
+                .bodyValue(MovieInfo.builder().name("   ").year(1700).casts(List.of("Tabu")).build())
+                .exchange()
+                .expectStatus()
+                .isBadRequest()
+                .expectBody()
+                .jsonPath("$.violations.length()").isEqualTo(2)
+                .jsonPath("$.violations[0].field").isEqualTo("name")
+                .jsonPath("$.violations[1].field").isEqualTo("year");
+
+        StepVerifier.create(this.movieInfoRepository.count())
+                .expectNext(5L)
+                .verifyComplete();
+    }
+
+    @Test
+    void postMovieInfoIsNormalized() {
+        webTestClient.post()
+                .uri(MOVIE_BASE_URI + "/movie-info")
+                .bodyValue(MovieInfo.builder().name("  The   Prestige ").year(2006)
+                        .casts(List.of(" Hugh  Jackman", "Christian Bale", "Hugh Jackman ", " ")).build())
+                .exchange()
+                .expectStatus()
+                .isAccepted()
+                .expectBody(MovieInfo.class)
+                .consumeWith(result -> {
+                    var saved = result.getResponseBody();
+                    assertNotNull(saved);
+                    assertEquals("The Prestige", saved.getName());
+                    assertEquals(List.of("Hugh Jackman", "Christian Bale"), saved.getCasts());
+                });
+    }
+
+    @Test
+    void bulkPostReportsInvalidRecords() {
+        var body = "{\"movieInfoId\":\"PRS\",\"name\":\"The Prestige\",\"year\":2006}\n"
+                + "{\"movieInfoId\":\"NNM\",\"name\":\" \",\"year\":2006}\n";
+
+        var resultsFlux = webTestClient.post()
+                .uri(MOVIE_BASE_URI + "/movie-infos:bulk")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .bodyValue(body)
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .returnResult(MovieInfoBulkResult.class)
+                .getResponseBody();
+
+        StepVerifier.create(resultsFlux)
+                .assertNext(result -> {
+                    assertEquals(1, result.getAccepted());
+                    assertEquals(1, result.getInvalid());
+                    assertEquals(1, result.getViolations().size());
+                    assertEquals(1L, result.getViolations().get(0).getIndex());
+                    assertEquals("NNM", result.getViolations().get(0).getMovieInfoId());
+                })
+                .verifyComplete();
+
+        StepVerifier.create(this.movieInfoRepository.count())
+                .expectNext(6L)
+                .verifyComplete();
+    }
+
+    @Test
+    void countMovieInfosByYear() {
+        webTestClient.get()
+                .uri(MOVIE_BASE_URI + "/movie-infos/stats/by-year")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBodyList(MovieInfoYearCount.class)
+                .isEqualTo(List.of(new MovieInfoYearCount(2005, 1), new MovieInfoYearCount(2008, 1),
+                        new MovieInfoYearCount(2012, 1), new MovieInfoYearCount(2015, 1),
+                        new MovieInfoYearCount(2018, 1)));
+    }
+
+    @Test
+    void topCastIsRecountedAfterAWrite() {
+        webTestClient.get()
+                .uri(MOVIE_BASE_URI + "/movie-infos/stats/top-cast?limit=2")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBodyList(MovieInfoCastCount.class)
+                .isEqualTo(List.of(new MovieInfoCastCount("Christian Bale", 3),
+                        new MovieInfoCastCount("Michael Cane", 3)));
+
+        webTestClient.post()
+                .uri(MOVIE_BASE_URI + "/movie-info")
+                .bodyValue(MovieInfo.builder().name("The Prestige").year(2006)
+                        .casts(List.of("Christian Bale", "Hugh Jackman")).build())
+                .exchange()
+                .expectStatus()
+                .isAccepted();
+
+        webTestClient.get()
+                .uri(MOVIE_BASE_URI + "/movie-infos/stats/top-cast?limit=1")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBodyList(MovieInfoCastCount.class)
+                .isEqualTo(List.of(new MovieInfoCastCount("Christian Bale", 4)));
+    }
+
+    @Test
+    void topCastLimitIsBounded() {
+        webTestClient.get()
+                .uri(MOVIE_BASE_URI + "/movie-infos/stats/top-cast?limit=0")
+                .exchange()
+                .expectStatus()
+                .isBadRequest();
+    }
+
+    @Test
+    void getMovieInfoSummaries() {
+        webTestClient.get()
+                .uri(MOVIE_BASE_URI + "/movie-infos/summaries")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBodyList(MovieInfoSummary.class)
+                .value(summaries -> {
+                    assertEquals(3, summaries.size());
+                    assertEquals(new MovieInfoSummary("TDR", "The Dark Knight Rises", 2012), summaries.get(0));
+                });
+
+        webTestClient.get()
+                .uri(MOVIE_BASE_URI + "/movie-infos/summaries?year=2005&limit=1")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(1)
+                .jsonPath("$[0].name").isEqualTo("Batman Begins")
+                .jsonPath("$[0].casts").doesNotExist();
+    }
+
+    @Test
+    void searchMovieInfosByName() {
+        webTestClient.get()
+                .uri(MOVIE_BASE_URI + "/movie-infos/search?name=rises")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBodyList(MovieInfo.class)
+                .value(movieInfos -> {
+                    assertEquals(1, movieInfos.size());
+                    assertEquals("TDR", movieInfos.get(0).getMovieInfoId());
+                });
+    }
+
+    @Test
+    void searchMovieInfosByYearAndCast() {
+        webTestClient.get()
+                .uri(MOVIE_BASE_URI + "/movie-infos/search?year=2008&cast=Christian Bale")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBodyList(MovieInfo.class)
+                .value(movieInfos -> {
+                    assertEquals(1, movieInfos.size());
+                    assertEquals("The Dark Knight", movieInfos.get(0).getName());
+                });
+
+        webTestClient.get()
+                .uri(MOVIE_BASE_URI + "/movie-infos/search?cast=Christian Bale&limit=2")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBodyList(MovieInfo.class)
+                .hasSize(2);
+    }
+
+    @Test
+    void searchMovieInfosWithoutCriteria() {
+        webTestClient.get()
+                .uri(MOVIE_BASE_URI + "/movie-infos/search")
+                .exchange()
+                .expectStatus()
+                .isBadRequest();
+    }
+
     @Test
     void deleteMovieInfosBy() {
         webTestClient.delete()
@@ -1,12 +1,22 @@
 package io.ghost.movieinfo.controller;
 
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.ghost.movieinfo.codec.MovieInfoMediaTypes;
+import io.ghost.movieinfo.codec.MovieInfoProtobuf;
 import io.ghost.movieinfo.domain.MovieInfo;
+import io.ghost.movieinfo.domain.MovieInfoEvent;
+import io.ghost.movieinfo.domain.MovieInfoPage;
+import io.ghost.movieinfo.domain.MovieInfoViolation;
 import io.ghost.movieinfo.service.MovieInfoService;
+import io.ghost.movieinfo.validation.MovieInfoValidationException;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -18,6 +28,8 @@ import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.when;
 
 @WebFluxTest(controllers = MovieInfoController.class)
@@ -51,8 +63,8 @@ public class MovieInfoControllerUnitTest {
                                 List.of("Christian Bale", "Michael Cane"))
                         .year(2012).build()
         );
-        when(this.movieInfoService.getAllMovieInfos())
-                .thenReturn(Flux.fromIterable(movieInfoList));
+        when(this.movieInfoService.getMovieInfoPage(eq("id"), any(), any(), any()))
+                .thenReturn(Mono.just(new MovieInfoPage(movieInfoList, null)));
 
         var movieInfosFlux = webTestClient.get()
                 .uri(MOVIE_BASE_URI+"/movie-infos")
@@ -107,4 +119,157 @@ public class MovieInfoControllerUnitTest {
                     assertTrue(mono == null);
                 });
     }
+
+    @Test
+    public void streamMovieInfosAsNdjsonTest() {
+        when(this.movieInfoService.streamMovieInfoEvents("token-1"))
+                .thenReturn(Flux.just(MovieInfoEvent.builder()
+                        .id("token-2").operationType("delete").movieInfoId("TDR").build()));
+
+        var eventsFlux = webTestClient.get()
+                .uri(MOVIE_BASE_URI + "/movie-infos/stream?after=token-1")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .returnResult(MovieInfoEvent.class)
+                .getResponseBody();
+
+        StepVerifier.create(eventsFlux)
+                .assertNext(event -> {
+                    assertTrue("token-2".equals(event.getId()));
+                    assertTrue("TDR".equals(event.getMovieInfoId()));
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    public void streamMovieInfosAsServerSentEventsTest() {
+        when(this.movieInfoService.streamMovieInfoEvents("token-1"))
+                .thenReturn(Flux.just(MovieInfoEvent.builder()
+                        .id("token-2").operationType("delete").movieInfoId("TDR").build()));
+
+        var body = webTestClient.get()
+                .uri(MOVIE_BASE_URI + "/movie-infos/stream")
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .header("Last-Event-ID", "token-1")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .returnResult(String.class)
+                .getResponseBody()
+                .collectList()
+                .block();
+
+        assertTrue(body != null && !body.isEmpty());
+        assertTrue(body.get(0).contains("TDR"));
+    }
+
+    @Test
+    public void exportMovieInfosAsJsonArrayTest() {
+        when(this.movieInfoService.getAllMovieInfos())
+                .thenReturn(Flux.just(MovieInfo.builder().movieInfoId("BB").name("Batman Begins").year(2005).build(),
+                        MovieInfo.builder().movieInfoId("TDR").name("The Dark Knight Rises").year(2012).build()));
+
+        webTestClient.get()
+                .uri(MOVIE_BASE_URI + "/movie-infos:export")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBodyList(MovieInfo.class)
+                .hasSize(2);
+    }
+
+    @Test
+    public void getMovieInfoByIdAsCborTest() throws Exception {
+        when(this.movieInfoService.getMovieInfoById("TDR"))
+                .thenReturn(Mono.just(MovieInfo.builder()
+                        .movieInfoId("TDR").name("The Dark Knight Rises")
+                        .releaseDate(LocalDate.parse("2012-07-20")).year(2012).build()));
+
+        var body = webTestClient.get()
+                .uri(MOVIE_BASE_URI + "/movie-infos/TDR")
+                .accept(MediaType.APPLICATION_CBOR)
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectHeader().contentType(MediaType.APPLICATION_CBOR)
+                .expectBody(byte[].class)
+                .returnResult()
+                .getResponseBody();
+
+        var movieInfo = new CBORMapper().registerModule(new JavaTimeModule()).readValue(body, MovieInfo.class);
+        assertTrue("TDR".equals(movieInfo.getMovieInfoId()));
+        assertTrue(LocalDate.parse("2012-07-20").equals(movieInfo.getReleaseDate()));
+    }
+
+    @Test
+    public void postMovieInfoAsProtobufTest() throws Exception {
+        var protobuf = new MovieInfoProtobuf(Jackson2ObjectMapperBuilder.json());
+        var movieInfo = MovieInfo.builder()
+                .name("Batman Begins").releaseDate(LocalDate.parse("2005-06-15"))
+                .casts(List.of("Christian Bale", "Michael Cane")).year(2005).build();
+        when(this.movieInfoService.persistMovieInfo(movieInfo))
+                .thenReturn(Mono.just(MovieInfo.builder()
+                        .movieInfoId("BB").name("Batman Begins").releaseDate(LocalDate.parse("2005-06-15"))
+                        .casts(List.of("Christian Bale", "Michael Cane")).year(2005).version(0L).build()));
+
+        var body = webTestClient.post()
+                .uri(MOVIE_BASE_URI + "/movie-info")
+                .contentType(MovieInfoMediaTypes.APPLICATION_PROTOBUF)
+                .accept(MovieInfoMediaTypes.APPLICATION_PROTOBUF)
+                .bodyValue(protobuf.getWriters().get(MovieInfo.class).writeValueAsBytes(movieInfo))
+                .exchange()
+                .expectStatus()
+                .isAccepted()
+                .expectBody(byte[].class)
+                .returnResult()
+                .getResponseBody();
+
+        MovieInfo saved = protobuf.readerFor(MovieInfo.class).readValue(body);
+        assertTrue("BB".equals(saved.getMovieInfoId()));
+        assertTrue(List.of("Christian Bale", "Michael Cane").equals(saved.getCasts()));
+    }
+
+    @Test
+    public void postInvalidMovieInfoListsEveryViolationTest() {
+        when(this.movieInfoService.persistMovieInfo(any()))
+                .thenReturn(Mono.error(new MovieInfoValidationException(List.of(
+                        MovieInfoViolation.builder().field("name").code("required")
+                                .message("name must not be blank").build(),
+                        MovieInfoViolation.builder().field("year").code("out-of-range")
+                                .message("year must be between 1888 and 2036").rejectedValue("1700").build()))));
+
+        webTestClient.post()
+                .uri(MOVIE_BASE_URI + "/movie-info")
+                .bodyValue(MovieInfo.builder().name(" ").year(1700).build())
+                .exchange()
+                .expectStatus()
+                .isBadRequest()
+                .expectHeader()
+                .contentType(MediaType.APPLICATION_JSON)
+                .expectBody()
+                .jsonPath("$.status").isEqualTo(400)
+                .jsonPath("$.path").isEqualTo(MOVIE_BASE_URI + "/movie-info")
+                .jsonPath("$.violations.length()").isEqualTo(2)
+                .jsonPath("$.violations[0].field").isEqualTo("name")
+                .jsonPath("$.violations[1].code").isEqualTo("out-of-range")
+                .jsonPath("$.violations[1].rejectedValue").isEqualTo("1700");
+    }
+
+    @Test
+    public void postUnreadableMovieInfoIsAStructuredBadRequestTest() {
+        webTestClient.post()
+                .uri(MOVIE_BASE_URI + "/movie-info")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"name\":\"Batman Begins\",\"year\":\"two thousand five\"}")
+                .exchange()
+                .expectStatus()
+                .isBadRequest()
+                .expectBody()
+                .jsonPath("$.status").isEqualTo(400)
+                .jsonPath("$.message").isNotEmpty()
+                .jsonPath("$.violations").isEmpty();
+    }
 }
@@ -0,0 +1,132 @@
+package io.ghost.movieinfo.controller;
+
+import io.ghost.movieinfo.domain.MovieInfo;
+import io.ghost.movieinfo.domain.MovieInfoBulkResult;
+import io.ghost.movieinfo.domain.MovieInfoSearch;
+import io.ghost.movieinfo.repository.MovieInfoRepository;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.rsocket.context.LocalRSocketServerPort;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.messaging.rsocket.RSocketRequester;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(properties = "spring.mongodb.embedded.version=3.5.5")
+class MovieInfoRSocketControllerTest {
+
+    @Autowired
+    private MovieInfoRepository movieInfoRepository;
+
+    @Autowired
+    private RSocketRequester.Builder requesterBuilder;
+
+    @LocalRSocketServerPort
+    private int port;
+
+    private RSocketRequester requester;
+
+    // ObjectId seeds itself from SecureRandom once; make that happen here rather than on an event loop
+    @BeforeAll
+    static void seedObjectIds() {
+        new ObjectId();
+    }
+
+    @BeforeEach
+    void setUp() {
+        var movieInfoList = List.of(
+                MovieInfo.builder()
+                        .movieInfoId(null).name("Batman Begins")
+                        .releaseDate(LocalDate.parse("2005-06-15")).casts(
+                                List.of("Christian Bale", "Michael Cane"))
+                        .year(2005).build(),
+                MovieInfo.builder()
+                        .movieInfoId(null).name("The Dark Knight")
+                        .releaseDate(LocalDate.parse("2008-07-18")).casts(
+                                List.of("Christian Bale", "Heath Ledger"))
+                        .year(2008).build(),
+                MovieInfo.builder()
+                        .movieInfoId("TDR").name("The Dark Knight Rises")
+                        .releaseDate(LocalDate.parse("2012-07-20")).casts(
+                                List.of("Christian Bale", "Tom Hardy"))
+                        .year(2012).build()
+        );
+        this.movieInfoRepository.saveAll(movieInfoList).blockLast();
+        this.requester = this.requesterBuilder.tcp("localhost", this.port);
+    }
+
+    @AfterEach
+    void tearDown() {
+        this.requester.dispose();
+        this.movieInfoRepository.deleteAll().block();
+    }
+
+    @Test
+    void getMovieInfoById() {
+        StepVerifier.create(this.requester.route("movie-infos.get.TDR").retrieveMono(MovieInfo.class))
+                .assertNext(movieInfo -> assertEquals("The Dark Knight Rises", movieInfo.getName()))
+                .verifyComplete();
+    }
+
+    @Test
+    void listFollowsTheRequestedDemand() {
+        var movieInfos = this.requester.route("movie-infos.list").retrieveFlux(MovieInfo.class);
+
+        StepVerifier.create(movieInfos, 1)
+                .expectNextCount(1)
+                .expectNoEvent(Duration.ofMillis(200))
+                .thenRequest(2)
+                .expectNextCount(2)
+                .verifyComplete();
+    }
+
+    @Test
+    void searchByYear() {
+        var search = MovieInfoSearch.builder().year(2008).build();
+
+        StepVerifier.create(this.requester.route("movie-infos.search").data(search).retrieveFlux(MovieInfo.class))
+                .assertNext(movieInfo -> assertEquals("The Dark Knight", movieInfo.getName()))
+                .verifyComplete();
+    }
+
+    @Test
+    void upsertOverAChannel() {
+        var movieInfos = Flux.just(
+                MovieInfo.builder().movieInfoId("BR").name("Blade Runner").year(1982).build(),
+                MovieInfo.builder().movieInfoId("BR2049").name("Blade Runner 2049").year(2017).build());
+
+        var accepted = this.requester.route("movie-infos.upsert").data(movieInfos)
+                .retrieveFlux(MovieInfoBulkResult.class)
+                .map(MovieInfoBulkResult::getAccepted)
+                .reduce(0, Integer::sum);
+
+        StepVerifier.create(accepted).expectNext(2).verifyComplete();
+        StepVerifier.create(this.movieInfoRepository.count()).expectNext(5L).verifyComplete();
+    }
+
+    @Test
+    void deleteIsFireAndForget() {
+        StepVerifier.create(this.requester.route("movie-infos.delete.TDR").send()).verifyComplete();
+
+        var deleted = Flux.interval(Duration.ofMillis(20))
+                .concatMap(tick -> this.movieInfoRepository.existsById("TDR"))
+                .filter(exists -> !exists)
+                .next()
+                .timeout(Duration.ofSeconds(5));
+        StepVerifier.create(deleted).expectNext(false).verifyComplete();
+    }
+}
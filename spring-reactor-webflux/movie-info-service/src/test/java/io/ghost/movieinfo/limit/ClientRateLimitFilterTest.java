@@ -0,0 +1,197 @@
+package io.ghost.movieinfo.limit;
+
+import io.ghost.movieinfo.config.MovieInfoProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.net.InetSocketAddress;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ClientRateLimitFilterTest {
+
+    private static final InetSocketAddress FIRST_ADDRESS = new InetSocketAddress("10.0.0.1", 40000);
+
+    private static final InetSocketAddress SECOND_ADDRESS = new InetSocketAddress("10.0.0.2", 40000);
+
+    private final WebFilterChain chain = exchange -> Mono.empty();
+
+    // A minute before the quota starts over
+    private final Clock clock = Clock.fixed(Instant.parse("2022-07-01T23:59:00Z"), ZoneOffset.UTC);
+
+    private final AtomicLong nanos = new AtomicLong();
+
+    private MovieInfoProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        this.properties = new MovieInfoProperties();
+        var rateLimit = this.properties.getRateLimit();
+        rateLimit.setDefaults(new MovieInfoProperties.RatePlan(10, 3, 0));
+        rateLimit.setWriteCost(2);
+        rateLimit.setWriteRecordCost(0.05);
+        rateLimit.getClients().put("key-of-tenant", new MovieInfoProperties.RatePlan(100, 50, 0));
+    }
+
+    @Test
+    void burstIsSpentThenRefilledAtTheRate() {
+        var filter = filter();
+
+        for (int remaining = 2; remaining >= 0; remaining--) {
+            var accepted = filter(filter, get(FIRST_ADDRESS, null));
+            assertNull(accepted.getResponse().getStatusCode());
+            assertEquals("3", header(accepted, ClientRateLimitFilter.LIMIT_HEADER));
+            assertEquals(String.valueOf(remaining), header(accepted, ClientRateLimitFilter.REMAINING_HEADER));
+        }
+        var rejected = filter(filter, get(FIRST_ADDRESS, null));
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, rejected.getResponse().getStatusCode());
+        assertEquals("1", header(rejected, HttpHeaders.RETRY_AFTER));
+        assertEquals("0", header(rejected, ClientRateLimitFilter.REMAINING_HEADER));
+
+        this.nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+        var refilled = filter(filter, get(FIRST_ADDRESS, null));
+        assertNull(refilled.getResponse().getStatusCode());
+        assertEquals("0", header(refilled, ClientRateLimitFilter.REMAINING_HEADER));
+    }
+
+    @Test
+    void writesCostMoreThanReads() {
+        var filter = filter();
+
+        var write = filter(filter, MockServerWebExchange.from(
+                MockServerHttpRequest.post("/v1/movie-info").remoteAddress(FIRST_ADDRESS)));
+        assertEquals("1", header(write, ClientRateLimitFilter.REMAINING_HEADER));
+
+        var secondWrite = filter(filter, MockServerWebExchange.from(
+                MockServerHttpRequest.delete("/v1/movie-infos/TDR").remoteAddress(FIRST_ADDRESS)));
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, secondWrite.getResponse().getStatusCode());
+        assertNull(filter(filter, get(FIRST_ADDRESS, null)).getResponse().getStatusCode());
+    }
+
+    @Test
+    void clientsAreLimitedApart() {
+        var filter = filter();
+        for (int i = 0; i < 3; i++) {
+            filter(filter, get(FIRST_ADDRESS, null));
+        }
+
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS,
+                filter(filter, get(FIRST_ADDRESS, null)).getResponse().getStatusCode());
+        // A made up key does not get a bucket of its own
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS,
+                filter(filter, get(FIRST_ADDRESS, "made-up")).getResponse().getStatusCode());
+        assertNull(filter(filter, get(SECOND_ADDRESS, null)).getResponse().getStatusCode());
+        var tenant = filter(filter, get(FIRST_ADDRESS, "key-of-tenant"));
+        assertNull(tenant.getResponse().getStatusCode());
+        assertEquals("50", header(tenant, ClientRateLimitFilter.LIMIT_HEADER));
+        assertEquals("49", header(tenant, ClientRateLimitFilter.REMAINING_HEADER));
+    }
+
+    @Test
+    void dailyQuotaHoldsUntilMidnight() {
+        this.properties.getRateLimit().setDefaults(new MovieInfoProperties.RatePlan(10, 10, 3));
+        var filter = filter();
+
+        for (int remaining = 2; remaining >= 0; remaining--) {
+            var accepted = filter(filter, get(FIRST_ADDRESS, null));
+            assertEquals("3", header(accepted, ClientRateLimitFilter.QUOTA_LIMIT_HEADER));
+            assertEquals(String.valueOf(remaining), header(accepted, ClientRateLimitFilter.QUOTA_REMAINING_HEADER));
+            assertEquals("60", header(accepted, ClientRateLimitFilter.QUOTA_RESET_HEADER));
+        }
+        var rejected = filter(filter, get(FIRST_ADDRESS, null));
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, rejected.getResponse().getStatusCode());
+        assertEquals("60", header(rejected, HttpHeaders.RETRY_AFTER));
+        // The refused request took nothing from the bucket
+        assertEquals("7", header(rejected, ClientRateLimitFilter.REMAINING_HEADER));
+    }
+
+    @Test
+    void bulkRecordsAreChargedAsTheyPass() {
+        this.properties.getRateLimit().setDefaults(new MovieInfoProperties.RatePlan(10, 10, 0));
+        var filter = filter();
+        WebFilterChain bulkChain = exchange -> ClientRateLimitFilter.chargeRecords(exchange, Flux.range(0, 100))
+                .then();
+
+        var bulk = MockServerWebExchange.from(MockServerHttpRequest.post("/v1/movie-infos:bulk")
+                .remoteAddress(FIRST_ADDRESS));
+        StepVerifier.create(filter.filter(bulk, bulkChain)).verifyComplete();
+        assertEquals("8", header(bulk, ClientRateLimitFilter.REMAINING_HEADER));
+
+        // 2 for the bulk request, 5 for its records and 1 for this one
+        assertEquals("2", header(filter(filter, get(FIRST_ADDRESS, null)), ClientRateLimitFilter.REMAINING_HEADER));
+    }
+
+    @Test
+    void recordsBeforeACancelAreCharged() {
+        this.properties.getRateLimit().setDefaults(new MovieInfoProperties.RatePlan(10, 10, 0));
+        var filter = filter();
+        WebFilterChain bulkChain = exchange -> ClientRateLimitFilter.chargeRecords(exchange, Flux.range(0, 100))
+                .take(20)
+                .then();
+
+        var bulk = MockServerWebExchange.from(MockServerHttpRequest.post("/v1/movie-infos:bulk")
+                .remoteAddress(FIRST_ADDRESS));
+        StepVerifier.create(filter.filter(bulk, bulkChain)).verifyComplete();
+
+        // 2 for the bulk request, 1 for the 20 records that passed, fewer than a batch, and 1 for this one
+        assertEquals("6", header(filter(filter, get(FIRST_ADDRESS, null)), ClientRateLimitFilter.REMAINING_HEADER));
+    }
+
+    @Test
+    void idleClientIsKeptUntilItsBucketRefilled() {
+        this.properties.getRateLimit().setDefaults(new MovieInfoProperties.RatePlan(1, 3, 0));
+        this.properties.getRateLimit().setIdleTimeout(Duration.ofMillis(100));
+        var filter = filter();
+        // Spends the burst; the bucket is full again three seconds later
+        for (int i = 0; i < 3; i++) {
+            filter(filter, get(FIRST_ADDRESS, null));
+        }
+
+        this.nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(2500));
+        // Half a token refilled and one taken, not a new bucket with two left
+        assertEquals("1", header(filter(filter, get(FIRST_ADDRESS, null)), ClientRateLimitFilter.REMAINING_HEADER));
+    }
+
+    @Test
+    void requestsOutsideTheApiAreNotLimited() {
+        var actuator = filter(filter(), MockServerWebExchange.from(MockServerHttpRequest.get("/actuator/health")));
+
+        assertNull(header(actuator, ClientRateLimitFilter.LIMIT_HEADER));
+    }
+
+    private ClientRateLimitFilter filter() {
+        return new ClientRateLimitFilter(this.properties, this.nanos::get, this.clock);
+    }
+
+    private MockServerWebExchange filter(ClientRateLimitFilter filter, MockServerWebExchange exchange) {
+        StepVerifier.create(filter.filter(exchange, this.chain)).verifyComplete();
+        return exchange;
+    }
+
+    private static MockServerWebExchange get(InetSocketAddress remoteAddress, String apiKey) {
+        var request = MockServerHttpRequest.get("/v1/movie-infos/TDR").remoteAddress(remoteAddress);
+        if (apiKey != null) {
+            request.header("X-API-Key", apiKey);
+        }
+        return MockServerWebExchange.from(request);
+    }
+
+    private static String header(MockServerWebExchange exchange, String name) {
+        return exchange.getResponse().getHeaders().getFirst(name);
+    }
+}
@@ -0,0 +1,100 @@
+package io.ghost.movieinfo.limit;
+
+import io.ghost.movieinfo.config.MovieInfoProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConcurrencyLimitFilterTest {
+
+    // Stands in for a handler waiting on a slow repository
+    private final WebFilterChain slowChain = exchange -> Mono.delay(Duration.ofMillis(300)).then();
+
+    private ConcurrencyLimitFilter concurrencyLimitFilter;
+
+    @BeforeEach
+    void setUp() {
+        var properties = new MovieInfoProperties();
+        properties.getConcurrency().setReads(new MovieInfoProperties.Limit(2, 2, 2, false));
+        this.concurrencyLimitFilter = new ConcurrencyLimitFilter(properties);
+    }
+
+    @Test
+    void requestsOverTheLimitAreRejectedRightAway() {
+        var inFlight = Flux.range(0, 2)
+                .flatMap(i -> this.concurrencyLimitFilter.filter(read(), this.slowChain))
+                .then()
+                .toFuture();
+
+        var rejected = read();
+        StepVerifier.create(this.concurrencyLimitFilter.filter(rejected, this.slowChain))
+                .expectComplete()
+                .verify(Duration.ofMillis(100));
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, rejected.getResponse().getStatusCode());
+        assertEquals("1", rejected.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+
+        var write = MockServerWebExchange.from(MockServerHttpRequest.post("/v1/movie-info"));
+        StepVerifier.create(this.concurrencyLimitFilter.filter(write, this.slowChain)).verifyComplete();
+        assertNull(write.getResponse().getStatusCode());
+
+        inFlight.join();
+        var accepted = read();
+        StepVerifier.create(this.concurrencyLimitFilter.filter(accepted, this.slowChain)).verifyComplete();
+        assertNull(accepted.getResponse().getStatusCode());
+        assertEquals(0, this.concurrencyLimitFilter.getLimit(RouteGroup.READS).getInFlight());
+    }
+
+    @Test
+    void limitFollowsLatency() {
+        var limit = new AdaptiveConcurrencyLimit(new MovieInfoProperties.Limit(10, 1, 100, true), 2.0, 0.2);
+
+        for (int i = 0; i < 50; i++) {
+            limit.onSuccess(TimeUnit.MILLISECONDS.toNanos(1), limit.getLimit());
+        }
+        int grown = limit.getLimit();
+        assertTrue(grown > 10, "limit should grow while latency is stable, was " + grown);
+
+        for (int i = 0; i < 50; i++) {
+            limit.onSuccess(TimeUnit.MILLISECONDS.toNanos(20), limit.getLimit());
+        }
+        assertTrue(limit.getLimit() < grown, "limit should shrink once latency rises, was " + limit.getLimit());
+    }
+
+    @Test
+    void onlyServerErrorsLowerTheLimit() {
+        var properties = new MovieInfoProperties();
+        properties.getConcurrency().setReads(new MovieInfoProperties.Limit(10, 1, 100, true));
+        var filter = new ConcurrencyLimitFilter(properties);
+        var limit = filter.getLimit(RouteGroup.READS);
+        WebFilterChain notFound = exchange -> Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND));
+
+        for (int i = 0; i < 20; i++) {
+            StepVerifier.create(filter.filter(read(), notFound)).verifyError(ResponseStatusException.class);
+        }
+        assertEquals(10, limit.getLimit());
+        assertEquals(0, limit.getInFlight());
+
+        WebFilterChain failing = exchange -> Mono.error(new IllegalStateException("connection reset"));
+        StepVerifier.create(filter.filter(read(), failing)).verifyError(IllegalStateException.class);
+        assertEquals(9, limit.getLimit());
+    }
+
+    private static MockServerWebExchange read() {
+        return MockServerWebExchange.from(MockServerHttpRequest.get("/v1/movie-infos/TDR"));
+    }
+}
@@ -0,0 +1,125 @@
+package io.ghost.movieinfo.repository;
+
+import com.mongodb.MongoClientSettings;
+import io.ghost.movieinfo.domain.MovieInfo;
+import io.ghost.movieinfo.validation.CastNamePool;
+import org.bson.BsonBinaryReader;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.DocumentCodec;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MovieInfoReadingConverterTest {
+
+    private final CastNamePool castNamePool = new CastNamePool(1_000);
+
+    private final MovieInfoReadingConverter converter = new MovieInfoReadingConverter(this.castNamePool);
+
+    private final MappingMongoConverter mappingConverter = mappingConverter();
+
+    private final MovieInfoBsonCodec codec = new MovieInfoBsonCodec(this.castNamePool, this.mappingConverter,
+            MongoClientSettings.getDefaultCodecRegistry());
+
+    private final Instant lastModified = Instant.parse("2022-07-01T10:15:30Z");
+
+    @Test
+    void readsEveryField() {
+        var expected = MovieInfo.builder()
+                .movieInfoId("TDR").name("The Dark Knight Rises").year(2012)
+                .casts(List.of("Christian Bale", "Tom Hardy"))
+                .releaseDate(LocalDate.parse("2012-07-20"))
+                .version(3L).lastModified(this.lastModified)
+                .build();
+        var document = document("TDR");
+
+        assertEquals(expected, this.converter.convert(document));
+        assertEquals(expected, decode(document));
+    }
+
+    @Test
+    void castNamesAreSharedAndImmutable() {
+        var first = this.converter.convert(document("TDR"));
+        var second = decode(document("BB"));
+
+        assertSame(first.getCasts().get(0), second.getCasts().get(0));
+        assertThrows(UnsupportedOperationException.class, () -> first.getCasts().add("Anne Hathaway"));
+        assertThrows(UnsupportedOperationException.class, () -> second.getCasts().set(0, "Anne Hathaway"));
+    }
+
+    @Test
+    void readsPartialAndLooselyTypedDocuments() {
+        var id = new ObjectId();
+        var document = new Document("_id", id)
+                .append("year", 2005L)
+                .append("casts", Arrays.asList("Christian Bale", null))
+                .append("version", 0)
+                .append("score", 1.5);
+
+        for (var movieInfo : List.of(this.converter.convert(document), decode(document))) {
+            assertEquals(id.toHexString(), movieInfo.getMovieInfoId());
+            assertNull(movieInfo.getName());
+            assertEquals(2005, movieInfo.getYear());
+            assertEquals(Arrays.asList("Christian Bale", null), movieInfo.getCasts());
+            assertEquals(0L, movieInfo.getVersion());
+            assertNull(movieInfo.getReleaseDate());
+        }
+    }
+
+    @Test
+    void encodesAsTheMappingLayerWrites() {
+        var movieInfo = this.converter.convert(document("TDR"));
+        var expected = new Document();
+        this.mappingConverter.write(movieInfo, expected);
+
+        var encoded = new RawBsonDocument(movieInfo, this.codec);
+
+        assertEquals(expected, new DocumentCodec().decode(encoded.asBsonReader(), DecoderContext.builder().build()));
+        assertEquals(movieInfo, decode(expected));
+    }
+
+    // Laid out the way the mapping layer writes a MovieInfo
+    private Document document(String id) {
+        var releaseDate = Date.from(LocalDate.parse("2012-07-20").atStartOfDay(ZoneId.systemDefault()).toInstant());
+        return new Document("_id", id)
+                .append("name", "The Dark Knight Rises")
+                .append("year", 2012)
+                // New instances, as the driver decodes them for every document
+                .append("casts", List.of(new String("Christian Bale"), new String("Tom Hardy")))
+                .append("releaseDate", releaseDate)
+                .append("version", 3L)
+                .append("lastModified", Date.from(this.lastModified))
+                .append("_class", "io.ghost.movieinfo.domain.MovieInfo");
+    }
+
+    private static MappingMongoConverter mappingConverter() {
+        var mappingContext = new MongoMappingContext();
+        mappingContext.afterPropertiesSet();
+        var converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.afterPropertiesSet();
+        return converter;
+    }
+
+    private MovieInfo decode(Document document) {
+        var bson = new RawBsonDocument(document, new DocumentCodec()).getByteBuffer().asNIO();
+        try (var reader = new BsonBinaryReader(bson)) {
+            return this.codec.decode(reader, DecoderContext.builder().build());
+        }
+    }
+}
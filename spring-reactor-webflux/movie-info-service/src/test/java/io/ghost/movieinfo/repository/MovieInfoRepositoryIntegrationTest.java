@@ -1,8 +1,10 @@
 package io.ghost.movieinfo.repository;
 
+import io.ghost.movieinfo.config.MongoConversionConfig;
 import io.ghost.movieinfo.domain.MovieInfo;
 import io.ghost.movieinfo.repository.MovieInfoRepository;
 import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -10,6 +12,10 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
 import org.springframework.boot.autoconfigure.mongo.embedded.EmbeddedMongoAutoConfiguration;
 import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.TestPropertySource;
@@ -19,9 +25,15 @@ import reactor.test.StepVerifier;
 import java.time.LocalDate;
 import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @DataMongoTest
+// The application's conversions and the CastNamePool the repository takes
+@Import(MongoConversionConfig.class)
 @ActiveProfiles("test")
 //@ContextConfiguration(initializers = {MongodbContainerInitializer.class})
 //@EnableAutoConfiguration(exclude = EmbeddedMongoAutoConfiguration.class)
@@ -36,6 +48,9 @@ public class MovieInfoRepositoryIntegrationTest {
     @Autowired
     private MovieInfoRepository movieInfoRepository;
 
+    @Autowired
+    private ReactiveMongoTemplate reactiveMongoTemplate;
+
     // This is the setup method which pushes the data in embedded DB
     @BeforeEach
     void setUp() {
@@ -78,6 +93,38 @@ public class MovieInfoRepositoryIntegrationTest {
                 .verifyComplete();
     }
 
+    @Test
+    public void streamAllReadsTheSameDocumentsAsFindAll() {
+        var found = this.movieInfoRepository.findAll().collectList().block();
+
+        StepVerifier.create(this.movieInfoRepository.streamAll().collectList())
+                .assertNext(streamed -> {
+                    assertEquals(3, streamed.size());
+                    assertTrue(streamed.containsAll(found));
+                    // One String per cast name across all documents
+                    assertSame(streamed.get(0).getCasts().get(0), streamed.get(2).getCasts().get(0));
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    public void findSummaries() {
+        StepVerifier.create(this.movieInfoRepository.findSummaries(null, null, 10))
+                .assertNext(summary -> {
+                    assertEquals("TDR", summary.getMovieInfoId());
+                    assertEquals("The Dark Knight Rises", summary.getName());
+                    assertEquals(2012, summary.getYear());
+                })
+                .expectNextCount(2)
+                .verifyComplete();
+        StepVerifier.create(this.movieInfoRepository.findSummaries(null, "TDR", 10))
+                .expectNextCount(2)
+                .verifyComplete();
+        StepVerifier.create(this.movieInfoRepository.findSummaries(2008, null, 10))
+                .assertNext(summary -> assertEquals("The Dark Knight", summary.getName()))
+                .verifyComplete();
+    }
+
     @Test
     public void findById() {
         var mono = this.movieInfoRepository.findById("TDR").log();
@@ -110,6 +157,8 @@ public class MovieInfoRepositoryIntegrationTest {
     public void saveAndUpdate() {
         var movieInfo = this.movieInfoRepository.findById("TDR").block();
         movieInfo.setMovieInfoId("TDR1");
+        // A copy under a new id is a new document, not an update of version 0
+        movieInfo.setVersion(null);
 
         var mono = this.movieInfoRepository.save(movieInfo).log();
 
@@ -120,6 +169,25 @@ public class MovieInfoRepositoryIntegrationTest {
                 .verifyComplete();
     }
 
+    @Test
+    public void upsertInsertsOrReplacesWithTheNextVersion() {
+        StepVerifier.create(this.movieInfoRepository.upsert(MovieInfo.builder().name("Memento").year(2000).build()))
+                .assertNext(movieInfo -> {
+                    assertNotNull(movieInfo.getMovieInfoId());
+                    assertEquals(1L, movieInfo.getVersion());
+                })
+                .verifyComplete();
+
+        var replacement = MovieInfo.builder().movieInfoId("TDR").name("The Dark Knight Rises").year(2012)
+                .version(7L).build();
+        StepVerifier.create(this.movieInfoRepository.upsert(replacement))
+                .assertNext(movieInfo -> {
+                    assertEquals(1L, movieInfo.getVersion());
+                    assertNull(movieInfo.getCasts());
+                })
+                .verifyComplete();
+    }
+
     @Test
     public void delete() {
         var movieInfo = this.movieInfoRepository.findById("TDR").block();
@@ -131,4 +199,50 @@ public class MovieInfoRepositoryIntegrationTest {
                 .expectNextCount(2)
                 .verifyComplete();
     }
+
+    @Test
+    public void findByYear() {
+        var flux = this.movieInfoRepository.findByYear(2012, PageRequest.of(0, 10, Sort.by("_id")));
+
+        StepVerifier.create(flux)
+                .assertNext(movieInfo -> assertTrue("TDR".equals(movieInfo.getMovieInfoId())))
+                .verifyComplete();
+    }
+
+    @Test
+    public void findByCasts() {
+        var flux = this.movieInfoRepository.findByCasts("Michael Cane", PageRequest.of(0, 10, Sort.by("_id")));
+
+        StepVerifier.create(flux)
+                .expectNextCount(3)
+                .verifyComplete();
+    }
+
+    @Test
+    public void searchByName() {
+        var flux = this.movieInfoRepository.searchByName("knight", 2008, "Christian Bale", 10);
+
+        StepVerifier.create(flux)
+                .assertNext(movieInfo -> assertTrue("The Dark Knight".equals(movieInfo.getName())))
+                .verifyComplete();
+    }
+
+    @Test
+    public void initializeVersionsRunsOnce() {
+        this.reactiveMongoTemplate.dropCollection("migrations").block();
+        this.reactiveMongoTemplate.insert(new Document("_id", "UNVERSIONED").append("name", "Memento"), "movieInfo")
+                .block();
+
+        StepVerifier.create(this.movieInfoRepository.initializeVersions())
+                .expectNext(1L)
+                .verifyComplete();
+        StepVerifier.create(this.movieInfoRepository.findById("UNVERSIONED"))
+                .assertNext(movieInfo -> assertEquals(0L, movieInfo.getVersion()))
+                .verifyComplete();
+
+        this.reactiveMongoTemplate.insert(new Document("_id", "LATE").append("name", "Insomnia"), "movieInfo")
+                .block();
+        StepVerifier.create(this.movieInfoRepository.initializeVersions())
+                .verifyComplete();
+    }
 }
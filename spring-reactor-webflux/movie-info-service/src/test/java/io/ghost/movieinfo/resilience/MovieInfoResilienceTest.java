@@ -0,0 +1,175 @@
+package io.ghost.movieinfo.resilience;
+
+import io.ghost.movieinfo.config.MovieInfoProperties;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MovieInfoResilienceTest {
+
+    private MovieInfoProperties properties;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private MovieInfoResilience movieInfoResilience;
+
+    @BeforeEach
+    void setUp() {
+        this.properties = new MovieInfoProperties();
+        var resilience = this.properties.getResilience();
+        resilience.getDefaults().setTimeout(Duration.ofMillis(200));
+        resilience.getDefaults().setRetryBackoff(Duration.ofMillis(1));
+        resilience.getDefaults().setMaxRetryBackoff(Duration.ofMillis(5));
+        resilience.getCircuitBreaker().setSlidingWindowSize(4);
+        resilience.getCircuitBreaker().setMinimumNumberOfCalls(4);
+        this.meterRegistry = new SimpleMeterRegistry();
+        this.movieInfoResilience = new MovieInfoResilience(this.properties, this.meterRegistry);
+    }
+
+    @Test
+    void transientReadFailureIsRetried() {
+        var calls = new AtomicInteger();
+
+        StepVerifier.create(this.movieInfoResilience.read("findById", () -> calls.incrementAndGet() == 1
+                        ? Mono.error(new DataAccessResourceFailureException("connection reset"))
+                        : Mono.just("TDR")))
+                .expectNext("TDR")
+                .verifyComplete();
+
+        assertEquals(2, calls.get());
+        assertEquals(1, events("findById", "retry"));
+    }
+
+    @Test
+    void answersOfAHealthyServerAreNotRetried() {
+        var calls = new AtomicInteger();
+
+        StepVerifier.create(this.movieInfoResilience.read("findById", () -> {
+                    calls.incrementAndGet();
+                    return Mono.error(new DuplicateKeyException("duplicate"));
+                }))
+                .verifyError(DuplicateKeyException.class);
+
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void writesAreNotRetriedAndTimeOutAsUnavailable() {
+        var calls = new AtomicInteger();
+
+        StepVerifier.create(this.movieInfoResilience.write("save", () -> {
+                    calls.incrementAndGet();
+                    return Mono.never();
+                }))
+                .verifyErrorSatisfies(e -> assertEquals(HttpStatus.SERVICE_UNAVAILABLE,
+                        ((ResponseStatusException) e).getStatus()));
+
+        assertEquals(1, calls.get());
+        assertEquals(1, events("save", "timeout"));
+    }
+
+    @Test
+    void failedReadFallsBackToTheLastValue() {
+        this.properties.getResilience().getDefaults().setStaleFallback(true);
+        this.properties.getResilience().getDefaults().setMaxRetries(0);
+
+        StepVerifier.create(this.movieInfoResilience.read("findById", "TDR", () -> Mono.just("v1"), null))
+                .expectNext("v1")
+                .verifyComplete();
+        StepVerifier.create(this.movieInfoResilience.read("findById", "TDR",
+                        () -> Mono.error(new DataAccessResourceFailureException("down")), null))
+                .expectNext("v1")
+                .verifyComplete();
+        StepVerifier.create(this.movieInfoResilience.read("findById", "BB",
+                        () -> Mono.error(new DataAccessResourceFailureException("down")), null))
+                .verifyError(ResponseStatusException.class);
+
+        assertEquals(1, events("findById", "stale-fallback"));
+    }
+
+    @Test
+    void slowReadIsHedged() {
+        this.properties.getResilience().getDefaults().setHedged(true);
+        this.properties.getResilience().getHedge().setMaxDelay(Duration.ofMillis(20));
+
+        StepVerifier.create(this.movieInfoResilience.read("findById", null,
+                        () -> Mono.just("primary").delayElement(Duration.ofMillis(150)),
+                        () -> Mono.just("secondary")))
+                .expectNext("secondary")
+                .verifyComplete();
+
+        assertEquals(1, events("findById", "hedge"));
+    }
+
+    @Test
+    void streamIsOnlyRetriedBeforeTheFirstElement() {
+        var calls = new AtomicInteger();
+
+        StepVerifier.create(this.movieInfoResilience.readMany("findAll", () -> calls.incrementAndGet() == 1
+                        ? Flux.error(new DataAccessResourceFailureException("connection reset"))
+                        : Flux.concat(Flux.just("TDR"), Flux.error(new DataAccessResourceFailureException("reset")))))
+                .expectNext("TDR")
+                .verifyError(ResponseStatusException.class);
+
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void circuitOpensAfterRepeatedFailures() {
+        this.properties.getResilience().getDefaults().setMaxRetries(0);
+        var calls = new AtomicInteger();
+
+        for (int i = 0; i < 4; i++) {
+            StepVerifier.create(this.movieInfoResilience.read("findById", () -> {
+                        calls.incrementAndGet();
+                        return Mono.error(new DataAccessResourceFailureException("down"));
+                    }))
+                    .verifyError(ResponseStatusException.class);
+        }
+        assertEquals(CircuitBreaker.State.OPEN, this.movieInfoResilience.getCircuitBreaker().getState());
+
+        StepVerifier.create(this.movieInfoResilience.read("findById", () -> {
+                    calls.incrementAndGet();
+                    return Mono.just("TDR");
+                }))
+                .verifyErrorSatisfies(e -> assertEquals(HttpStatus.SERVICE_UNAVAILABLE,
+                        ((ResponseStatusException) e).getStatus()));
+
+        assertEquals(4, calls.get());
+        assertTrue(events("findById", "rejected") >= 1);
+    }
+
+    @Test
+    void operationSettingsOverrideTheDefaults() {
+        var own = new MovieInfoProperties.Policy();
+        own.setTimeout(Duration.ofMillis(50));
+        this.properties.getResilience().getOperations().put("findPage", own);
+
+        var policy = this.movieInfoResilience.policy("findPage");
+
+        assertEquals(Duration.ofMillis(50), policy.getTimeout());
+        assertEquals(2, policy.getMaxRetries());
+    }
+
+    private double events(String operation, String event) {
+        return this.meterRegistry.get(MovieInfoResilience.EVENTS_METRICS_NAME)
+                .tag("operation", operation)
+                .tag("event", event)
+                .counter()
+                .count();
+    }
+}
@@ -0,0 +1,75 @@
+package io.ghost.movieinfo.scheduling;
+
+import io.ghost.movieinfo.config.MovieInfoProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.blockhound.BlockingOperationError;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MovieInfoSchedulersTest {
+
+    private MovieInfoSchedulers movieInfoSchedulers;
+
+    @BeforeEach
+    void setUp() {
+        this.movieInfoSchedulers = new MovieInfoSchedulers(new MovieInfoProperties());
+    }
+
+    @AfterEach
+    void tearDown() {
+        this.movieInfoSchedulers.close();
+    }
+
+    @Test
+    void blockingOnTheCpuSchedulerFails() {
+        StepVerifier.create(Mono.fromCallable(() -> {
+                    Thread.sleep(1);
+                    return "slept";
+                }).subscribeOn(this.movieInfoSchedulers.cpu()))
+                .verifyError(BlockingOperationError.class);
+    }
+
+    @Test
+    void blockingSchedulerMayBlock() {
+        StepVerifier.create(Mono.fromCallable(() -> {
+                    Thread.sleep(1);
+                    return Schedulers.isInNonBlockingThread();
+                }).subscribeOn(this.movieInfoSchedulers.blocking()))
+                .expectNext(false)
+                .verifyComplete();
+    }
+
+    @Test
+    void serialSchedulerRunsTasksInOrderOnOneThread() {
+        var serial = this.movieInfoSchedulers.newSerial("movie-info-test");
+        List<Integer> order = new CopyOnWriteArrayList<>();
+        List<String> threads = new CopyOnWriteArrayList<>();
+        try {
+            StepVerifier.create(Flux.range(0, 50)
+                            .flatMap(i -> Mono.fromRunnable(() -> {
+                                order.add(i);
+                                threads.add(Thread.currentThread().getName());
+                            }).subscribeOn(serial)))
+                    .verifyComplete();
+        } finally {
+            serial.dispose();
+        }
+
+        assertEquals(50, order.size());
+        for (int i = 0; i < order.size(); i++) {
+            assertEquals(i, order.get(i));
+        }
+        assertEquals(1, threads.stream().distinct().count());
+        assertTrue(threads.get(0).startsWith("movie-info-blocking"));
+    }
+}
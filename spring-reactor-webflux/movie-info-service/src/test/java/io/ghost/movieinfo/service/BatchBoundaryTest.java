@@ -0,0 +1,41 @@
+package io.ghost.movieinfo.service;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+
+class BatchBoundaryTest {
+
+    @Test
+    void fullBatchesCloseRightAway() {
+        StepVerifier.create(BatchBoundary.batches(Flux.range(0, 5), 2, Duration.ofMinutes(1)))
+                .expectNext(List.of(0, 1), List.of(2, 3), List.of(4))
+                .verifyComplete();
+    }
+
+    @Test
+    void partialBatchClosesOnTheTimerWithoutAnotherElement() {
+        var trickle = Flux.just(0, 1).concatWith(Flux.never());
+
+        StepVerifier.create(BatchBoundary.batches(trickle, 10, Duration.ofMillis(100)))
+                .expectNext(List.of(0, 1))
+                .expectNoEvent(Duration.ofMillis(300))
+                .thenCancel()
+                .verify(Duration.ofSeconds(2));
+    }
+
+    @Test
+    void batchesAreOnlyEmittedOnDemand() {
+        var trickle = Flux.just(0).concatWith(Flux.just(1, 2).delaySubscription(Duration.ofMillis(200)));
+
+        StepVerifier.create(BatchBoundary.batches(trickle, 10, Duration.ofMillis(50)), 0)
+                .expectSubscription()
+                .expectNoEvent(Duration.ofMillis(400))
+                .thenRequest(2)
+                .expectNext(List.of(0), List.of(1, 2))
+                .verifyComplete();
+    }
+}
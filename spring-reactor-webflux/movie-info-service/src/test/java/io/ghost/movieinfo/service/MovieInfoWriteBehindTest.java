@@ -0,0 +1,162 @@
+package io.ghost.movieinfo.service;
+
+import io.ghost.movieinfo.cache.MovieInfoCache;
+import io.ghost.movieinfo.config.MovieInfoProperties;
+import io.ghost.movieinfo.domain.MovieInfo;
+import io.ghost.movieinfo.domain.MovieInfoBulkResult;
+import io.ghost.movieinfo.repository.MovieInfoRepository;
+import io.ghost.movieinfo.resilience.MovieInfoResilience;
+import io.ghost.movieinfo.scheduling.MovieInfoSchedulers;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MovieInfoWriteBehindTest {
+
+    @TempDir
+    Path journalDirectory;
+
+    private MovieInfoRepository movieInfoRepository;
+
+    private MovieInfoProperties properties;
+
+    private MovieInfoSchedulers movieInfoSchedulers;
+
+    private MovieInfoWriteBehind movieInfoWriteBehind;
+
+    @BeforeEach
+    void setUp() {
+        this.movieInfoRepository = mock(MovieInfoRepository.class);
+        this.properties = new MovieInfoProperties();
+        this.properties.getWriteBehind().setEnabled(true);
+        this.properties.getWriteBehind().setFlushInterval(Duration.ofMillis(50));
+        this.properties.getWriteBehind().setJournalDirectory(this.journalDirectory);
+        this.properties.getWriteBehind().setShutdownTimeout(Duration.ofSeconds(1));
+        this.movieInfoSchedulers = new MovieInfoSchedulers(this.properties);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        this.movieInfoWriteBehind.stop();
+        this.movieInfoSchedulers.close();
+    }
+
+    @Test
+    void repeatedUpdatesAreCoalescedIntoOneWrite() throws IOException {
+        when(this.movieInfoRepository.bulkUpsert(anyList()))
+                .thenAnswer(invocation -> Mono.just(accepted(invocation.<List<MovieInfo>>getArgument(0).size())));
+        // Only the flush on shutdown writes
+        this.properties.getWriteBehind().setFlushInterval(Duration.ofHours(1));
+        this.movieInfoWriteBehind = writeBehind();
+
+        StepVerifier.create(this.movieInfoWriteBehind.accept(movieInfo("TDR", 2011))
+                        .then(this.movieInfoWriteBehind.accept(movieInfo("TDR", 2012))))
+                .expectNextCount(1)
+                .verifyComplete();
+        assertEquals(2012, this.movieInfoWriteBehind.getPending("TDR").getYear());
+
+        this.movieInfoWriteBehind.stop();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<MovieInfo>> batch = ArgumentCaptor.forClass(List.class);
+        verify(this.movieInfoRepository).bulkUpsert(batch.capture());
+        assertEquals(1, batch.getValue().size());
+        assertEquals(2012, batch.getValue().get(0).getYear());
+        assertNull(this.movieInfoWriteBehind.getPending("TDR"));
+    }
+
+    @Test
+    void unwrittenRecordsAreReplayedAfterRestart() throws IOException {
+        // Mongo is down: every write fails and stays pending
+        when(this.movieInfoRepository.bulkUpsert(anyList())).thenReturn(Mono.just(MovieInfoBulkResult.builder()
+                .failed(1)
+                .failedIds(List.of("TDR"))
+                .build()));
+        this.movieInfoWriteBehind = writeBehind();
+
+        StepVerifier.create(this.movieInfoWriteBehind.accept(movieInfo("TDR", 2012)))
+                .expectNextCount(1)
+                .verifyComplete();
+        verify(this.movieInfoRepository, timeout(2000).atLeastOnce()).bulkUpsert(anyList());
+        this.movieInfoWriteBehind.stop();
+
+        this.movieInfoWriteBehind = writeBehind();
+
+        assertNotNull(this.movieInfoWriteBehind.getPending("TDR"));
+        assertEquals(2012, this.movieInfoWriteBehind.getPending("TDR").getYear());
+    }
+
+    @Test
+    void recordsOfAFailedFlushAreWrittenByTheNextOne() throws IOException {
+        // The first flush fails as a whole, e.g. on a timeout; the next one gets through
+        when(this.movieInfoRepository.bulkUpsert(anyList()))
+                .thenReturn(Mono.error(new IllegalStateException("connection reset")))
+                .thenAnswer(invocation -> Mono.just(accepted(invocation.<List<MovieInfo>>getArgument(0).size())));
+        this.movieInfoWriteBehind = writeBehind();
+
+        StepVerifier.create(this.movieInfoWriteBehind.accept(movieInfo("TDR", 2012)))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<MovieInfo>> batches = ArgumentCaptor.forClass(List.class);
+        verify(this.movieInfoRepository, timeout(2000).times(2)).bulkUpsert(batches.capture());
+        assertEquals("TDR", batches.getAllValues().get(1).get(0).getMovieInfoId());
+        this.movieInfoWriteBehind.stop();
+
+        // Written in the end, so nothing is replayed
+        this.movieInfoWriteBehind = writeBehind();
+        assertEquals(0, this.movieInfoWriteBehind.pendingCount());
+    }
+
+    @Test
+    void discardedRecordsAreNotReplayed() throws IOException {
+        this.properties.getWriteBehind().setFlushInterval(Duration.ofHours(1));
+        this.movieInfoWriteBehind = writeBehind();
+
+        StepVerifier.create(this.movieInfoWriteBehind.accept(movieInfo("TDR", 2012))
+                        .then(this.movieInfoWriteBehind.discard("TDR")))
+                .verifyComplete();
+        this.movieInfoWriteBehind.stop();
+
+        this.movieInfoWriteBehind = writeBehind();
+
+        assertEquals(0, this.movieInfoWriteBehind.pendingCount());
+    }
+
+    private MovieInfoWriteBehind writeBehind() throws IOException {
+        var writeBehind = new MovieInfoWriteBehind(this.movieInfoRepository, mock(MovieInfoCache.class),
+                new MovieInfoResilience(this.properties, new SimpleMeterRegistry()), this.properties,
+                Jackson2ObjectMapperBuilder.json().build(), this.movieInfoSchedulers);
+        writeBehind.start();
+        return writeBehind;
+    }
+
+    private static MovieInfo movieInfo(String movieInfoId, int year) {
+        return MovieInfo.builder().movieInfoId(movieInfoId).name("The Dark Knight Rises").year(year).build();
+    }
+
+    private static MovieInfoBulkResult accepted(int count) {
+        return MovieInfoBulkResult.builder().accepted(count).failedIds(List.of()).build();
+    }
+}
@@ -0,0 +1,144 @@
+package io.ghost.movieinfo.validation;
+
+import io.ghost.movieinfo.config.MovieInfoProperties;
+import io.ghost.movieinfo.domain.MovieInfo;
+import io.ghost.movieinfo.domain.MovieInfoViolation;
+import io.ghost.movieinfo.scheduling.MovieInfoSchedulers;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.test.StepVerifier;
+
+import java.time.LocalDate;
+import java.time.Year;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MovieInfoValidatorTest {
+
+    private MovieInfoProperties properties;
+
+    private MovieInfoSchedulers movieInfoSchedulers;
+
+    private MovieInfoValidator movieInfoValidator;
+
+    @BeforeEach
+    void setUp() {
+        this.properties = new MovieInfoProperties();
+        this.properties.getValidation().setMaxCasts(3);
+        this.properties.getValidation().setOffloadThreshold(4);
+        this.movieInfoSchedulers = new MovieInfoSchedulers(this.properties);
+        this.movieInfoValidator = new MovieInfoValidator(this.properties, this.movieInfoSchedulers,
+                new CastNamePool(this.properties.getValidation().getCastNamePoolSize()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        this.movieInfoSchedulers.close();
+    }
+
+    @Test
+    void validMovieInfoIsNormalized() {
+        var movieInfo = MovieInfo.builder()
+                .name("  The\tDark   Knight ")
+                .year(2008)
+                .casts(List.of(" Christian  Bale", "Heath Ledger", "Christian Bale ", "  "))
+                .build();
+
+        StepVerifier.create(this.movieInfoValidator.validate(movieInfo))
+                .assertNext(validated -> {
+                    assertEquals("The Dark Knight", validated.getName());
+                    assertEquals(List.of("Christian Bale", "Heath Ledger"), validated.getCasts());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void castNamesAreInterned() {
+        var first = MovieInfo.builder().name("Batman Begins").casts(List.of(new String("Michael Caine"))).build();
+        var second = MovieInfo.builder().name("The Prestige").casts(List.of(new String("Michael Caine"))).build();
+
+        this.movieInfoValidator.validate(first).block();
+        this.movieInfoValidator.validate(second).block();
+
+        assertSame(first.getCasts().get(0), second.getCasts().get(0));
+    }
+
+    @Test
+    void everyViolationIsReported() {
+        var movieInfo = MovieInfo.builder()
+                .movieInfoId("BAD")
+                .name(" \n ")
+                .year(1700)
+                .releaseDate(LocalDate.of(Year.now().getValue() + 11, 1, 1))
+                .casts(List.of("a", "b", "c", "d".repeat(201)))
+                .build();
+
+        StepVerifier.create(this.movieInfoValidator.validate(movieInfo))
+                .verifyErrorSatisfies(e -> {
+                    var violations = ((MovieInfoValidationException) e).getViolations();
+                    assertEquals(List.of("name", "year", "releaseDate", "casts", "casts[3]"),
+                            violations.stream().map(MovieInfoViolation::getField).collect(Collectors.toList()));
+                    assertTrue(violations.stream().allMatch(violation -> "BAD".equals(violation.getMovieInfoId())));
+                    assertNull(violations.get(0).getIndex());
+                    assertEquals("1700", violations.get(1).getRejectedValue());
+                    assertTrue(violations.get(4).getRejectedValue().length() < 201);
+                });
+    }
+
+    @Test
+    void yearIsOptional() {
+        StepVerifier.create(this.movieInfoValidator.validate(MovieInfo.builder().name("Andhadun").build()))
+                .expectNextCount(1)
+                .verifyComplete();
+    }
+
+    @Test
+    void batchKeepsValidRecordsAndIndexesTheOthers() {
+        var movieInfos = List.of(
+                MovieInfo.builder().name("Andhadun").year(2018).build(),
+                MovieInfo.builder().movieInfoId("NNM").name("").year(2015).build(),
+                MovieInfo.builder().name("Drishyam").year(2015).build());
+
+        StepVerifier.create(this.movieInfoValidator.validateBatch(movieInfos, 10))
+                .assertNext(batch -> {
+                    assertEquals(2, batch.getValid().size());
+                    assertEquals(1, batch.getInvalid());
+                    assertEquals(1, batch.getViolations().size());
+                    assertEquals(11L, batch.getViolations().get(0).getIndex());
+                    assertEquals("NNM", batch.getViolations().get(0).getMovieInfoId());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void largeBatchIsValidatedOnTheCpuScheduler() {
+        var movieInfos = IntStream.range(0, 4)
+                .mapToObj(i -> MovieInfo.builder().name("Andhadun").build())
+                .collect(Collectors.toList());
+        List<String> threads = new CopyOnWriteArrayList<>();
+
+        StepVerifier.create(this.movieInfoValidator.validateBatch(movieInfos, 0)
+                        .doOnNext(batch -> threads.add(Thread.currentThread().getName())))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        assertTrue(threads.get(0).startsWith("movie-info-cpu"));
+    }
+
+    @Test
+    void normalizeSpaceReturnsCleanValuesAsIs() {
+        var clean = "Christian Bale";
+
+        assertSame(clean, MovieInfoValidator.normalizeSpace(clean));
+        assertEquals("Christian Bale", MovieInfoValidator.normalizeSpace(" Christian   Bale"));
+        assertEquals("", MovieInfoValidator.normalizeSpace(" \t "));
+    }
+}